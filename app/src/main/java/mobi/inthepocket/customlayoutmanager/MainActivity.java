@@ -11,8 +11,13 @@ import java.util.ArrayList;
 
 import mobi.inthepocket.customlayoutmanager.adapters.BasicAdapter;
 import mobi.inthepocket.customlayoutmanager.decorators.BasicDecorator;
+import mobi.inthepocket.customlayoutmanager.enums.LayoutGravity;
 import mobi.inthepocket.customlayoutmanager.interfaces.FeedItemClickListener;
 import mobi.inthepocket.customlayoutmanager.layoutmanagers.AdLayoutManager;
+import mobi.inthepocket.customlayoutmanager.models.FeedItem;
+
+import static mobi.inthepocket.customlayoutmanager.enums.LayoutGravity.LEFT;
+import static mobi.inthepocket.customlayoutmanager.enums.LayoutGravity.RIGHT;
 
 public class MainActivity extends AppCompatActivity implements FeedItemClickListener
 {
@@ -20,7 +25,8 @@ public class MainActivity extends AppCompatActivity implements FeedItemClickList
     private BasicAdapter adapter;
     private AdLayoutManager adLayoutManager;
 
-    private ArrayList<String> items;
+    // Id for the next item that is created.
+    private long nextItemId;
 
     @Override
     protected void onCreate(Bundle savedInstanceState)
@@ -38,9 +44,7 @@ public class MainActivity extends AppCompatActivity implements FeedItemClickList
         recyclerView.setLayoutManager(adLayoutManager);
         recyclerView.addItemDecoration(new BasicDecorator(this));
 
-        items = getFeedContent();
-
-        adapter.setItems(items);
+        adapter.setItems(getFeedContent());
     }
 
     @Override
@@ -73,8 +77,7 @@ public class MainActivity extends AppCompatActivity implements FeedItemClickList
     private void addItem()
     {
         final int insertPosition = adLayoutManager.findFirstCompletelyVisibleItemPosition();
-        items.add(insertPosition, "wide");
-        adapter.notifyItemInserted(insertPosition);
+        adapter.addItem(insertPosition != RecyclerView.NO_POSITION ? insertPosition : 0, wide());
     }
 
     private void scrollToTop()
@@ -90,107 +93,121 @@ public class MainActivity extends AppCompatActivity implements FeedItemClickList
     @Override
     public void onFeedItemClicked(int position)
     {
-        items.remove(position);
-        adapter.notifyItemRemoved(position);
+        adapter.removeItem(position);
     }
 
-    private ArrayList<String> getFeedContent()
+    private ArrayList<FeedItem> getFeedContent()
     {
-        final ArrayList<String> items = new ArrayList<>();
+        final ArrayList<FeedItem> items = new ArrayList<>();
 
-        items.add("wide");
-        items.add("wide");
-        items.add("wide");
+        items.add(wide());
+        items.add(wide());
+        items.add(wide());
         // duo
-        items.add("text left");
-        items.add("text right");
+        items.add(text(LEFT));
+        items.add(text(RIGHT));
         // trio left
-        items.add("text right");
-        items.add("text tall left");
-        items.add("text right");
+        items.add(text(RIGHT));
+        items.add(tallText(LEFT));
+        items.add(text(RIGHT));
         // duo
-        items.add("text left");
-        items.add("text right");
-        items.add("wide");
+        items.add(text(LEFT));
+        items.add(text(RIGHT));
+        items.add(wide());
         // duo
-        items.add("text left");
-        items.add("text right");
+        items.add(text(LEFT));
+        items.add(text(RIGHT));
         // trio right
-        items.add("text left");
-        items.add("text tall right");
-        items.add("text left");
+        items.add(text(LEFT));
+        items.add(tallText(RIGHT));
+        items.add(text(LEFT));
         // duo
-        items.add("text left");
-        items.add("text right");
-        items.add("wide");
-        items.add("wide");
-        items.add("wide");
+        items.add(text(LEFT));
+        items.add(text(RIGHT));
+        items.add(wide());
+        items.add(wide());
+        items.add(wide());
         // duo
-        items.add("text left");
-        items.add("text right");
+        items.add(text(LEFT));
+        items.add(text(RIGHT));
         // trio right
-        items.add("text left");
-        items.add("text tall right");
-        items.add("text left");
-        items.add("wide");
-        items.add("wide");
-        items.add("wide");
+        items.add(text(LEFT));
+        items.add(tallText(RIGHT));
+        items.add(text(LEFT));
+        items.add(wide());
+        items.add(wide());
+        items.add(wide());
         // trio left
-        items.add("text right");
-        items.add("text tall left");
-        items.add("text right");
+        items.add(text(RIGHT));
+        items.add(tallText(LEFT));
+        items.add(text(RIGHT));
         // trio right
-        items.add("text left");
-        items.add("text tall right");
-        items.add("text left");
+        items.add(text(LEFT));
+        items.add(tallText(RIGHT));
+        items.add(text(LEFT));
         // trio right
-        items.add("text left");
-        items.add("text tall right");
-        items.add("text left");
+        items.add(text(LEFT));
+        items.add(tallText(RIGHT));
+        items.add(text(LEFT));
         // trio left
-        items.add("text right");
-        items.add("text tall left");
-        items.add("text right");
+        items.add(text(RIGHT));
+        items.add(tallText(LEFT));
+        items.add(text(RIGHT));
         // trio right
-        items.add("text left");
-        items.add("text tall right");
-        items.add("text left");
+        items.add(text(LEFT));
+        items.add(tallText(RIGHT));
+        items.add(text(LEFT));
         // duo
-        items.add("text left");
-        items.add("text right");
+        items.add(text(LEFT));
+        items.add(text(RIGHT));
         // trio left
-        items.add("text right");
-        items.add("text tall left");
-        items.add("text right");
+        items.add(text(RIGHT));
+        items.add(tallText(LEFT));
+        items.add(text(RIGHT));
         // duo
-        items.add("text left");
-        items.add("text right");
+        items.add(text(LEFT));
+        items.add(text(RIGHT));
         // trio right
-        items.add("text left");
-        items.add("text tall right");
-        items.add("text left");
+        items.add(text(LEFT));
+        items.add(tallText(RIGHT));
+        items.add(text(LEFT));
         // duo
-        items.add("text left");
-        items.add("text right");
+        items.add(text(LEFT));
+        items.add(text(RIGHT));
         // trio left
-        items.add("text left");
-        items.add("text tall right");
-        items.add("text left");
+        items.add(text(LEFT));
+        items.add(tallText(RIGHT));
+        items.add(text(LEFT));
         // wide
-        items.add("wide");
+        items.add(wide());
         // wide
-        items.add("wide");
+        items.add(wide());
         // trio right
-        items.add("text left");
-        items.add("text tall right");
-        items.add("text left");
+        items.add(text(LEFT));
+        items.add(tallText(RIGHT));
+        items.add(text(LEFT));
         // duo
-        items.add("text left");
-        items.add("text right");
+        items.add(text(LEFT));
+        items.add(text(RIGHT));
         // duo
-        items.add("text left");
-        items.add("text right");
+        items.add(text(LEFT));
+        items.add(text(RIGHT));
 
         return items;
     }
+
+    private FeedItem wide()
+    {
+        return new FeedItem(nextItemId++, FeedItem.Type.WIDE, LEFT, "wide");
+    }
+
+    private FeedItem text(final LayoutGravity gravity)
+    {
+        return new FeedItem(nextItemId++, FeedItem.Type.TEXT, gravity, gravity == LEFT ? "text left" : "text right");
+    }
+
+    private FeedItem tallText(final LayoutGravity gravity)
+    {
+        return new FeedItem(nextItemId++, FeedItem.Type.TEXT_TALL, gravity, gravity == LEFT ? "text tall left" : "text tall right");
+    }
 }
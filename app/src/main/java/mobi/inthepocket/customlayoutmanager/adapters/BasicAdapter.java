@@ -1,31 +1,43 @@
 package mobi.inthepocket.customlayoutmanager.adapters;
 
 import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.v7.util.DiffUtil;
 import android.support.v7.widget.RecyclerView;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 
 import mobi.inthepocket.customlayoutmanager.R;
-import mobi.inthepocket.customlayoutmanager.enums.LayoutGravity;
-import mobi.inthepocket.customlayoutmanager.enums.SpanCount;
+import mobi.inthepocket.customlayoutmanager.helpers.LayoutDescriptor;
+import mobi.inthepocket.customlayoutmanager.interfaces.BulkLayoutInfoLookup;
 import mobi.inthepocket.customlayoutmanager.interfaces.FeedItemClickListener;
 import mobi.inthepocket.customlayoutmanager.interfaces.LayoutInfoLookup;
+import mobi.inthepocket.customlayoutmanager.models.FeedItem;
 import mobi.inthepocket.customlayoutmanager.viewholders.BaseViewHolder;
 import mobi.inthepocket.customlayoutmanager.viewholders.PictureViewHolder;
 import mobi.inthepocket.customlayoutmanager.viewholders.TallTextViewHolder;
 import mobi.inthepocket.customlayoutmanager.viewholders.TextViewHolder;
 import mobi.inthepocket.customlayoutmanager.viewholders.WideViewHolder;
 
-import static mobi.inthepocket.customlayoutmanager.enums.SpanCount.ONE;
-import static mobi.inthepocket.customlayoutmanager.enums.SpanCount.TWO;
-
 
 /**
  * Standard RecyclerView adapter with multiple View types.
  * Uses {@link LayoutInfoLookup} to supply the LayoutManager with the necessary info.
+ * The lookup also implements {@link BulkLayoutInfoLookup}, so the LayoutManager can retrieve all info for a range of items at once.
+ * <p>
+ * The View type and {@link LayoutDescriptor} of each item are calculated once, when the item is added to the adapter,
+ * and stored in arrays that are kept in sync with the items. Lookups never need to inspect the items themselves.
+ * <p>
+ * {@link #submitItems(List)} replaces the items with only the notifications for what changed,
+ * calculated with {@link DiffUtil} on a background thread.
  */
 public class BasicAdapter extends RecyclerView.Adapter
 {
@@ -34,44 +46,227 @@ public class BasicAdapter extends RecyclerView.Adapter
     private static final int VIEWTYPE_TEXT_TALL = 2;
     private static final int VIEWTYPE_WIDE = 3;
 
-    private ArrayList<String> items;
+    // Calculates the differences between item lists for all adapters that do not supply their own executor.
+    private static Executor defaultDiffExecutor;
+
+    private final ArrayList<FeedItem> items = new ArrayList<>();
+    // View type and packed layout info for each item, at the same index as the item.
+    private int[] viewTypes = new int[0];
+    private int[] descriptors = new int[0];
+
     private LayoutInflater layoutInflater;
 
     private FeedItemClickListener listener;
 
+    // Background executor for DiffUtil and the handler to apply its results on the main thread.
+    private final Executor diffExecutor;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // Incremented for every new list, so results of lists that were replaced in the meantime are discarded.
+    private int submitGeneration;
+    // Incremented for every change to the items, so results calculated against an older list are calculated again.
+    private int listVersion;
+
     public BasicAdapter(Context context, FeedItemClickListener listener)
+    {
+        this(context, listener, getDefaultDiffExecutor());
+    }
+
+    /**
+     * @param diffExecutor Executor on which {@link #submitItems(List)} calculates the differences between the old and new items.
+     */
+    public BasicAdapter(Context context, FeedItemClickListener listener, Executor diffExecutor)
     {
         layoutInflater = LayoutInflater.from(context);
         this.listener = listener;
+        this.diffExecutor = diffExecutor;
+
+        // Lets the LayoutManager remember the measured height of self sized items.
+        setHasStableIds(true);
     }
 
-    public void setItems(ArrayList<String> items)
+    /**
+     * Replaces all items and notifies the RecyclerView that everything changed. Discards pending {@link #submitItems(List)} results.
+     */
+    public void setItems(List<FeedItem> items)
     {
-        this.items = items;
+        submitGeneration++;
+        listVersion++;
+
+        this.items.clear();
+        this.items.addAll(items);
+
+        viewTypes = new int[items.size()];
+        descriptors = new int[items.size()];
+        for (int i = 0; i < items.size(); i++)
+        {
+            updateItemInfo(i);
+        }
+
         notifyDataSetChanged();
     }
 
-    @Override
-    public int getItemViewType(int position)
+    /**
+     * Replaces all items. The differences with the current items are calculated on a background thread,
+     * after which the new items are set and only the inserted, removed, moved and changed items are notified, on the main thread.
+     * Items with the same id are the same item. Their contents changed when their type, gravity or title differs.
+     * <p>
+     * The result is discarded when newer items are submitted or set before it is applied.
+     *
+     * @param newItems The new items. The list is copied, later changes to it are not picked up.
+     */
+    public void submitItems(final List<FeedItem> newItems)
+    {
+        final int generation = ++submitGeneration;
+        final int version = listVersion;
+        final List<FeedItem> oldItems = new ArrayList<>(items);
+        final List<FeedItem> submittedItems = new ArrayList<>(newItems);
+
+        diffExecutor.execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                final DiffUtil.DiffResult result = DiffUtil.calculateDiff(new FeedItemDiffCallback(oldItems, submittedItems), true);
+
+                // The item info of the new list is calculated here as well, applying the result only swaps the arrays.
+                final int[] newViewTypes = new int[submittedItems.size()];
+                final int[] newDescriptors = new int[submittedItems.size()];
+                for (int i = 0; i < submittedItems.size(); i++)
+                {
+                    newViewTypes[i] = getViewType(submittedItems.get(i));
+                    newDescriptors[i] = getDescriptor(submittedItems.get(i), newViewTypes[i]);
+                }
+
+                mainHandler.post(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        applyDiff(generation, version, submittedItems, newViewTypes, newDescriptors, result);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Sets the items of a {@link #submitItems(List)} call and dispatches the differences, unless the items were replaced or changed since.
+     */
+    private void applyDiff(final int generation, final int version, final List<FeedItem> newItems, final int[] newViewTypes,
+                           final int[] newDescriptors, final DiffUtil.DiffResult result)
     {
-        if (items.get(position).contains("wide"))
+        if (generation != submitGeneration)
         {
-            return VIEWTYPE_WIDE;
+            // Newer items were submitted or set.
+            return;
         }
-        else if (items.get(position).contains("picture"))
+        if (version != listVersion)
         {
-            return VIEWTYPE_PICTURE;
+            // Items were added or removed while the differences were calculated. They no longer apply to the current items.
+            submitItems(newItems);
+            return;
         }
-        else if (items.get(position).contains("tall"))
+
+        listVersion++;
+        items.clear();
+        items.addAll(newItems);
+        viewTypes = newViewTypes;
+        descriptors = newDescriptors;
+
+        result.dispatchUpdatesTo(this);
+    }
+
+    /**
+     * Inserts a single item and notifies the RecyclerView.
+     */
+    public void addItem(int position, FeedItem item)
+    {
+        listVersion++;
+        items.add(position, item);
+
+        if (items.size() > viewTypes.length)
         {
-            return VIEWTYPE_TEXT_TALL;
+            final int capacity = Math.max(items.size(), viewTypes.length + (viewTypes.length >> 1));
+            viewTypes = Arrays.copyOf(viewTypes, capacity);
+            descriptors = Arrays.copyOf(descriptors, capacity);
         }
-        else
+        System.arraycopy(viewTypes, position, viewTypes, position + 1, items.size() - position - 1);
+        System.arraycopy(descriptors, position, descriptors, position + 1, items.size() - position - 1);
+        updateItemInfo(position);
+
+        notifyItemInserted(position);
+    }
+
+    /**
+     * Removes a single item and notifies the RecyclerView.
+     */
+    public void removeItem(int position)
+    {
+        listVersion++;
+        items.remove(position);
+
+        System.arraycopy(viewTypes, position + 1, viewTypes, position, items.size() - position);
+        System.arraycopy(descriptors, position + 1, descriptors, position, items.size() - position);
+
+        notifyItemRemoved(position);
+    }
+
+    /**
+     * Calculates the View type and layout info of the item at this position.
+     */
+    private void updateItemInfo(int position)
+    {
+        final FeedItem item = items.get(position);
+
+        viewTypes[position] = getViewType(item);
+        descriptors[position] = getDescriptor(item, viewTypes[position]);
+    }
+
+    private static int getViewType(FeedItem item)
+    {
+        switch (item.getType())
         {
-            return VIEWTYPE_TEXT;
+            case WIDE:
+                return VIEWTYPE_WIDE;
+            case PICTURE:
+                return VIEWTYPE_PICTURE;
+            case TEXT_TALL:
+                return VIEWTYPE_TEXT_TALL;
+            default:
+                return VIEWTYPE_TEXT;
         }
     }
 
+    private static int getDescriptor(FeedItem item, int viewType)
+    {
+        return LayoutDescriptor.pack(viewType == VIEWTYPE_TEXT_TALL ? 2 : 1,
+                viewType == VIEWTYPE_WIDE ? LayoutDescriptor.MAX_SPAN : 1,
+                item.getGravity().getColumn(),
+                viewType == VIEWTYPE_WIDE);
+    }
+
+    private static synchronized Executor getDefaultDiffExecutor()
+    {
+        if (defaultDiffExecutor == null)
+        {
+            defaultDiffExecutor = Executors.newSingleThreadExecutor();
+        }
+
+        return defaultDiffExecutor;
+    }
+
+    @Override
+    public long getItemId(int position)
+    {
+        return items.get(position).getId();
+    }
+
+    @Override
+    public int getItemViewType(int position)
+    {
+        return viewTypes[position];
+    }
+
     @Override
     public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType)
     {
@@ -106,14 +301,15 @@ public class BasicAdapter extends RecyclerView.Adapter
     {
         if (holder instanceof BaseViewHolder)
         {
-            ((BaseViewHolder) holder).bindData(items.get(position) + ": " + position);
+            // The id instead of the position: holders of items that only moved are not bound again after a diff.
+            ((BaseViewHolder) holder).bindData(items.get(position).getTitle() + ": " + items.get(position).getId());
         }
     }
 
     @Override
     public int getItemCount()
     {
-        return items == null ? 0 : items.size();
+        return items.size();
     }
 
     public LayoutInfoLookup getLayoutInfoLookup()
@@ -121,49 +317,80 @@ public class BasicAdapter extends RecyclerView.Adapter
         return layoutInfoLookup;
     }
 
-    private final LayoutInfoLookup layoutInfoLookup = new LayoutInfoLookup()
+    private final BulkLayoutInfoLookup layoutInfoLookup = new BulkLayoutInfoLookup()
     {
         @Override
-        public SpanCount getRowSpan(int position)
+        public void getLayoutDescriptors(int positionStart, int itemCount, int[] descriptors)
         {
-            switch (getItemViewType(position))
-            {
-                case VIEWTYPE_TEXT_TALL:
-                    return TWO;
-                default:
-                    return ONE;
-            }
+            System.arraycopy(BasicAdapter.this.descriptors, positionStart, descriptors, 0, itemCount);
         }
 
         @Override
-        public SpanCount getColumnSpan(int position)
+        public int getRowSpan(int position)
         {
-            switch (getItemViewType(position))
-            {
-                case VIEWTYPE_WIDE:
-                    return TWO;
-                default:
-                    return ONE;
-            }
+            return LayoutDescriptor.getRowSpan(descriptors[position]);
+        }
+
+        @Override
+        public int getColumnSpan(int position)
+        {
+            return LayoutDescriptor.getColumnSpan(descriptors[position]);
         }
 
         @Override
         public boolean useViewSize(int position)
         {
-            switch (getItemViewType(position))
-            {
-                case VIEWTYPE_WIDE:
-                    return true;
-                default:
-                    return false;
-            }
+            return LayoutDescriptor.useViewSize(descriptors[position]);
         }
 
         @Override
-        public LayoutGravity getGravity(int position)
+        public int getColumn(int position)
         {
-            return items.get(position).contains("right") ? LayoutGravity.RIGHT : LayoutGravity.LEFT;
+            return LayoutDescriptor.getColumn(descriptors[position]);
         }
     };
 
+    /**
+     * Compares two item lists by id, and the contents of items with the same id by the fields that are shown.
+     */
+    private static class FeedItemDiffCallback extends DiffUtil.Callback
+    {
+        private final List<FeedItem> oldItems;
+        private final List<FeedItem> newItems;
+
+        FeedItemDiffCallback(List<FeedItem> oldItems, List<FeedItem> newItems)
+        {
+            this.oldItems = oldItems;
+            this.newItems = newItems;
+        }
+
+        @Override
+        public int getOldListSize()
+        {
+            return oldItems.size();
+        }
+
+        @Override
+        public int getNewListSize()
+        {
+            return newItems.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition)
+        {
+            return oldItems.get(oldItemPosition).getId() == newItems.get(newItemPosition).getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition)
+        {
+            final FeedItem oldItem = oldItems.get(oldItemPosition);
+            final FeedItem newItem = newItems.get(newItemPosition);
+
+            return oldItem.getType() == newItem.getType()
+                    && oldItem.getGravity() == newItem.getGravity()
+                    && (oldItem.getTitle() == null ? newItem.getTitle() == null : oldItem.getTitle().equals(newItem.getTitle()));
+        }
+    }
 }
@@ -1,11 +1,26 @@
 package mobi.inthepocket.customlayoutmanager.enums;
 
 /**
- * Indicates which column an items should be placed into.
+ * Indicates which column of a two column feed an item should be placed into.
  * Wide items span both columns and ignore this value.
  */
 public enum LayoutGravity
 {
-    LEFT,
-    RIGHT
+    LEFT(0),
+    RIGHT(1);
+
+    private final int column;
+
+    LayoutGravity(final int column)
+    {
+        this.column = column;
+    }
+
+    /**
+     * @return The index of the column, as used by {@link mobi.inthepocket.customlayoutmanager.interfaces.LayoutInfoLookup#getColumn(int)}.
+     */
+    public int getColumn()
+    {
+        return column;
+    }
 }
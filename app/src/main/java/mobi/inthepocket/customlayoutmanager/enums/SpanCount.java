@@ -1,10 +0,0 @@
-package mobi.inthepocket.customlayoutmanager.enums;
-
-/**
- * Number of rows or columns to be occupied by an item in the RecyclerView.
- */
-public enum SpanCount
-{
-    ONE,
-    TWO
-}
@@ -0,0 +1,308 @@
+package mobi.inthepocket.customlayoutmanager.helpers;
+
+/**
+ * The placement rules of the AdLayoutManager, without any Views.
+ * <p>
+ * Keeps the top of the first and the bottom of the last tile in each column. A tile added below the content is placed below
+ * the lowest of the columns it spans, a tile added above the content is placed above the highest of them.
+ * Full width tiles span all columns. The caller applies the returned edges to its Views, or to anything else that has a size.
+ * <p>
+ * Tops and bottoms are along the scroll axis, which is horizontal when the feed scrolls horizontally.
+ * <p>
+ * Offsetting the content only moves a shared origin. The smallest and largest edges are kept up to date as edges change,
+ * and are only recalculated over all columns when the column that held one of them moved inwards.
+ */
+public class ColumnEdges
+{
+    private int columnCount;
+    // The edges are stored relative to the origin, so offsetting the content only moves the origin.
+    private int origin;
+    private final Edges tops = new Edges();
+    private final Edges bottoms = new Edges();
+    // Copies of the edges, for save() and restore().
+    private final Edges savedTops = new Edges();
+    private final Edges savedBottoms = new Edges();
+    private int savedOrigin;
+
+    /**
+     * Changes the number of columns. The edges of all columns are reset to 0.
+     */
+    public void setColumnCount(final int columnCount)
+    {
+        this.columnCount = columnCount;
+        origin = 0;
+        tops.setSize(columnCount);
+        bottoms.setSize(columnCount);
+        savedTops.setSize(columnCount);
+        savedBottoms.setSize(columnCount);
+    }
+
+    public int getColumnCount()
+    {
+        return columnCount;
+    }
+
+    /**
+     * Sets the top and bottom of every column to the same value, for example to start an empty layout.
+     */
+    public void set(final int value)
+    {
+        origin = 0;
+        tops.fill(0, columnCount, value);
+        bottoms.fill(0, columnCount, value);
+    }
+
+    /**
+     * Sets the top and bottom of the columns from start (inclusive) to end (exclusive) to the same value.
+     */
+    public void set(final int start, final int end, final int value)
+    {
+        tops.fill(start, end, value - origin);
+        bottoms.fill(start, end, value - origin);
+    }
+
+    /**
+     * Sets the top of the columns from start (inclusive) to end (exclusive), for example after the first tile in them was removed.
+     */
+    public void setTops(final int start, final int end, final int value)
+    {
+        tops.fill(start, end, value - origin);
+    }
+
+    /**
+     * Sets the bottom of the columns from start (inclusive) to end (exclusive), for example after the last tile in them was removed.
+     */
+    public void setBottoms(final int start, final int end, final int value)
+    {
+        bottoms.fill(start, end, value - origin);
+    }
+
+    public int getTop(final int column)
+    {
+        return tops.values[column] + origin;
+    }
+
+    public int getBottom(final int column)
+    {
+        return bottoms.values[column] + origin;
+    }
+
+    /**
+     * @return The smallest top of all columns.
+     */
+    public int getMinTop()
+    {
+        return tops.getMin() + origin;
+    }
+
+    /**
+     * @return The largest top of all columns. Scrolling towards the start shows a gap above this column first.
+     */
+    public int getMaxTop()
+    {
+        return tops.getMax() + origin;
+    }
+
+    /**
+     * @return The smallest bottom of all columns. Scrolling towards the end shows a gap below this column first.
+     */
+    public int getMinBottom()
+    {
+        return bottoms.getMin() + origin;
+    }
+
+    /**
+     * @return The largest bottom of all columns.
+     */
+    public int getMaxBottom()
+    {
+        return bottoms.getMax() + origin;
+    }
+
+    /**
+     * Places a tile below the columns from start (inclusive) to end (exclusive). Their bottoms move to the bottom of the tile.
+     *
+     * @param size The size of the tile along the scroll axis.
+     * @return The top of the tile.
+     */
+    public int placeBelow(final int start, final int end, final int size)
+    {
+        final int top = bottoms.max(start, end);
+        bottoms.fill(start, end, top + size);
+
+        return top + origin;
+    }
+
+    /**
+     * Places a tile above the columns from start (inclusive) to end (exclusive). Their tops move to the top of the tile.
+     *
+     * @param size The size of the tile along the scroll axis.
+     * @return The top of the tile.
+     */
+    public int placeAbove(final int start, final int end, final int size)
+    {
+        final int top = tops.min(start, end) - size;
+        tops.fill(start, end, top);
+
+        return top + origin;
+    }
+
+    /**
+     * Moves all edges, for example because the content scrolled.
+     */
+    public void offset(final int offset)
+    {
+        origin += offset;
+    }
+
+    /**
+     * Remembers the current edges, so tiles that should not count as part of the layout can be placed and forgotten.
+     */
+    public void save()
+    {
+        savedTops.copyFrom(tops);
+        savedBottoms.copyFrom(bottoms);
+        savedOrigin = origin;
+    }
+
+    /**
+     * Restores the edges from the last call to {@link #save()}.
+     */
+    public void restore()
+    {
+        tops.copyFrom(savedTops);
+        bottoms.copyFrom(savedBottoms);
+        origin = savedOrigin;
+    }
+
+    /**
+     * The tops or the bottoms of all columns, with their smallest and largest value.
+     */
+    private static class Edges
+    {
+        private int[] values = new int[0];
+        private int min;
+        private int max;
+        // Cleared when the column that held the smallest or largest value moved inwards, the value is then recalculated when it is needed.
+        private boolean minValid;
+        private boolean maxValid;
+
+        void setSize(final int size)
+        {
+            values = new int[size];
+            minValid = false;
+            maxValid = false;
+        }
+
+        /**
+         * Sets the values from start (inclusive) to end (exclusive).
+         */
+        void fill(final int start, final int end, final int value)
+        {
+            if (start >= end)
+            {
+                return;
+            }
+
+            int rangeMin = values[start];
+            int rangeMax = values[start];
+            for (int i = start; i < end; i++)
+            {
+                rangeMin = Math.min(rangeMin, values[i]);
+                rangeMax = Math.max(rangeMax, values[i]);
+                values[i] = value;
+            }
+
+            if (start == 0 && end == values.length)
+            {
+                min = value;
+                max = value;
+                minValid = true;
+                maxValid = true;
+                return;
+            }
+
+            if (minValid)
+            {
+                if (value <= min)
+                {
+                    min = value;
+                }
+                else if (rangeMin == min)
+                {
+                    minValid = false;
+                }
+            }
+            if (maxValid)
+            {
+                if (value >= max)
+                {
+                    max = value;
+                }
+                else if (rangeMax == max)
+                {
+                    maxValid = false;
+                }
+            }
+        }
+
+        int getMin()
+        {
+            if (!minValid)
+            {
+                min = min(0, values.length);
+                minValid = true;
+            }
+
+            return min;
+        }
+
+        int getMax()
+        {
+            if (!maxValid)
+            {
+                max = max(0, values.length);
+                maxValid = true;
+            }
+
+            return max;
+        }
+
+        /**
+         * @return The largest of the values from start (inclusive) to end (exclusive).
+         */
+        int max(final int start, final int end)
+        {
+            int max = values[start];
+            for (int i = start + 1; i < end; i++)
+            {
+                max = Math.max(max, values[i]);
+            }
+
+            return max;
+        }
+
+        /**
+         * @return The smallest of the values from start (inclusive) to end (exclusive).
+         */
+        int min(final int start, final int end)
+        {
+            int min = values[start];
+            for (int i = start + 1; i < end; i++)
+            {
+                min = Math.min(min, values[i]);
+            }
+
+            return min;
+        }
+
+        void copyFrom(final Edges other)
+        {
+            System.arraycopy(other.values, 0, values, 0, values.length);
+            min = other.min;
+            max = other.max;
+            minValid = other.minValid;
+            maxValid = other.maxValid;
+        }
+    }
+}
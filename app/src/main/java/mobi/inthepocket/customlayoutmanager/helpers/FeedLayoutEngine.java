@@ -0,0 +1,979 @@
+package mobi.inthepocket.customlayoutmanager.helpers;
+
+import mobi.inthepocket.customlayoutmanager.interfaces.LayoutInfoLookup;
+import mobi.inthepocket.customlayoutmanager.interfaces.TileContainer;
+
+/**
+ * The layout steps of the AdLayoutManager: filling the screen, scrolling, jumping to an offset, laying out again from the
+ * first changed group and recycling at the edges.
+ * <p>
+ * Tiles are only reached through a {@link TileContainer}, so the same steps run with Views in the AdLayoutManager and
+ * without them on the JVM, for example in the benchmarks. The attached tiles are the items from {@link #getFirstPosition()} onward,
+ * in position order. Adapter changes are reported to this class, which keeps the {@link LayoutDescriptorCache}, {@link GroupTable}
+ * and {@link LayoutIndex} up to date.
+ * <p>
+ * All geometry is described for the vertical orientation: tops and bottoms are along the scroll axis, widths along the other axis.
+ */
+public class FeedLayoutEngine
+{
+    public static final int NO_POSITION = -1;
+    public static final int NO_SIZE = -1;
+
+    // Fixed ratios to determine the tile heights based on the screen or column width. A row is as high as a column is wide.
+    private static final float RATIO_WIDE = 1.31f;
+    private static final float RATIO_STANDARD = 1f;
+
+    private final TileContainer container;
+
+    // Packed layout info for each item, so laying out an item does not need several LayoutInfoLookup calls.
+    private final LayoutDescriptorCache layoutDescriptors;
+    // Group start of each item. Layout passes always start at a group start, so all columns can start from the same value.
+    private final GroupTable groupTable = new GroupTable();
+    // Absolute geometry of all items, used to answer position and offset questions without walking the attached tiles.
+    private final LayoutIndex layoutIndex = new LayoutIndex();
+    // Set when the adapter content changed and the index has to be updated before its next use.
+    private boolean layoutIndexDirty = true;
+    // The width the index was built for. Tile heights depend on it.
+    private int layoutIndexCrossSize;
+    // First position that changed since the last layout pass, or NO_POSITION. Tiles above its group do not have to be laid out again.
+    private int firstChangedPosition;
+
+    private int columnCount;
+    // Top of the first and bottom of the last tile in each column.
+    // New tiles added when scrolling up are placed above the first tile, new tiles added when scrolling down below the last tile.
+    private final ColumnEdges columnEdges = new ColumnEdges();
+
+    // Position of the first attached tile.
+    private int firstPosition;
+
+    // Set to anchor the layout on the end of the content instead of on its start.
+    private boolean stackFromEnd;
+    // Set when the end of the content was visible after the last layout or scroll. Items added then keep the end anchored.
+    private boolean atEnd;
+
+    // Distance beyond the end of the screen that is filled after a layout pass.
+    private int extraLayoutSpace;
+
+    // Set during the pre-layout pass of a predictive animation, in which positions are the ones from before the adapter changes.
+    private boolean preLayout;
+
+    /**
+     * @param layoutInfoLookup The layout info of the items.
+     * @param container        The tiles to lay out.
+     * @param columnCount      The number of columns to divide the items over.
+     */
+    public FeedLayoutEngine(final LayoutInfoLookup layoutInfoLookup, final TileContainer container, final int columnCount)
+    {
+        this.container = container;
+        layoutDescriptors = new LayoutDescriptorCache(layoutInfoLookup);
+        setColumnCount(columnCount);
+    }
+
+    /**
+     * Changes the number of columns. Every tile is laid out again in the next layout pass.
+     */
+    public void setColumnCount(final int columnCount)
+    {
+        this.columnCount = columnCount;
+        columnEdges.setColumnCount(columnCount);
+        groupTable.setColumnCount(columnCount);
+        invalidate();
+    }
+
+    public int getColumnCount()
+    {
+        return columnCount;
+    }
+
+    /**
+     * Anchors the layout on the end of the content. See the AdLayoutManager for details.
+     */
+    public void setStackFromEnd(final boolean stackFromEnd)
+    {
+        this.stackFromEnd = stackFromEnd;
+        atEnd = stackFromEnd;
+    }
+
+    /**
+     * @return true if the end of the content was visible after the last layout or scroll, when stacking from the end.
+     */
+    public boolean isAtEnd()
+    {
+        return atEnd;
+    }
+
+    /**
+     * @param pixels Distance beyond the end of the screen that is filled after a layout pass.
+     */
+    public void setExtraLayoutSpace(final int pixels)
+    {
+        extraLayoutSpace = pixels;
+    }
+
+    public int getExtraLayoutSpace()
+    {
+        return extraLayoutSpace;
+    }
+
+    /**
+     * Marks the start of the pre-layout pass of a predictive animation, or its end.
+     * During the pre-layout pass positions are the ones from before the pending adapter changes.
+     */
+    public void setPreLayout(final boolean preLayout)
+    {
+        this.preLayout = preLayout;
+    }
+
+    public boolean isPreLayout()
+    {
+        return preLayout;
+    }
+
+    public int getFirstPosition()
+    {
+        return firstPosition;
+    }
+
+    public ColumnEdges getColumnEdges()
+    {
+        return columnEdges;
+    }
+
+    /**
+     * @return The index, as it was last updated with {@link #updateLayoutIndex(int)}.
+     */
+    public LayoutIndex getLayoutIndex()
+    {
+        return layoutIndex;
+    }
+
+    /**
+     * @return true if the {@link LayoutIndex} describes the current items at the current width.
+     */
+    public boolean isLayoutIndexValid()
+    {
+        return !layoutIndexDirty && layoutIndexCrossSize == container.getCrossAxisSize();
+    }
+
+    /**
+     * Updates the {@link LayoutIndex} if the items or the width of the container changed since it was last updated.
+     * Only the groups around changed items are recalculated, a different width rebuilds the entire index.
+     *
+     * @param itemCount The current number of items in the adapter.
+     */
+    public void updateLayoutIndex(final int itemCount)
+    {
+        layoutDescriptors.setItemCount(itemCount);
+        groupTable.update(layoutDescriptors, itemCount);
+
+        final int crossSize = container.getCrossAxisSize();
+        if (!layoutIndexDirty && layoutIndexCrossSize == crossSize && layoutIndex.getItemCount() == itemCount)
+        {
+            return;
+        }
+
+        // Tile heights depend on the width, every tile has to be laid out again when it changed.
+        if (layoutIndexCrossSize != crossSize)
+        {
+            markChanged(0);
+        }
+
+        // Self sized tiles get the height of a fixed size wide tile until they are measured.
+        layoutIndex.update(layoutDescriptors, groupTable, itemCount, columnCount, getWideTileHeight(crossSize), getRowHeight(crossSize, columnCount));
+        applyMeasuredSizes(layoutIndex.getUpdatedStart(), layoutIndex.getUpdatedEnd());
+        layoutIndexCrossSize = crossSize;
+        layoutIndexDirty = false;
+    }
+
+    /**
+     * Replaces the estimated height of self sized items in the {@link LayoutIndex} with the size they were last measured at.
+     *
+     * @param start The first position that was recalculated by the index.
+     * @param end   The position after the last one that was recalculated by the index.
+     */
+    private void applyMeasuredSizes(final int start, final int end)
+    {
+        for (int position = start; position < end; position++)
+        {
+            if (layoutIndex.getColumnSpan(position) == columnCount && LayoutDescriptor.useViewSize(layoutDescriptors.get(position)))
+            {
+                final int size = container.getMeasuredSize(position);
+                if (size != NO_SIZE)
+                {
+                    layoutIndex.setFullWidthHeight(position, size);
+                }
+            }
+        }
+    }
+
+    /**
+     * Forgets everything that was loaded for the items, for example after the entire data set changed.
+     */
+    public void clear()
+    {
+        layoutDescriptors.clear();
+        groupTable.clear();
+        invalidate();
+    }
+
+    /**
+     * Lays out every tile again in the next layout pass, for example after the tile sizes changed.
+     */
+    public void invalidate()
+    {
+        layoutIndex.clear();
+        layoutIndexDirty = true;
+        markChanged(0);
+    }
+
+    public void onItemsUpdated(final int positionStart, final int itemCount)
+    {
+        layoutDescriptors.onItemsUpdated(positionStart, itemCount);
+        groupTable.onItemsUpdated(positionStart, itemCount);
+        layoutIndex.onItemsUpdated(positionStart, itemCount);
+        layoutIndexDirty = true;
+        markChanged(positionStart);
+    }
+
+    public void onItemsMoved(final int from, final int to, final int itemCount)
+    {
+        layoutDescriptors.onItemsMoved(from, to, itemCount);
+        groupTable.onItemsMoved(from, to, itemCount);
+        layoutIndex.onItemsMoved(from, to, itemCount);
+        layoutIndexDirty = true;
+        markChanged(Math.min(from, to));
+    }
+
+    public void onItemsAdded(final int positionStart, final int itemCount)
+    {
+        layoutDescriptors.onItemsAdded(positionStart, itemCount);
+        groupTable.onItemsAdded(positionStart, itemCount);
+        layoutIndex.onItemsAdded(positionStart, itemCount);
+        layoutIndexDirty = true;
+        markChanged(positionStart);
+
+        if (positionStart < firstPosition)
+        {
+            firstPosition += itemCount;
+        }
+    }
+
+    public void onItemsRemoved(final int positionStart, final int itemCount)
+    {
+        layoutDescriptors.onItemsRemoved(positionStart, itemCount);
+        groupTable.onItemsRemoved(positionStart, itemCount);
+        layoutIndex.onItemsRemoved(positionStart, itemCount);
+        layoutIndexDirty = true;
+        markChanged(positionStart);
+
+        if (positionStart < firstPosition)
+        {
+            // When the first item itself was removed, the item that takes its place becomes the first one.
+            firstPosition = Math.max(positionStart, firstPosition - itemCount);
+        }
+    }
+
+    /**
+     * The layout pass. Tiles above the group of the first change are kept, the rest is laid out again.
+     * The kept tiles stay in place, unless the end of the content is anchored: then they move up by the height added below them.
+     * <p>
+     * Positions shift when items are added or removed, so the layout is anchored on the group of the first tile that remains.
+     * In the pre-layout pass the tiles are laid out as they are currently attached, using their old positions.
+     *
+     * @param itemCount The number of items in this pass.
+     */
+    public void layout(final int itemCount)
+    {
+        // The descriptor cache and index always describe the items after the pending changes, the pre-layout pass uses them as they are.
+        if (!preLayout)
+        {
+            updateLayoutIndex(itemCount);
+        }
+
+        int keptTileCount = getUnaffectedTileCount();
+        final int tileCount = container.getTileCount();
+
+        // When the end of the content is anchored, the kept tiles move up by the height that was added below them.
+        int anchoredOffset = 0;
+        if (stackFromEnd && atEnd && keptTileCount > 0 && !preLayout)
+        {
+            anchoredOffset = getScrollOffset() - getClampedScrollOffset(layoutIndex.getTotalHeight());
+            if (anchoredOffset > 0)
+            {
+                // The content became shorter, so tiles above the kept ones come into view. Lay out everything.
+                keptTileCount = 0;
+            }
+        }
+
+        if (stackFromEnd && (tileCount == 0 || atEnd) && itemCount > 0 && !preLayout && keptTileCount == 0)
+        {
+            // Keep the end of the content at the bottom of the screen, items added at the end push the content up.
+            // Tiles that stay on screen are picked up from the scrap again.
+            anchorAtOffset(getClampedScrollOffset(layoutIndex.getTotalHeight()));
+        }
+        else if (tileCount == 0)
+        {
+            // Clean initial layout. Use the default start values.
+            if (firstPosition < groupTable.getItemCount())
+            {
+                firstPosition = groupTable.getGroupStart(firstPosition);
+            }
+            columnEdges.set(container.getStartAfterPadding());
+        }
+        else if (keptTileCount > 0)
+        {
+            // Only the changed groups are laid out again, starting level below the kept tiles. The column tops do not change.
+            if (anchoredOffset != 0)
+            {
+                offsetTiles(anchoredOffset);
+            }
+            int bottom = Integer.MIN_VALUE;
+            for (int i = 0; i < keptTileCount; i++)
+            {
+                bottom = Math.max(bottom, container.getTileBottom(i));
+            }
+            columnEdges.setBottoms(0, columnCount, bottom);
+        }
+        else if (preLayout)
+        {
+            firstPosition = container.getTilePosition(0);
+            setColumnEdgesFromTiles();
+        }
+        else
+        {
+            final int anchorIndex = getFirstLayoutTile();
+            if (anchorIndex != NO_POSITION)
+            {
+                anchorOnGroup(container.getTilePosition(anchorIndex), container.getTileTop(anchorIndex));
+            }
+            else
+            {
+                // All attached tiles are being removed, start the group that took their place at the same top.
+                if (firstPosition < groupTable.getItemCount())
+                {
+                    firstPosition = groupTable.getGroupStart(firstPosition);
+                }
+                columnEdges.set(container.getTileTop(0));
+            }
+        }
+
+        container.scrapTiles(keptTileCount);
+        fillDown(itemCount);
+
+        if (!preLayout)
+        {
+            // Anchoring on a group or an offset can add items of the group that end above the screen.
+            recycleTilesAboveTop();
+            updateAtEnd(itemCount);
+            firstChangedPosition = NO_POSITION;
+        }
+    }
+
+    /**
+     * Lays out one screen of tiles with an item at an offset from the start, as requested by scrollToPositionWithOffset.
+     * The attached tiles are scrapped, the ones that are still needed at the new offset are reused.
+     *
+     * @param itemCount The number of items in the adapter.
+     * @param position  The position of the item.
+     * @param offset    The distance between the start of the container (after padding) and the top of the item.
+     */
+    public void layoutAtPosition(final int itemCount, final int position, final int offset)
+    {
+        updateLayoutIndex(itemCount);
+
+        container.scrapTiles(0);
+        layoutAtOffset(itemCount, getClampedScrollOffset(layoutIndex.getTop(Math.min(position, itemCount - 1)) - offset));
+        updateAtEnd(itemCount);
+        firstChangedPosition = NO_POSITION;
+    }
+
+    /**
+     * Lays out tiles of items that are about to animate off screen, beyond the edges of the attached tiles.
+     * The column edges are restored afterwards, these tiles do not count as part of the layout.
+     *
+     * @param positions Sorted positions of items before or after the attached tiles.
+     * @param count     The number of positions.
+     */
+    public void layoutDisappearingTiles(final int[] positions, final int count)
+    {
+        final int lastPosition = firstPosition + container.getTileCount() - 1;
+
+        columnEdges.save();
+
+        // Tiles that moved below the screen continue from the bottom of the columns.
+        for (int i = 0; i < count; i++)
+        {
+            if (positions[i] > lastPosition)
+            {
+                addTile(positions[i], true);
+            }
+        }
+
+        // Tiles that moved above the screen continue from the top of the columns, closest one first.
+        for (int i = count - 1; i >= 0; i--)
+        {
+            if (positions[i] < firstPosition)
+            {
+                addTile(positions[i], false);
+            }
+        }
+
+        columnEdges.restore();
+    }
+
+    /**
+     * Finds the attached tiles that are not affected by the changes since the last layout pass.
+     * Items are placed using only the items before them, so the tiles above the group of the first changed item keep their place.
+     * A tile whose content asked to be laid out again counts as a change as well.
+     *
+     * @return The number of tiles at the start that can stay attached as they are, 0 if all tiles have to be laid out again.
+     */
+    private int getUnaffectedTileCount()
+    {
+        int firstAffectedPosition = firstChangedPosition;
+
+        final int tileCount = container.getTileCount();
+        for (int i = 0; i < tileCount; i++)
+        {
+            final int position = container.getTilePosition(i);
+            if (firstAffectedPosition != NO_POSITION && position >= firstAffectedPosition)
+            {
+                break;
+            }
+            // Disappearing tiles of a previous animation are not in position order.
+            if (position != firstPosition + i || container.isTileRemoved(i))
+            {
+                return 0;
+            }
+            if (container.isTileChanged(i))
+            {
+                firstAffectedPosition = position;
+                break;
+            }
+        }
+
+        // Without any changes the layout pass was requested for another reason, such as a new size. Lay out everything.
+        if (firstAffectedPosition == NO_POSITION)
+        {
+            return 0;
+        }
+
+        final int groupStart = firstAffectedPosition < groupTable.getItemCount() ? groupTable.getGroupStart(firstAffectedPosition) : firstAffectedPosition;
+
+        return Math.max(0, Math.min(groupStart - firstPosition, tileCount));
+    }
+
+    /**
+     * Remembers the first position whose item changed since the last layout pass.
+     */
+    private void markChanged(final int position)
+    {
+        firstChangedPosition = firstChangedPosition == NO_POSITION ? position : Math.min(firstChangedPosition, position);
+    }
+
+    /**
+     * Only the first tiles can be items that are being removed. In the real layout pass removed items no longer have a valid position,
+     * so the first tile that is not being removed is used.
+     *
+     * @return The index of the first tile that keeps its place in the layout, or {@link #NO_POSITION} if all tiles are being removed.
+     */
+    private int getFirstLayoutTile()
+    {
+        final int tileCount = container.getTileCount();
+        for (int i = 0; i < tileCount; i++)
+        {
+            if (!container.isTileRemoved(i))
+            {
+                return i;
+            }
+        }
+
+        return NO_POSITION;
+    }
+
+    /**
+     * Starts the layout at the group of the anchor, while keeping the anchor at its current top.
+     * Items of the group that are above the screen are not added again, only the column edges are moved below them.
+     *
+     * @param anchorPosition The position of the first tile that is not being removed.
+     * @param anchorTop      The top of that tile.
+     */
+    private void anchorOnGroup(final int anchorPosition, final int anchorTop)
+    {
+        final int group = layoutIndex.getGroup(anchorPosition);
+        final int groupTop = layoutIndex.getGroupTop(group);
+        final int screenGroupTop = anchorTop - (layoutIndex.getTop(anchorPosition) - groupTop);
+
+        columnEdges.set(screenGroupTop);
+
+        int position = groupTable.getGroupStart(anchorPosition);
+        for (; position < anchorPosition; position++)
+        {
+            final int bottom = screenGroupTop + layoutIndex.getBottom(position) - groupTop;
+            if (bottom >= 0)
+            {
+                // Visible, for example an item inserted next to the anchor. Lay out from here.
+                break;
+            }
+
+            final int column = layoutIndex.getColumn(position);
+            columnEdges.set(column, column + layoutIndex.getColumnSpan(position), bottom);
+        }
+
+        firstPosition = position;
+    }
+
+    /**
+     * Sets the column edges to the top of the highest attached tile in each column.
+     */
+    private void setColumnEdgesFromTiles()
+    {
+        columnEdges.set(Integer.MAX_VALUE);
+        int highestTop = Integer.MAX_VALUE;
+
+        final int tileCount = container.getTileCount();
+        for (int i = 0; i < tileCount; i++)
+        {
+            final int top = container.getTileTop(i);
+            final int columnEnd = container.getTileColumn(i) + container.getTileColumnSpan(i);
+            for (int column = container.getTileColumn(i); column < columnEnd; column++)
+            {
+                if (top < columnEdges.getTop(column))
+                {
+                    columnEdges.set(column, column + 1, top);
+                }
+            }
+            highestTop = Math.min(highestTop, top);
+        }
+
+        // A column without tiles starts level with the highest tile.
+        for (int column = 0; column < columnCount; column++)
+        {
+            if (columnEdges.getTop(column) == Integer.MAX_VALUE)
+            {
+                columnEdges.set(column, column + 1, highestTop);
+            }
+        }
+    }
+
+    /**
+     * Keeps adding tiles below the attached ones until we run out of items or until the visible area has been filled.
+     * <p>
+     * In the pre-layout pass, tiles of removed items do not count towards filling the visible area.
+     * This lays out the tiles that will move into the space they leave behind, so they can animate into it.
+     *
+     * @param itemCount The number of items in this pass.
+     */
+    private void fillDown(final int itemCount)
+    {
+        int parentBottom = container.getEndAfterPadding() + extraLayoutSpace;
+
+        for (int position = firstPosition + container.getTileCount(); position < itemCount && columnEdges.getMinBottom() < parentBottom; position++)
+        {
+            addTile(position, true);
+
+            final int added = container.getTileCount() - 1;
+            if (preLayout && container.isTileRemoved(added))
+            {
+                parentBottom += container.getTileBottom(added) - container.getTileTop(added);
+            }
+        }
+    }
+
+    /**
+     * Scrolls the attached tiles after checking the distance they can be moved.
+     * Empty space created by this scroll is filled with new tiles, tiles that scrolled out of view are recycled.
+     *
+     * @param itemCount The number of items in the adapter.
+     * @param dy        The distance to scroll, positive to scroll towards the end.
+     * @return The distance the tiles were actually moved, smaller than dy at the edges of the content.
+     */
+    public int scrollBy(final int itemCount, final int dy)
+    {
+        if (container.getTileCount() == 0)
+        {
+            return 0;
+        }
+
+        updateLayoutIndex(itemCount);
+
+        // Scrolling further than a screen (e.g. dragging a fast scroll thumb) would create every tile in between.
+        // Jump to the new offset instead, so only the tiles for the destination are laid out.
+        if (Math.abs(dy) > getScrollSpace())
+        {
+            return jumpBy(itemCount, dy);
+        }
+
+        int scrolled = 0;
+
+        if (dy < 0)
+        {
+            while (scrolled > dy)
+            {
+                // Scrolling up
+
+                // Compare the top tiles in each column. Use the one that is going to cause gaps first.
+                final int top = columnEdges.getMaxTop();
+                // Check distance between top of first tile and top of screen
+                final int hangingTop = Math.max(-top, 0);
+                // Calculate how far we will actually scroll
+                // We will either scroll the full input distance or just enough to not display an empty gap
+                // In the second scenario we will scroll part of the way, add a new tile, and scroll the rest of the dy in the next loop pass
+                final int scrollBy = Math.min(scrolled - dy, hangingTop);
+                // Determine how much distance we still have to scroll after completing this current loop
+                scrolled -= scrollBy;
+                // Scroll all tiles up
+                offsetTiles(scrollBy);
+
+                // We've scrolled beyond the attached tiles, add the next one(s)
+                if (firstPosition > 0 && scrolled > dy)
+                {
+                    // We're adding one new tile above the content which means the firstPosition gets decremented by one.
+                    firstPosition--;
+
+                    addTile(firstPosition, false);
+                }
+                else
+                {
+                    break;
+                }
+            }
+        }
+        else if (dy > 0)
+        {
+            // Scrolling down
+
+            final int parentHeight = container.getScrollAxisSize();
+            while (scrolled < dy)
+            {
+                // Compare the bottom tiles in each column. Use the one that is going to cause gaps first.
+                final int bottom = columnEdges.getMinBottom();
+                // Check distance between bottom of last tile and bottom of screen
+                final int hangingBottom = Math.max(bottom - parentHeight, 0);
+                // Calculate how far we will actually scroll, as above
+                final int scrollBy = -Math.min(dy - scrolled, hangingBottom);
+                // Determine how much distance we still have to scroll after completing this current loop
+                scrolled -= scrollBy;
+
+                // Scroll all tiles down
+                offsetTiles(scrollBy);
+
+                if (scrolled < dy && itemCount > firstPosition + container.getTileCount())
+                {
+                    // No firstPosition changes are done here. Adding a tile at the bottom does not mean one went offscreen at the top.
+                    // Incrementing of firstPosition is done in the recycleTilesAboveTop method.
+                    addTile(firstPosition + container.getTileCount(), true);
+                }
+                else
+                {
+                    break;
+                }
+            }
+        }
+
+        // Scroll handled. Tiles can only have moved off screen at the edge we scrolled away from,
+        // so that is the only edge that needs to be checked.
+        if (scrolled > 0)
+        {
+            recycleTilesAboveTop();
+        }
+        else if (scrolled < 0)
+        {
+            recycleTilesBelowBottom();
+        }
+        updateAtEnd(itemCount);
+
+        return scrolled;
+    }
+
+    /**
+     * Lays out tiles beyond the edge of the screen in the scroll direction, so they already exist when they scroll into view.
+     *
+     * @param itemCount     The number of items in the adapter.
+     * @param scrollingDown Whether the content was scrolled down (true) or up (false).
+     * @param extra         The distance beyond the edge to fill.
+     */
+    public void fillAhead(final int itemCount, final boolean scrollingDown, final int extra)
+    {
+        if (extra == 0)
+        {
+            return;
+        }
+
+        if (scrollingDown)
+        {
+            final int limit = container.getScrollAxisSize() + extra;
+            while (firstPosition + container.getTileCount() < itemCount && columnEdges.getMinBottom() < limit)
+            {
+                addTile(firstPosition + container.getTileCount(), true);
+            }
+        }
+        else
+        {
+            final int limit = -extra;
+            while (firstPosition > 0 && columnEdges.getMaxTop() > limit)
+            {
+                firstPosition--;
+                addTile(firstPosition, false);
+            }
+        }
+        updateAtEnd(itemCount);
+    }
+
+    /**
+     * Jumps to an offset from the start of the content, laying out a single screen of tiles there.
+     *
+     * @param itemCount The number of items in the adapter.
+     * @param offset    The offset from the start of the content that should be at the start of the container.
+     * @return The distance that was jumped.
+     */
+    public int scrollToOffset(final int itemCount, final int offset)
+    {
+        updateLayoutIndex(itemCount);
+
+        return jumpBy(itemCount, offset - getScrollOffset());
+    }
+
+    /**
+     * Replaces all tiles with the ones found at a new scroll offset. The new offset is looked up in the {@link LayoutIndex},
+     * so the cost does not depend on the distance.
+     *
+     * @param itemCount The number of items in the adapter.
+     * @param dy        The distance to scroll.
+     * @return The distance that was actually scrolled.
+     */
+    private int jumpBy(final int itemCount, final int dy)
+    {
+        if (layoutIndex.getTotalHeight() <= getScrollSpace())
+        {
+            // Everything fits on screen, there is nothing to jump to.
+            return 0;
+        }
+
+        final int currentOffset = getScrollOffset();
+        final int targetOffset = getClampedScrollOffset(currentOffset + dy);
+
+        // Tiles that are still needed at the new offset will be picked up from the scrap again.
+        container.scrapTiles(0);
+        layoutAtOffset(itemCount, targetOffset);
+
+        recycleTilesBelowBottom();
+        updateAtEnd(itemCount);
+
+        return targetOffset - currentOffset;
+    }
+
+    /**
+     * Lays out one screen of tiles, starting at an offset from the top of the content.
+     * The layout starts at the top of the group at that offset, so all columns can start from the same value.
+     * Attached tiles should be scrapped before calling this, so the ones that are still needed can be reused.
+     */
+    private void layoutAtOffset(final int itemCount, final int contentOffset)
+    {
+        if (!anchorAtOffset(contentOffset))
+        {
+            return;
+        }
+
+        fillDown(itemCount);
+
+        // Items of the group that end above the screen are not needed.
+        recycleTilesAboveTop();
+    }
+
+    /**
+     * Sets the first position and the column edges to the start of the group at an offset from the top of the content.
+     *
+     * @param contentOffset The offset from the top of the content that should be at the top of the container.
+     * @return false if there are no items.
+     */
+    private boolean anchorAtOffset(final int contentOffset)
+    {
+        final int group = layoutIndex.findGroupAtOffset(contentOffset);
+        if (group == LayoutIndex.NO_POSITION)
+        {
+            return false;
+        }
+
+        firstPosition = layoutIndex.getGroupStart(group);
+        columnEdges.set(container.getStartAfterPadding() + layoutIndex.getGroupTop(group) - contentOffset);
+
+        return true;
+    }
+
+    /**
+     * Remembers whether the end of the content is visible, so the next layout knows whether to keep it anchored.
+     * Only needed when stacking from the end.
+     */
+    private void updateAtEnd(final int itemCount)
+    {
+        atEnd = stackFromEnd && firstPosition + container.getTileCount() >= itemCount && columnEdges.getMaxBottom() <= container.getEndAfterPadding();
+    }
+
+    /**
+     * @return The offset from the top of the content to the top of the container, based on the first attached tile.
+     * Expects an up to date {@link LayoutIndex}.
+     */
+    public int getScrollOffset()
+    {
+        if (container.getTileCount() == 0)
+        {
+            return 0;
+        }
+
+        final int position = container.getTilePosition(0);
+        if (position >= layoutIndex.getItemCount())
+        {
+            return 0;
+        }
+
+        return Math.max(0, layoutIndex.getTop(position) - (container.getTileTop(0) - container.getStartAfterPadding()));
+    }
+
+    /**
+     * @param contentOffset An offset from the top of the content.
+     * @return The offset, limited so the content is never scrolled beyond its top or bottom.
+     * When stacking from the end, content that does not fill the screen gets a negative offset that places it against the bottom.
+     */
+    public int getClampedScrollOffset(final int contentOffset)
+    {
+        final int maxOffset = layoutIndex.getTotalHeight() - getScrollSpace();
+        final int minOffset = stackFromEnd ? Math.min(0, maxOffset) : 0;
+
+        return Math.max(minOffset, Math.min(contentOffset, Math.max(minOffset, maxOffset)));
+    }
+
+    /**
+     * @return The height available for tiles.
+     */
+    public int getScrollSpace()
+    {
+        return container.getEndAfterPadding() - container.getStartAfterPadding();
+    }
+
+    /**
+     * Adds the tile of a position below or above the attached tiles.
+     *
+     * @param position The position of the item.
+     * @param atEnd    Whether the tile is added below (true) or above (false) the attached tiles.
+     */
+    private void addTile(final int position, final boolean atEnd)
+    {
+        // The cache uses the positions after the pending adapter changes. In the pre-layout pass positions are converted first.
+        final int currentPosition = preLayout ? container.convertPreLayoutPosition(position) : position;
+        final int descriptor = container.obtainTile(position, currentPosition == NO_POSITION ? LayoutDescriptor.UNKNOWN : layoutDescriptors.get(currentPosition));
+
+        final int column = LayoutDescriptor.getColumn(descriptor, columnCount);
+        final int columnEnd = column + LayoutDescriptor.getColumnSpan(descriptor, columnCount);
+
+        final int size;
+        if (!LayoutDescriptor.isFullWidth(descriptor, columnCount))
+        {
+            size = Math.max(1, LayoutDescriptor.getRowSpan(descriptor)) * getRowHeight(container.getCrossAxisSize(), columnCount);
+        }
+        else if (LayoutDescriptor.useViewSize(descriptor))
+        {
+            size = container.measureTile(atEnd);
+
+            // The index can only estimate the height of self sized tiles until they have been measured.
+            // Pre-layout positions do not match the index.
+            if (!preLayout && !layoutIndexDirty && position < layoutIndex.getItemCount())
+            {
+                layoutIndex.setFullWidthHeight(position, size);
+            }
+        }
+        else
+        {
+            size = getWideTileHeight(container.getCrossAxisSize());
+        }
+
+        final int top = atEnd ? columnEdges.placeBelow(column, columnEnd, size) : columnEdges.placeAbove(column, columnEnd, size);
+        container.addTile(position, atEnd, column, columnEnd, top, top + size);
+    }
+
+    /**
+     * Removes and recycles the tiles that were scrolled off the top of the screen.
+     * Only the first attached tiles are checked, until a visible tile is found.
+     * <p>
+     * Columns are gapless, so the top of a column is the bottom of the tile that was removed from it.
+     * This keeps the column values up to date without walking the remaining tiles.
+     */
+    private void recycleTilesAboveTop()
+    {
+        while (container.getTileCount() > 0)
+        {
+            final int bottom = container.getTileBottom(0);
+            if (!container.canRecycleTile(0) || bottom >= 0)
+            {
+                break;
+            }
+
+            final int column = container.getTileColumn(0);
+            columnEdges.setTops(column, column + container.getTileColumnSpan(0), bottom);
+
+            container.removeTile(0);
+            firstPosition++;
+        }
+
+        if (container.getTileCount() == 0)
+        {
+            firstPosition = 0;
+        }
+    }
+
+    /**
+     * Removes and recycles the tiles that were scrolled off the bottom of the screen.
+     * Only the last attached tiles are checked, until a visible tile is found.
+     */
+    private void recycleTilesBelowBottom()
+    {
+        final int parentHeight = container.getScrollAxisSize();
+
+        for (int i = container.getTileCount() - 1; i >= 0; i--)
+        {
+            final int top = container.getTileTop(i);
+            if (!container.canRecycleTile(i) || top <= parentHeight)
+            {
+                break;
+            }
+
+            final int column = container.getTileColumn(i);
+            columnEdges.setBottoms(column, column + container.getTileColumnSpan(i), top);
+
+            container.removeTile(i);
+        }
+
+        if (container.getTileCount() == 0)
+        {
+            firstPosition = 0;
+        }
+    }
+
+    /**
+     * Moves all tiles and the column edges with them.
+     */
+    private void offsetTiles(final int offset)
+    {
+        container.offsetTiles(offset);
+        columnEdges.offset(offset);
+    }
+
+    /**
+     * @param crossSize The width of the container.
+     * @return The height of a tile that spans all columns and does not determine its own size.
+     */
+    public static int getWideTileHeight(final int crossSize)
+    {
+        return (int) (crossSize / RATIO_WIDE);
+    }
+
+    /**
+     * @param crossSize   The width of the container.
+     * @param columnCount The number of columns.
+     * @return The height of a single row. A tile that spans several rows is a multiple of this height.
+     */
+    public static int getRowHeight(final int crossSize, final int columnCount)
+    {
+        return (int) (crossSize / columnCount / RATIO_STANDARD);
+    }
+}
@@ -0,0 +1,101 @@
+package mobi.inthepocket.customlayoutmanager.helpers;
+
+/**
+ * Binary indexed tree over a list of non-negative int values, stored in a single primitive array.
+ * Changing a value, calculating the sum of the first values and finding the value that contains a sum are all O(log n).
+ */
+public class FenwickTree
+{
+    // 1-based: tree[i] holds the sum of the values in (i - lowestOneBit(i), i].
+    private int[] tree = new int[1];
+    private int size;
+
+    /**
+     * Replaces all values. Runs in O(n) and reuses the existing array when it is large enough.
+     *
+     * @param values The values, at index 0 to count - 1.
+     * @param count  The number of values to use.
+     */
+    public void build(final int[] values, final int count)
+    {
+        if (tree.length <= count)
+        {
+            tree = new int[Math.max(count + 1, tree.length + (tree.length >> 1))];
+        }
+        size = count;
+
+        tree[0] = 0;
+        System.arraycopy(values, 0, tree, 1, count);
+        for (int i = 1; i <= count; i++)
+        {
+            final int parent = i + (i & -i);
+            if (parent <= count)
+            {
+                tree[parent] += tree[i];
+            }
+        }
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Adds a delta to a single value.
+     *
+     * @param index The index of the value, from 0 to {@link #size()} - 1.
+     * @param delta The amount to add.
+     */
+    public void add(final int index, final int delta)
+    {
+        for (int i = index + 1; i <= size; i += i & -i)
+        {
+            tree[i] += delta;
+        }
+    }
+
+    /**
+     * @param count The number of values to add up.
+     * @return The sum of the values at index 0 to count - 1.
+     */
+    public int sum(final int count)
+    {
+        int sum = 0;
+        for (int i = count; i > 0; i -= i & -i)
+        {
+            sum += tree[i];
+        }
+
+        return sum;
+    }
+
+    /**
+     * Finds the largest count for which {@link #sum(int)} is at or below a value.
+     * When the values are heights of consecutive blocks, this is the index of the block that covers an offset.
+     *
+     * @param value The sum to look for.
+     * @return A count between 0 and {@link #size()}.
+     */
+    public int findCount(final int value)
+    {
+        if (value < 0)
+        {
+            return 0;
+        }
+
+        int count = 0;
+        int remaining = value;
+        for (int step = Integer.highestOneBit(Math.max(size, 1)); step > 0; step >>= 1)
+        {
+            final int next = count + step;
+            if (next <= size && tree[next] <= remaining)
+            {
+                count = next;
+                remaining -= tree[next];
+            }
+        }
+
+        return count;
+    }
+}
@@ -0,0 +1,509 @@
+package mobi.inthepocket.customlayoutmanager.helpers;
+
+/**
+ * The groups of a {@link LayoutIndex} in feed order: the number of items and the height of each group.
+ * The first position and the top of a group are the sums of the groups before it.
+ * <p>
+ * Groups are stored in pages of at most {@link #PAGE_SIZE} groups. A {@link FenwickTree} over the totals of the pages finds the page
+ * of a group, position or offset in O(log n), within the page the groups are summed one by one.
+ * Replacing a few groups only changes their own page and the trees, which is O(PAGE_SIZE + log n).
+ * When a page splits or becomes empty the trees are rebuilt, in O(n / PAGE_SIZE).
+ */
+public class GroupList
+{
+    static final int PAGE_SIZE = 64;
+    // Pages are filled this far when all groups are replaced, so a few inserts do not immediately split them.
+    private static final int PAGE_FILL = PAGE_SIZE * 3 / 4;
+
+    // Item count and height of each group, per page.
+    private int[][] pageSizes = new int[0][];
+    private int[][] pageHeights = new int[0][];
+    // Number of groups, items and the height of each page.
+    private int[] pageGroupCounts = new int[0];
+    private int[] pageItemCounts = new int[0];
+    private int[] pageTotalHeights = new int[0];
+    private int pageCount;
+
+    private final FenwickTree groupTree = new FenwickTree();
+    private final FenwickTree itemTree = new FenwickTree();
+    private final FenwickTree heightTree = new FenwickTree();
+
+    private int groupCount;
+    private int itemCount;
+    private int totalHeight;
+
+    // Page and index in that page of the group found by the last call to locate.
+    private int foundPage;
+    private int foundIndex;
+
+    // Reused when a page is split or all groups are replaced.
+    private int[] scratchSizes = new int[2 * PAGE_SIZE];
+    private int[] scratchHeights = new int[2 * PAGE_SIZE];
+
+    /**
+     * Replaces all groups.
+     *
+     * @param sizes   The number of items in each group.
+     * @param heights The height of each group.
+     * @param count   The number of groups.
+     */
+    public void build(final int[] sizes, final int[] heights, final int count)
+    {
+        final int newPageCount = (count + PAGE_FILL - 1) / PAGE_FILL;
+        ensurePageCapacity(newPageCount);
+        pageCount = newPageCount;
+        groupCount = count;
+        itemCount = 0;
+        totalHeight = 0;
+
+        for (int page = 0; page < newPageCount; page++)
+        {
+            if (pageSizes[page] == null)
+            {
+                pageSizes[page] = new int[PAGE_SIZE];
+                pageHeights[page] = new int[PAGE_SIZE];
+            }
+            final int start = page * PAGE_FILL;
+            final int pageGroupCount = Math.min(PAGE_FILL, count - start);
+            System.arraycopy(sizes, start, pageSizes[page], 0, pageGroupCount);
+            System.arraycopy(heights, start, pageHeights[page], 0, pageGroupCount);
+            pageGroupCounts[page] = pageGroupCount;
+            updatePageTotals(page);
+            itemCount += pageItemCounts[page];
+            totalHeight += pageTotalHeights[page];
+        }
+
+        rebuildTrees();
+    }
+
+    public void clear()
+    {
+        build(scratchSizes, scratchHeights, 0);
+    }
+
+    public int size()
+    {
+        return groupCount;
+    }
+
+    public int getItemCount()
+    {
+        return itemCount;
+    }
+
+    public int getTotalHeight()
+    {
+        return totalHeight;
+    }
+
+    /**
+     * @return The number of items in the group.
+     */
+    public int getSize(final int group)
+    {
+        locate(group);
+
+        return pageSizes[foundPage][foundIndex];
+    }
+
+    public int getHeight(final int group)
+    {
+        locate(group);
+
+        return pageHeights[foundPage][foundIndex];
+    }
+
+    /**
+     * @return The first position of the group.
+     */
+    public int getStart(final int group)
+    {
+        locate(group);
+
+        int start = itemTree.sum(foundPage);
+        final int[] sizes = pageSizes[foundPage];
+        for (int i = 0; i < foundIndex; i++)
+        {
+            start += sizes[i];
+        }
+
+        return start;
+    }
+
+    /**
+     * @return The sum of the heights of all groups above this one.
+     */
+    public int getTop(final int group)
+    {
+        locate(group);
+
+        int top = heightTree.sum(foundPage);
+        final int[] heights = pageHeights[foundPage];
+        for (int i = 0; i < foundIndex; i++)
+        {
+            top += heights[i];
+        }
+
+        return top;
+    }
+
+    /**
+     * @param position A position from 0 to {@link #getItemCount()} - 1.
+     * @return The index of the group that contains the position.
+     */
+    public int findGroupAtPosition(final int position)
+    {
+        final int page = itemTree.findCount(position);
+        int remaining = position - itemTree.sum(page);
+        final int[] sizes = pageSizes[page];
+        int index = 0;
+        while (remaining >= sizes[index])
+        {
+            remaining -= sizes[index];
+            index++;
+        }
+
+        return groupTree.sum(page) + index;
+    }
+
+    /**
+     * @param position A position from 0 to {@link #getItemCount()} - 1.
+     * @return The top of the group that contains the position.
+     */
+    public int getTopAtPosition(final int position)
+    {
+        final int page = itemTree.findCount(position);
+        int remaining = position - itemTree.sum(page);
+        int top = heightTree.sum(page);
+        final int[] sizes = pageSizes[page];
+        final int[] heights = pageHeights[page];
+        int index = 0;
+        while (remaining >= sizes[index])
+        {
+            remaining -= sizes[index];
+            top += heights[index];
+            index++;
+        }
+
+        return top;
+    }
+
+    /**
+     * @param offset Distance from the top of the content.
+     * @return The index of the last group whose top is at or above the offset. Expects at least one group.
+     */
+    public int findGroupAtOffset(final int offset)
+    {
+        final int page = Math.min(heightTree.findCount(offset), pageCount - 1);
+        int remaining = offset - heightTree.sum(page);
+        final int[] heights = pageHeights[page];
+        final int count = pageGroupCounts[page];
+        int index = 0;
+        while (index + 1 < count && remaining >= heights[index])
+        {
+            remaining -= heights[index];
+            index++;
+        }
+
+        return groupTree.sum(page) + index;
+    }
+
+    /**
+     * Adds a delta to the height of a group.
+     */
+    public void addHeight(final int group, final int delta)
+    {
+        locate(group);
+        pageHeights[foundPage][foundIndex] += delta;
+        pageTotalHeights[foundPage] += delta;
+        heightTree.add(foundPage, delta);
+        totalHeight += delta;
+    }
+
+    /**
+     * Replaces a range of groups with new groups.
+     *
+     * @param first       The index of the first group to replace.
+     * @param removeCount The number of groups to remove.
+     * @param sizes       The number of items in each new group.
+     * @param heights     The height of each new group.
+     * @param insertCount The number of new groups.
+     */
+    public void replace(final int first, final int removeCount, final int[] sizes, final int[] heights, final int insertCount)
+    {
+        if (insertCount > PAGE_SIZE)
+        {
+            replaceAll(first, removeCount, sizes, heights, insertCount);
+            return;
+        }
+
+        if (removeCount > 0)
+        {
+            removeGroups(first, removeCount);
+        }
+        if (insertCount > 0)
+        {
+            insertGroups(first, sizes, heights, insertCount);
+        }
+
+        // After many removals most pages are nearly empty, pack them again so the page trees stay small.
+        if (pageCount > 2 && pageCount * (PAGE_SIZE / 4) > groupCount)
+        {
+            replaceAll(0, 0, sizes, heights, 0);
+        }
+    }
+
+    private void removeGroups(final int first, final int removeCount)
+    {
+        locate(first);
+        int page = foundPage;
+        int index = foundIndex;
+        int remaining = removeCount;
+        boolean pageEmptied = false;
+
+        while (remaining > 0)
+        {
+            final int count = Math.min(remaining, pageGroupCounts[page] - index);
+            final int[] pageSizes = this.pageSizes[page];
+            final int[] pageHeights = this.pageHeights[page];
+
+            int removedItems = 0;
+            int removedHeight = 0;
+            for (int i = index; i < index + count; i++)
+            {
+                removedItems += pageSizes[i];
+                removedHeight += pageHeights[i];
+            }
+            final int tail = pageGroupCounts[page] - index - count;
+            System.arraycopy(pageSizes, index + count, pageSizes, index, tail);
+            System.arraycopy(pageHeights, index + count, pageHeights, index, tail);
+
+            pageGroupCounts[page] -= count;
+            pageItemCounts[page] -= removedItems;
+            pageTotalHeights[page] -= removedHeight;
+            groupTree.add(page, -count);
+            itemTree.add(page, -removedItems);
+            heightTree.add(page, -removedHeight);
+            groupCount -= count;
+            itemCount -= removedItems;
+            totalHeight -= removedHeight;
+            pageEmptied |= pageGroupCounts[page] == 0;
+
+            remaining -= count;
+            page++;
+            index = 0;
+        }
+
+        if (pageEmptied)
+        {
+            removeEmptyPages();
+        }
+    }
+
+    private void insertGroups(final int first, final int[] sizes, final int[] heights, final int insertCount)
+    {
+        final int page;
+        final int index;
+        if (pageCount == 0)
+        {
+            ensurePageCapacity(1);
+            pageSizes[0] = new int[PAGE_SIZE];
+            pageHeights[0] = new int[PAGE_SIZE];
+            pageGroupCounts[0] = 0;
+            pageCount = 1;
+            page = 0;
+            index = 0;
+        }
+        else if (first == groupCount)
+        {
+            page = pageCount - 1;
+            index = pageGroupCounts[page];
+        }
+        else
+        {
+            locate(first);
+            page = foundPage;
+            index = foundIndex;
+        }
+
+        // Merge the page with the new groups.
+        final int oldCount = pageGroupCounts[page];
+        final int newCount = oldCount + insertCount;
+        System.arraycopy(pageSizes[page], 0, scratchSizes, 0, index);
+        System.arraycopy(pageHeights[page], 0, scratchHeights, 0, index);
+        System.arraycopy(sizes, 0, scratchSizes, index, insertCount);
+        System.arraycopy(heights, 0, scratchHeights, index, insertCount);
+        System.arraycopy(pageSizes[page], index, scratchSizes, index + insertCount, oldCount - index);
+        System.arraycopy(pageHeights[page], index, scratchHeights, index + insertCount, oldCount - index);
+
+        int insertedItems = 0;
+        int insertedHeight = 0;
+        for (int i = 0; i < insertCount; i++)
+        {
+            insertedItems += sizes[i];
+            insertedHeight += heights[i];
+        }
+        groupCount += insertCount;
+        itemCount += insertedItems;
+        totalHeight += insertedHeight;
+
+        if (newCount <= PAGE_SIZE)
+        {
+            System.arraycopy(scratchSizes, 0, pageSizes[page], 0, newCount);
+            System.arraycopy(scratchHeights, 0, pageHeights[page], 0, newCount);
+            pageGroupCounts[page] = newCount;
+            pageItemCounts[page] += insertedItems;
+            pageTotalHeights[page] += insertedHeight;
+            groupTree.add(page, insertCount);
+            itemTree.add(page, insertedItems);
+            heightTree.add(page, insertedHeight);
+            return;
+        }
+
+        // Too many groups for one page: split it in two halves.
+        final int firstHalf = newCount / 2;
+        insertPage(page + 1);
+        System.arraycopy(scratchSizes, 0, pageSizes[page], 0, firstHalf);
+        System.arraycopy(scratchHeights, 0, pageHeights[page], 0, firstHalf);
+        pageGroupCounts[page] = firstHalf;
+        updatePageTotals(page);
+        System.arraycopy(scratchSizes, firstHalf, pageSizes[page + 1], 0, newCount - firstHalf);
+        System.arraycopy(scratchHeights, firstHalf, pageHeights[page + 1], 0, newCount - firstHalf);
+        pageGroupCounts[page + 1] = newCount - firstHalf;
+        updatePageTotals(page + 1);
+        rebuildTrees();
+    }
+
+    /**
+     * Replaces groups by copying all groups into new pages.
+     */
+    private void replaceAll(final int first, final int removeCount, final int[] sizes, final int[] heights, final int insertCount)
+    {
+        final int newCount = groupCount - removeCount + insertCount;
+        final int[] newSizes = new int[newCount];
+        final int[] newHeights = new int[newCount];
+
+        int group = 0;
+        for (int page = 0; page < pageCount; page++)
+        {
+            for (int i = 0; i < pageGroupCounts[page]; i++)
+            {
+                if (group < first)
+                {
+                    newSizes[group] = pageSizes[page][i];
+                    newHeights[group] = pageHeights[page][i];
+                }
+                else if (group >= first + removeCount)
+                {
+                    newSizes[group - removeCount + insertCount] = pageSizes[page][i];
+                    newHeights[group - removeCount + insertCount] = pageHeights[page][i];
+                }
+                group++;
+            }
+        }
+        System.arraycopy(sizes, 0, newSizes, first, insertCount);
+        System.arraycopy(heights, 0, newHeights, first, insertCount);
+
+        build(newSizes, newHeights, newCount);
+    }
+
+    /**
+     * Finds the page and the index in that page of a group.
+     */
+    private void locate(final int group)
+    {
+        foundPage = groupTree.findCount(group);
+        foundIndex = group - groupTree.sum(foundPage);
+    }
+
+    private void updatePageTotals(final int page)
+    {
+        int items = 0;
+        int height = 0;
+        for (int i = 0; i < pageGroupCounts[page]; i++)
+        {
+            items += pageSizes[page][i];
+            height += pageHeights[page][i];
+        }
+        pageItemCounts[page] = items;
+        pageTotalHeights[page] = height;
+    }
+
+    private void rebuildTrees()
+    {
+        groupTree.build(pageGroupCounts, pageCount);
+        itemTree.build(pageItemCounts, pageCount);
+        heightTree.build(pageTotalHeights, pageCount);
+    }
+
+    /**
+     * Adds an empty page, moving the pages from that index onward. The trees have to be rebuilt afterwards.
+     */
+    private void insertPage(final int page)
+    {
+        ensurePageCapacity(pageCount + 1);
+        final int moved = pageCount - page;
+        System.arraycopy(pageSizes, page, pageSizes, page + 1, moved);
+        System.arraycopy(pageHeights, page, pageHeights, page + 1, moved);
+        System.arraycopy(pageGroupCounts, page, pageGroupCounts, page + 1, moved);
+        System.arraycopy(pageItemCounts, page, pageItemCounts, page + 1, moved);
+        System.arraycopy(pageTotalHeights, page, pageTotalHeights, page + 1, moved);
+        pageSizes[page] = new int[PAGE_SIZE];
+        pageHeights[page] = new int[PAGE_SIZE];
+        pageGroupCounts[page] = 0;
+        pageCount++;
+    }
+
+    private void removeEmptyPages()
+    {
+        int kept = 0;
+        for (int page = 0; page < pageCount; page++)
+        {
+            if (pageGroupCounts[page] > 0)
+            {
+                pageSizes[kept] = pageSizes[page];
+                pageHeights[kept] = pageHeights[page];
+                pageGroupCounts[kept] = pageGroupCounts[page];
+                pageItemCounts[kept] = pageItemCounts[page];
+                pageTotalHeights[kept] = pageTotalHeights[page];
+                kept++;
+            }
+        }
+        // Pages that moved are now referenced twice, forget the old references so they are not reused.
+        for (int page = kept; page < pageCount; page++)
+        {
+            pageSizes[page] = null;
+            pageHeights[page] = null;
+        }
+        pageCount = kept;
+
+        rebuildTrees();
+    }
+
+    private void ensurePageCapacity(final int capacity)
+    {
+        if (pageGroupCounts.length >= capacity)
+        {
+            return;
+        }
+
+        final int newCapacity = Math.max(capacity, pageGroupCounts.length + (pageGroupCounts.length >> 1));
+        final int[][] newPageSizes = new int[newCapacity][];
+        final int[][] newPageHeights = new int[newCapacity][];
+        System.arraycopy(pageSizes, 0, newPageSizes, 0, pageCount);
+        System.arraycopy(pageHeights, 0, newPageHeights, 0, pageCount);
+        pageSizes = newPageSizes;
+        pageHeights = newPageHeights;
+        pageGroupCounts = copyOf(pageGroupCounts, newCapacity);
+        pageItemCounts = copyOf(pageItemCounts, newCapacity);
+        pageTotalHeights = copyOf(pageTotalHeights, newCapacity);
+    }
+
+    private int[] copyOf(final int[] values, final int length)
+    {
+        final int[] copy = new int[length];
+        System.arraycopy(values, 0, copy, 0, pageCount);
+
+        return copy;
+    }
+}
@@ -0,0 +1,235 @@
+package mobi.inthepocket.customlayoutmanager.helpers;
+
+import java.util.Arrays;
+
+/**
+ * Divides the feed in groups, for example UNO (2x1), DUO (1x1 + 1x1) and TRIO (1x1 + 1x2 + 1x1) in a two column feed.
+ * A group starts wherever the bottoms of all columns are level, so the layout can always start at a group start
+ * with the same top value for every column.
+ * <p>
+ * Groups only depend on the spans and column of each item, not on pixel sizes, so columns are counted in rows.
+ * For each position the distance to the start of its group is stored, which gives the group start in O(1).
+ * The distances are kept in a {@link TieredIntArray}, so inserting or removing items does not shift every position after them.
+ * <p>
+ * Adapter changes only mark the affected range. The next {@link #update(LayoutDescriptorCache, int)} recalculates
+ * from the group start before that range, until the groups line up with the previous ones again.
+ */
+public class GroupTable
+{
+    // Distance from each position to the first position of its group. Stored relative, so shifting the array keeps it valid.
+    private final TieredIntArray groupOffsets = new TieredIntArray();
+    private int itemCount;
+
+    // Range of positions that needs to be recalculated. dirtyStart is always a group start.
+    private int dirtyStart;
+    private int dirtyEnd;
+    private boolean dirty;
+
+    // Number of rows filled in each column of the group that is being calculated.
+    private int[] rows = new int[2];
+
+    /**
+     * Sets the number of columns the items are divided over. Recalculates the entire table on the next update if it changed.
+     */
+    public void setColumnCount(final int columnCount)
+    {
+        if (columnCount != rows.length)
+        {
+            rows = new int[columnCount];
+            clear();
+        }
+    }
+
+    /**
+     * Recalculates the part of the table that changed since the last update.
+     *
+     * @param layoutDescriptors The cache to retrieve the spans and column of each item from.
+     * @param itemCount         The number of items in the adapter.
+     */
+    public void update(final LayoutDescriptorCache layoutDescriptors, final int itemCount)
+    {
+        if (itemCount != this.itemCount)
+        {
+            // Items were added or removed without being reported, recalculate everything from the first difference.
+            markDirty(0, Math.max(itemCount, this.itemCount));
+            setItemCount(itemCount);
+        }
+
+        if (!dirty)
+        {
+            return;
+        }
+
+        final int columnCount = rows.length;
+        int groupStart = Math.min(dirtyStart, itemCount);
+        boolean level = true;
+
+        for (int position = groupStart; position < itemCount; position++)
+        {
+            if (level)
+            {
+                // A level position after the changed range that also started a group before: the rest of the table is unchanged.
+                if (position > dirtyEnd && groupOffsets.get(position) == 0)
+                {
+                    break;
+                }
+
+                groupStart = position;
+                Arrays.fill(rows, 0);
+            }
+
+            groupOffsets.set(position, position - groupStart);
+
+            final int descriptor = layoutDescriptors.get(position);
+            final int column = LayoutDescriptor.getColumn(descriptor, columnCount);
+            final int columnEnd = column + LayoutDescriptor.getColumnSpan(descriptor, columnCount);
+
+            // The item starts below the lowest of the columns it spans, full width items always end level.
+            int top = 0;
+            for (int c = column; c < columnEnd; c++)
+            {
+                top = Math.max(top, rows[c]);
+            }
+            final int bottom = top + (LayoutDescriptor.isFullWidth(descriptor, columnCount) ? 1 : Math.max(1, LayoutDescriptor.getRowSpan(descriptor)));
+            for (int c = column; c < columnEnd; c++)
+            {
+                rows[c] = bottom;
+            }
+
+            level = true;
+            for (int c = 1; c < columnCount && level; c++)
+            {
+                level = rows[c] == rows[0];
+            }
+        }
+
+        dirty = false;
+    }
+
+    /**
+     * Forgets all groups, for example after the entire data set changed.
+     */
+    public void clear()
+    {
+        markDirty(0, itemCount);
+    }
+
+    public int getItemCount()
+    {
+        return itemCount;
+    }
+
+    /**
+     * @param position The adapter position of the item.
+     * @return The first position of the group the item belongs to.
+     */
+    public int getGroupStart(final int position)
+    {
+        return position - groupOffsets.get(position);
+    }
+
+    /**
+     * @param position The adapter position of the item.
+     * @return True if the item is the first of its group.
+     */
+    public boolean isGroupStart(final int position)
+    {
+        return groupOffsets.get(position) == 0;
+    }
+
+    public void onItemsAdded(final int positionStart, final int count)
+    {
+        if (positionStart > itemCount)
+        {
+            clear();
+            return;
+        }
+
+        // The new items can join the group before them, for example the right item of a DUO.
+        final int groupStart = getDirtyGroupStart(positionStart);
+
+        groupOffsets.insert(positionStart, count, 0);
+        itemCount += count;
+
+        if (dirty && dirtyEnd >= positionStart)
+        {
+            dirtyEnd += count;
+        }
+        markDirty(groupStart, positionStart + count);
+    }
+
+    public void onItemsRemoved(final int positionStart, final int count)
+    {
+        if (positionStart + count > itemCount)
+        {
+            clear();
+            return;
+        }
+
+        final int groupStart = getDirtyGroupStart(positionStart);
+
+        groupOffsets.remove(positionStart, count);
+        itemCount -= count;
+
+        if (dirty && dirtyEnd > positionStart)
+        {
+            dirtyEnd = Math.max(positionStart, dirtyEnd - count);
+        }
+        markDirty(groupStart, positionStart);
+    }
+
+    public void onItemsUpdated(final int positionStart, final int count)
+    {
+        if (positionStart >= itemCount)
+        {
+            return;
+        }
+
+        markDirty(getDirtyGroupStart(positionStart), Math.min(positionStart + count, itemCount));
+    }
+
+    public void onItemsMoved(final int from, final int to, final int count)
+    {
+        // Everything between the old and new location shifts, recalculate that entire range.
+        onItemsUpdated(Math.min(from, to), Math.abs(from - to) + count);
+    }
+
+    /**
+     * @return The start of the group that contains the position, or of the last group when the position is at the end.
+     * Positions inside the dirty range may have outdated groups, the dirty range is used instead.
+     */
+    private int getDirtyGroupStart(final int position)
+    {
+        if (dirty && position >= dirtyStart)
+        {
+            return dirtyStart;
+        }
+        if (position < itemCount)
+        {
+            return getGroupStart(position);
+        }
+
+        return position > 0 ? getGroupStart(position - 1) : 0;
+    }
+
+    private void markDirty(final int start, final int end)
+    {
+        if (dirty)
+        {
+            dirtyStart = Math.min(dirtyStart, start);
+            dirtyEnd = Math.max(dirtyEnd, end);
+        }
+        else
+        {
+            dirtyStart = start;
+            dirtyEnd = end;
+            dirty = true;
+        }
+    }
+
+    private void setItemCount(final int itemCount)
+    {
+        groupOffsets.setSize(itemCount, 0);
+        this.itemCount = itemCount;
+    }
+}
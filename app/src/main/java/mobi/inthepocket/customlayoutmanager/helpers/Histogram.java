@@ -0,0 +1,90 @@
+package mobi.inthepocket.customlayoutmanager.helpers;
+
+import java.util.Arrays;
+
+/**
+ * Counts values in a fixed number of buckets that double in size: bucket 0 holds 0, bucket 1 holds 1,
+ * bucket 2 holds 2 to 3, bucket 3 holds 4 to 7 and so on. Negative values count as 0.
+ * <p>
+ * The buckets are allocated once, so recording a value does not allocate.
+ */
+public class Histogram
+{
+    // Enough buckets for any long value.
+    public static final int BUCKET_COUNT = 64;
+
+    private final long[] counts = new long[BUCKET_COUNT];
+    private long totalCount;
+    private long max;
+
+    public void record(final long value)
+    {
+        final long clamped = Math.max(0, value);
+
+        counts[getBucket(clamped)]++;
+        totalCount++;
+        max = Math.max(max, clamped);
+    }
+
+    public void clear()
+    {
+        Arrays.fill(counts, 0);
+        totalCount = 0;
+        max = 0;
+    }
+
+    public long getCount(final int bucket)
+    {
+        return counts[bucket];
+    }
+
+    public long getTotalCount()
+    {
+        return totalCount;
+    }
+
+    /**
+     * @return The largest recorded value, 0 if nothing was recorded.
+     */
+    public long getMax()
+    {
+        return max;
+    }
+
+    /**
+     * @param fraction The fraction of recorded values, from 0 to 1. 0.5 is the median.
+     * @return The upper bound of the bucket that holds this fraction of the recorded values, 0 if nothing was recorded.
+     */
+    public long getPercentile(final double fraction)
+    {
+        final long target = (long) Math.ceil(totalCount * fraction);
+
+        long count = 0;
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++)
+        {
+            count += counts[bucket];
+            if (count >= target && count > 0)
+            {
+                return Math.min(getUpperBound(bucket), max);
+            }
+        }
+
+        return 0;
+    }
+
+    /**
+     * @return The bucket a value that is not negative is counted in.
+     */
+    public static int getBucket(final long value)
+    {
+        return BUCKET_COUNT - Long.numberOfLeadingZeros(value);
+    }
+
+    /**
+     * @return The largest value that is counted in a bucket.
+     */
+    public static long getUpperBound(final int bucket)
+    {
+        return bucket >= BUCKET_COUNT - 1 ? Long.MAX_VALUE : (1L << bucket) - 1;
+    }
+}
@@ -0,0 +1,101 @@
+package mobi.inthepocket.customlayoutmanager.helpers;
+
+import mobi.inthepocket.customlayoutmanager.interfaces.LayoutInfoLookup;
+
+/**
+ * Packs all layout info of an item in a single int, so it can be stored in and read from primitive arrays.
+ * <p>
+ * Layout of the bits, from least to most significant: row span (8 bits), column span (8 bits), column (8 bits), use View size (1 bit).
+ * Spans are at least 1, so a valid descriptor is never 0. 0 can be used to mark a descriptor that is not known yet.
+ * <p>
+ * Descriptors do not depend on the number of columns. The column count aware getters fit the spans and column into the available columns.
+ */
+public final class LayoutDescriptor
+{
+    public static final int UNKNOWN = 0;
+    // The largest span a descriptor can hold. Items with this column span are full width for any column count.
+    public static final int MAX_SPAN = 0xFF;
+
+    private static final int BYTE_MASK = 0xFF;
+    private static final int COLUMN_SPAN_SHIFT = 8;
+    private static final int COLUMN_SHIFT = 16;
+    private static final int FLAG_USE_VIEW_SIZE = 1 << 24;
+
+    private LayoutDescriptor()
+    {
+    }
+
+    /**
+     * @param rowSpan     The number of rows occupied by the item.
+     * @param columnSpan  The number of columns occupied by the item.
+     * @param column      The column the item is placed in. Ignored by items that span all columns.
+     * @param useViewSize Whether the View determines its own height.
+     * @return The packed descriptor.
+     */
+    public static int pack(final int rowSpan, final int columnSpan, final int column, final boolean useViewSize)
+    {
+        return (rowSpan & BYTE_MASK)
+                | (columnSpan & BYTE_MASK) << COLUMN_SPAN_SHIFT
+                | (column & BYTE_MASK) << COLUMN_SHIFT
+                | (useViewSize ? FLAG_USE_VIEW_SIZE : 0);
+    }
+
+    /**
+     * Retrieves and packs all layout info for a single item.
+     *
+     * @param layoutInfoLookup The lookup to ask.
+     * @param position         The adapter position of the item.
+     * @return The packed descriptor.
+     */
+    public static int fromLookup(final LayoutInfoLookup layoutInfoLookup, final int position)
+    {
+        return pack(layoutInfoLookup.getRowSpan(position),
+                layoutInfoLookup.getColumnSpan(position),
+                layoutInfoLookup.getColumn(position),
+                layoutInfoLookup.useViewSize(position));
+    }
+
+    public static int getRowSpan(final int descriptor)
+    {
+        return descriptor & BYTE_MASK;
+    }
+
+    public static int getColumnSpan(final int descriptor)
+    {
+        return descriptor >> COLUMN_SPAN_SHIFT & BYTE_MASK;
+    }
+
+    public static int getColumn(final int descriptor)
+    {
+        return descriptor >> COLUMN_SHIFT & BYTE_MASK;
+    }
+
+    public static boolean useViewSize(final int descriptor)
+    {
+        return (descriptor & FLAG_USE_VIEW_SIZE) != 0;
+    }
+
+    /**
+     * @return The column span, between 1 and the column count.
+     */
+    public static int getColumnSpan(final int descriptor, final int columnCount)
+    {
+        return Math.max(1, Math.min(getColumnSpan(descriptor), columnCount));
+    }
+
+    /**
+     * @return The first column of the item, moved to the left if the item would not fit otherwise. 0 for full width items.
+     */
+    public static int getColumn(final int descriptor, final int columnCount)
+    {
+        return Math.min(getColumn(descriptor), columnCount - getColumnSpan(descriptor, columnCount));
+    }
+
+    /**
+     * @return true if the item spans all columns.
+     */
+    public static boolean isFullWidth(final int descriptor, final int columnCount)
+    {
+        return getColumnSpan(descriptor, columnCount) >= columnCount;
+    }
+}
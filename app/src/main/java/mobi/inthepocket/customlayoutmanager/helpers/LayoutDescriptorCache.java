@@ -0,0 +1,130 @@
+package mobi.inthepocket.customlayoutmanager.helpers;
+
+import mobi.inthepocket.customlayoutmanager.interfaces.BulkLayoutInfoLookup;
+import mobi.inthepocket.customlayoutmanager.interfaces.LayoutInfoLookup;
+
+/**
+ * Caches the {@link LayoutDescriptor} of every item, so the layout code only does array reads.
+ * <p>
+ * Descriptors are loaded the first time they are needed. A {@link BulkLayoutInfoLookup} is asked for the aligned block of
+ * {@value #BULK_LOAD_SIZE} items that contains the position, other lookups are asked for a single item.
+ * Adapter changes only invalidate or shift the affected part of the cache. The descriptors are kept in a {@link TieredIntArray},
+ * so inserting or removing items does not shift every position after them.
+ */
+public class LayoutDescriptorCache
+{
+    // Number of items to load at once from a BulkLayoutInfoLookup.
+    private static final int BULK_LOAD_SIZE = 64;
+
+    private final LayoutInfoLookup layoutInfoLookup;
+    private final BulkLayoutInfoLookup bulkLayoutInfoLookup;
+
+    private final TieredIntArray descriptors = new TieredIntArray();
+    private int itemCount;
+
+    // Receives the descriptors of a bulk load before they are copied into the cache.
+    private final int[] bulkDescriptors = new int[BULK_LOAD_SIZE];
+
+    public LayoutDescriptorCache(final LayoutInfoLookup layoutInfoLookup)
+    {
+        this.layoutInfoLookup = layoutInfoLookup;
+        this.bulkLayoutInfoLookup = layoutInfoLookup instanceof BulkLayoutInfoLookup ? (BulkLayoutInfoLookup) layoutInfoLookup : null;
+    }
+
+    /**
+     * @param position The adapter position of the item.
+     * @return The packed {@link LayoutDescriptor} of the item.
+     */
+    public int get(final int position)
+    {
+        final int descriptor = descriptors.get(position);
+        if (descriptor != LayoutDescriptor.UNKNOWN)
+        {
+            return descriptor;
+        }
+
+        if (bulkLayoutInfoLookup != null)
+        {
+            // Load the aligned block around the position, so scrolling towards the start loads as few blocks as scrolling towards the end.
+            final int start = position - position % BULK_LOAD_SIZE;
+            final int count = Math.min(BULK_LOAD_SIZE, itemCount - start);
+            bulkLayoutInfoLookup.getLayoutDescriptors(start, count, bulkDescriptors);
+            for (int i = 0; i < count; i++)
+            {
+                if (descriptors.get(start + i) == LayoutDescriptor.UNKNOWN)
+                {
+                    descriptors.set(start + i, bulkDescriptors[i]);
+                }
+            }
+        }
+        else
+        {
+            descriptors.set(position, LayoutDescriptor.fromLookup(layoutInfoLookup, position));
+        }
+
+        return descriptors.get(position);
+    }
+
+    public int getItemCount()
+    {
+        return itemCount;
+    }
+
+    /**
+     * Sets the number of items in the adapter. Changes that were reported through the other methods are kept,
+     * new items at the end are loaded when they are first needed.
+     */
+    public void setItemCount(final int itemCount)
+    {
+        descriptors.setSize(itemCount, LayoutDescriptor.UNKNOWN);
+        this.itemCount = itemCount;
+    }
+
+    /**
+     * Forgets all descriptors, for example after the entire data set changed.
+     */
+    public void clear()
+    {
+        descriptors.fill(0, itemCount, LayoutDescriptor.UNKNOWN);
+    }
+
+    public void onItemsAdded(final int positionStart, final int count)
+    {
+        if (positionStart > itemCount)
+        {
+            // The change does not match the items we know about, none of the cached values can be trusted.
+            clear();
+            return;
+        }
+
+        descriptors.insert(positionStart, count, LayoutDescriptor.UNKNOWN);
+        itemCount += count;
+    }
+
+    public void onItemsRemoved(final int positionStart, final int count)
+    {
+        if (positionStart + count > itemCount)
+        {
+            clear();
+            return;
+        }
+
+        descriptors.remove(positionStart, count);
+        itemCount -= count;
+    }
+
+    public void onItemsUpdated(final int positionStart, final int count)
+    {
+        final int end = Math.min(positionStart + count, itemCount);
+        if (positionStart < end)
+        {
+            descriptors.fill(positionStart, end, LayoutDescriptor.UNKNOWN);
+        }
+    }
+
+    public void onItemsMoved(final int from, final int to, final int count)
+    {
+        // Everything between the old and new location shifts, forget that entire range.
+        onItemsUpdated(Math.min(from, to), Math.abs(from - to) + count);
+    }
+}
@@ -0,0 +1,489 @@
+package mobi.inthepocket.customlayoutmanager.helpers;
+
+import java.util.Arrays;
+
+/**
+ * Absolute geometry of every item in the feed, calculated from the {@link LayoutDescriptor} of each item.
+ * <p>
+ * Items are placed using the same column rules as the AdLayoutManager: an item is added below the lowest of the columns it spans,
+ * full width items are added below the lowest of all columns.
+ * All values are stored in primitive arrays. Tops are relative to the top of the content, not to the top of the screen.
+ * <p>
+ * Like the AdLayoutManager, this assumes a feed order that does not create layout gaps. The tops of the items will then never decrease,
+ * which allows an offset to be mapped to a position by searching the group heights.
+ * <p>
+ * Items are also divided in groups, as found in the {@link GroupTable}.
+ * All columns start level at every group, so the cumulative group heights describe the full content height.
+ * Items store their top relative to their group and the groups are kept in a {@link GroupList},
+ * so changing the height of an item and mapping between offsets and positions are O(log n).
+ * <p>
+ * Adapter changes only mark the affected range. The next {@link #update} recalculates the groups from the one that contains the
+ * first change, until they line up with the previous groups again, and splices them into the {@link GroupList}.
+ * The per item values are kept in {@link TieredIntArray}s, so inserting or removing items costs O(sqrt(n)) instead of shifting every item after them.
+ */
+public class LayoutIndex
+{
+    public static final int NO_POSITION = -1;
+
+    private int itemCount;
+
+    // Geometry the index was built with. Any change requires a full build.
+    private boolean built;
+    private int columnCount;
+    private int wideHeight;
+    private int rowHeight;
+
+    // First column and number of columns of each item. Full width items start at column 0 and span all columns.
+    private final TieredIntArray columns = new TieredIntArray();
+    private final TieredIntArray columnSpans = new TieredIntArray();
+    // Top of each item, relative to the top of its group.
+    private final TieredIntArray groupRelativeTops = new TieredIntArray();
+    private final TieredIntArray heights = new TieredIntArray();
+
+    // Number of items and height of each group, gives the first position and the top of a group.
+    private final GroupList groups = new GroupList();
+
+    // Range of positions that needs to be recalculated by the next update.
+    private int dirtyStart;
+    private int dirtyEnd;
+    private boolean dirty;
+
+    // Range of positions that was recalculated by the last build or update.
+    private int updatedStart;
+    private int updatedEnd;
+
+    // Column bottoms relative to the top of the group that is being built.
+    private int[] bottoms = new int[0];
+
+    // Groups calculated by a build or update, before they replace the previous ones.
+    private int newGroupCount;
+    private int[] newGroupSizes = new int[16];
+    private int[] newGroupHeights = new int[16];
+
+    /**
+     * (Re)calculates the geometry for all items.
+     *
+     * @param layoutDescriptors The cache to retrieve the spans and column of each item from.
+     * @param groupTable        The groups the items are divided in, up to date for the same items.
+     * @param itemCount         The number of items in the adapter.
+     * @param columnCount       The number of columns the items are divided over.
+     * @param wideHeight        Height of an item that spans all columns.
+     * @param rowHeight         Height of a single row, an item that is n rows high is n times this height.
+     */
+    public void build(final LayoutDescriptorCache layoutDescriptors, final GroupTable groupTable, final int itemCount, final int columnCount, final int wideHeight, final int rowHeight)
+    {
+        if (bottoms.length != columnCount)
+        {
+            bottoms = new int[columnCount];
+        }
+        this.itemCount = itemCount;
+        this.columnCount = columnCount;
+        this.wideHeight = wideHeight;
+        this.rowHeight = rowHeight;
+        built = true;
+        dirty = false;
+
+        columns.setSize(itemCount, 0);
+        columnSpans.setSize(itemCount, 0);
+        groupRelativeTops.setSize(itemCount, 0);
+        heights.setSize(itemCount, 0);
+
+        newGroupCount = 0;
+        int position = 0;
+        while (position < itemCount)
+        {
+            position = addGroup(layoutDescriptors, groupTable, position);
+        }
+        groups.build(newGroupSizes, newGroupHeights, newGroupCount);
+
+        updatedStart = 0;
+        updatedEnd = itemCount;
+    }
+
+    /**
+     * Recalculates the items that changed since the last build or update. Builds the entire index if it was never built,
+     * if it was cleared, or if the number of items or any of the sizes do not match the previous build.
+     *
+     * @param layoutDescriptors The cache to retrieve the spans and column of each item from.
+     * @param groupTable        The groups the items are divided in, up to date for the same items.
+     * @param itemCount         The number of items in the adapter.
+     * @param columnCount       The number of columns the items are divided over.
+     * @param wideHeight        Height of an item that spans all columns.
+     * @param rowHeight         Height of a single row, an item that is n rows high is n times this height.
+     */
+    public void update(final LayoutDescriptorCache layoutDescriptors, final GroupTable groupTable, final int itemCount, final int columnCount, final int wideHeight, final int rowHeight)
+    {
+        if (!built || itemCount != this.itemCount || columnCount != this.columnCount || wideHeight != this.wideHeight || rowHeight != this.rowHeight)
+        {
+            build(layoutDescriptors, groupTable, itemCount, columnCount, wideHeight, rowHeight);
+            return;
+        }
+
+        updatedStart = 0;
+        updatedEnd = 0;
+        if (!dirty)
+        {
+            return;
+        }
+        dirty = false;
+        if (itemCount == 0)
+        {
+            groups.clear();
+            return;
+        }
+
+        // Start at the group that contains the first change, the groups before it did not change.
+        final int firstGroup = dirtyStart < itemCount ? groups.findGroupAtPosition(dirtyStart) : groups.size() - 1;
+        int position = groups.getStart(firstGroup);
+        updatedStart = position;
+
+        // Walk along the previous groups, until a new group ends where a previous one ended after the changed range.
+        // A removal leaves a merged group that starts at dirtyEnd, so a group ending there is not enough.
+        int oldGroupEnd = position;
+        int oldGroup = firstGroup;
+        newGroupCount = 0;
+        while (position < itemCount)
+        {
+            position = addGroup(layoutDescriptors, groupTable, position);
+            while (oldGroupEnd < position)
+            {
+                oldGroupEnd += groups.getSize(oldGroup);
+                oldGroup++;
+            }
+            if (position > dirtyEnd && position == oldGroupEnd)
+            {
+                break;
+            }
+        }
+
+        groups.replace(firstGroup, oldGroup - firstGroup, newGroupSizes, newGroupHeights, newGroupCount);
+        updatedEnd = position;
+    }
+
+    /**
+     * Forgets all geometry, the next update builds the entire index.
+     */
+    public void clear()
+    {
+        built = false;
+    }
+
+    public void onItemsAdded(final int positionStart, final int count)
+    {
+        if (!built || positionStart > itemCount)
+        {
+            clear();
+            return;
+        }
+
+        columns.insert(positionStart, count, 0);
+        columnSpans.insert(positionStart, count, 0);
+        groupRelativeTops.insert(positionStart, count, 0);
+        heights.insert(positionStart, count, 0);
+
+        // The new items join the group they are inserted in, the next update splits it up again.
+        if (itemCount == 0)
+        {
+            newGroupSizes[0] = count;
+            newGroupHeights[0] = 0;
+            groups.replace(0, 0, newGroupSizes, newGroupHeights, 1);
+        }
+        else
+        {
+            final int group = positionStart < itemCount ? groups.findGroupAtPosition(positionStart) : groups.size() - 1;
+            newGroupSizes[0] = groups.getSize(group) + count;
+            newGroupHeights[0] = groups.getHeight(group);
+            groups.replace(group, 1, newGroupSizes, newGroupHeights, 1);
+        }
+        itemCount += count;
+
+        if (dirty && dirtyEnd >= positionStart)
+        {
+            dirtyEnd += count;
+        }
+        markDirty(positionStart, positionStart + count);
+    }
+
+    public void onItemsRemoved(final int positionStart, final int count)
+    {
+        if (!built || positionStart + count > itemCount)
+        {
+            clear();
+            return;
+        }
+        if (count <= 0)
+        {
+            return;
+        }
+
+        columns.remove(positionStart, count);
+        columnSpans.remove(positionStart, count);
+        groupRelativeTops.remove(positionStart, count);
+        heights.remove(positionStart, count);
+
+        // The groups that lose items are merged into one, the next update splits it up again.
+        final int firstGroup = groups.findGroupAtPosition(positionStart);
+        final int lastGroup = groups.findGroupAtPosition(positionStart + count - 1);
+        final int groupStart = groups.getStart(firstGroup);
+        final int remaining = groups.getStart(lastGroup) + groups.getSize(lastGroup) - groupStart - count;
+        newGroupSizes[0] = remaining;
+        newGroupHeights[0] = groups.getHeight(firstGroup);
+        groups.replace(firstGroup, lastGroup - firstGroup + 1, newGroupSizes, newGroupHeights, remaining > 0 ? 1 : 0);
+        itemCount -= count;
+
+        if (dirty && dirtyEnd > positionStart)
+        {
+            dirtyEnd = Math.max(positionStart, dirtyEnd - count);
+        }
+        // The merged group can end at the removed range, start recalculating at the merged group itself.
+        markDirty(groupStart, positionStart);
+    }
+
+    public void onItemsUpdated(final int positionStart, final int count)
+    {
+        if (positionStart < itemCount)
+        {
+            markDirty(positionStart, Math.min(positionStart + count, itemCount));
+        }
+    }
+
+    public void onItemsMoved(final int from, final int to, final int count)
+    {
+        // Everything between the old and new location shifts, recalculate that entire range.
+        onItemsUpdated(Math.min(from, to), Math.abs(from - to) + count);
+    }
+
+    /**
+     * @return The first position that was recalculated by the last build or update.
+     */
+    public int getUpdatedStart()
+    {
+        return updatedStart;
+    }
+
+    /**
+     * @return The position after the last one that was recalculated by the last build or update.
+     */
+    public int getUpdatedEnd()
+    {
+        return updatedEnd;
+    }
+
+    /**
+     * Replaces the height of a full width item, for example after a self sized View has been measured.
+     * Every item below it is moved by the difference. A full width item always ends its group,
+     * so only the height of that group changes.
+     *
+     * @param position The adapter position of a full width item.
+     * @param height   The new height of the item.
+     */
+    public void setFullWidthHeight(final int position, final int height)
+    {
+        final int delta = height - heights.get(position);
+        if (delta == 0)
+        {
+            return;
+        }
+
+        heights.set(position, height);
+        groups.addHeight(groups.findGroupAtPosition(position), delta);
+    }
+
+    /**
+     * Finds the item that covers the given offset. When several items share a row, the last of them is returned.
+     *
+     * @param offset Distance from the top of the content.
+     * @return The last position whose top is at or above the offset, or {@link #NO_POSITION} if there are no items.
+     */
+    public int findPositionAtOffset(final int offset)
+    {
+        final int group = findGroupAtOffset(offset);
+        if (group == NO_POSITION)
+        {
+            return NO_POSITION;
+        }
+
+        // Groups only hold a few items, walk through the one that covers the offset.
+        final int groupOffset = offset - getGroupTop(group);
+        int position = groups.getStart(group);
+        final int groupEnd = position + groups.getSize(group);
+        while (position + 1 < groupEnd && groupRelativeTops.get(position + 1) <= groupOffset)
+        {
+            position++;
+        }
+
+        return position;
+    }
+
+    /**
+     * Finds the group that covers the given offset.
+     *
+     * @param offset Distance from the top of the content.
+     * @return The index of the last group whose top is at or above the offset, or {@link #NO_POSITION} if there are no items.
+     */
+    public int findGroupAtOffset(final int offset)
+    {
+        if (groups.size() == 0)
+        {
+            return NO_POSITION;
+        }
+
+        return groups.findGroupAtOffset(offset);
+    }
+
+    public int getItemCount()
+    {
+        return itemCount;
+    }
+
+    public int getGroupCount()
+    {
+        return groups.size();
+    }
+
+    /**
+     * @return The index of the group the item at this position belongs to.
+     */
+    public int getGroup(final int position)
+    {
+        return groups.findGroupAtPosition(position);
+    }
+
+    /**
+     * @return The first adapter position of the group.
+     */
+    public int getGroupStart(final int group)
+    {
+        return groups.getStart(group);
+    }
+
+    /**
+     * @return The sum of the heights of all groups above this one.
+     */
+    public int getGroupTop(final int group)
+    {
+        return groups.getTop(group);
+    }
+
+    public int getGroupHeight(final int group)
+    {
+        return groups.getHeight(group);
+    }
+
+    /**
+     * @return The first column the item occupies.
+     */
+    public int getColumn(final int position)
+    {
+        return columns.get(position);
+    }
+
+    /**
+     * @return The number of columns the item occupies.
+     */
+    public int getColumnSpan(final int position)
+    {
+        return columnSpans.get(position);
+    }
+
+    /**
+     * @return The distance from the top of the group to the top of the item.
+     */
+    public int getGroupRelativeTop(final int position)
+    {
+        return groupRelativeTops.get(position);
+    }
+
+    public int getTop(final int position)
+    {
+        return groups.getTopAtPosition(position) + groupRelativeTops.get(position);
+    }
+
+    public int getHeight(final int position)
+    {
+        return heights.get(position);
+    }
+
+    public int getBottom(final int position)
+    {
+        return getTop(position) + heights.get(position);
+    }
+
+    /**
+     * @return The height of all content combined.
+     */
+    public int getTotalHeight()
+    {
+        return groups.getTotalHeight();
+    }
+
+    /**
+     * Calculates the items of the group that starts at a position and adds the group to the new groups.
+     *
+     * @return The first position after the group.
+     */
+    private int addGroup(final LayoutDescriptorCache layoutDescriptors, final GroupTable groupTable, final int groupStart)
+    {
+        Arrays.fill(bottoms, 0);
+
+        int position = groupStart;
+        do
+        {
+            final int descriptor = layoutDescriptors.get(position);
+            final int column = LayoutDescriptor.getColumn(descriptor, columnCount);
+            final int columnSpan = LayoutDescriptor.getColumnSpan(descriptor, columnCount);
+            final int height = LayoutDescriptor.isFullWidth(descriptor, columnCount) ? wideHeight : Math.max(1, LayoutDescriptor.getRowSpan(descriptor)) * rowHeight;
+
+            final int top = getLowestBottom(column, column + columnSpan);
+            Arrays.fill(bottoms, column, column + columnSpan, top + height);
+
+            columns.set(position, column);
+            columnSpans.set(position, columnSpan);
+            groupRelativeTops.set(position, top);
+            heights.set(position, height);
+            position++;
+        }
+        while (position < itemCount && !groupTable.isGroupStart(position));
+
+        if (newGroupCount == newGroupSizes.length)
+        {
+            newGroupSizes = Arrays.copyOf(newGroupSizes, newGroupCount * 2);
+            newGroupHeights = Arrays.copyOf(newGroupHeights, newGroupCount * 2);
+        }
+        newGroupSizes[newGroupCount] = position - groupStart;
+        // Columns can differ by a pixel after rounding the tile heights, start the next group below all of them.
+        newGroupHeights[newGroupCount] = getLowestBottom(0, columnCount);
+        newGroupCount++;
+
+        return position;
+    }
+
+    /**
+     * @return The largest bottom of the columns from start (inclusive) to end (exclusive).
+     */
+    private int getLowestBottom(final int start, final int end)
+    {
+        int bottom = 0;
+        for (int column = start; column < end; column++)
+        {
+            bottom = Math.max(bottom, bottoms[column]);
+        }
+
+        return bottom;
+    }
+
+    private void markDirty(final int start, final int end)
+    {
+        if (dirty)
+        {
+            dirtyStart = Math.min(dirtyStart, start);
+            dirtyEnd = Math.max(dirtyEnd, end);
+        }
+        else
+        {
+            dirtyStart = start;
+            dirtyEnd = end;
+            dirty = true;
+        }
+    }
+}
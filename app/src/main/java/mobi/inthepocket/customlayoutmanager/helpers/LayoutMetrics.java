@@ -0,0 +1,148 @@
+package mobi.inthepocket.customlayoutmanager.helpers;
+
+/**
+ * What the AdLayoutManager did during a single layout pass or scroll.
+ * <p>
+ * One instance is reused for every pass, so reporting does not allocate. Copy the values that have to be kept.
+ */
+public class LayoutMetrics
+{
+    public static final int PASS_LAYOUT = 0;
+    public static final int PASS_SCROLL = 1;
+
+    private int pass;
+    private long startNanos;
+    private long durationNanos;
+    private int scrolled;
+    private int viewsAdded;
+    private int viewsRecycled;
+    private int viewsMeasured;
+    private int viewsBound;
+    private int startSlack;
+    private int endSlack;
+
+    /**
+     * Clears the counts for a new pass.
+     *
+     * @param pass       {@link #PASS_LAYOUT} or {@link #PASS_SCROLL}.
+     * @param startNanos The time the pass started, from {@link System#nanoTime()}.
+     */
+    public void start(final int pass, final long startNanos)
+    {
+        this.pass = pass;
+        this.startNanos = startNanos;
+        durationNanos = 0;
+        scrolled = 0;
+        viewsAdded = 0;
+        viewsRecycled = 0;
+        viewsMeasured = 0;
+        viewsBound = 0;
+        startSlack = 0;
+        endSlack = 0;
+    }
+
+    /**
+     * @param endNanos   The time the pass ended, from {@link System#nanoTime()}.
+     * @param startSlack How far the attached Views reach beyond the start of the screen.
+     * @param endSlack   How far the attached Views reach beyond the end of the screen.
+     */
+    public void finish(final long endNanos, final int startSlack, final int endSlack)
+    {
+        durationNanos = endNanos - startNanos;
+        this.startSlack = startSlack;
+        this.endSlack = endSlack;
+    }
+
+    public void setScrolled(final int scrolled)
+    {
+        this.scrolled = scrolled;
+    }
+
+    /**
+     * @param bound Whether the View had to be bound to get it for its position.
+     */
+    public void onViewAdded(final boolean bound)
+    {
+        viewsAdded++;
+        if (bound)
+        {
+            viewsBound++;
+        }
+    }
+
+    public void onViewRecycled()
+    {
+        viewsRecycled++;
+    }
+
+    public void onViewMeasured()
+    {
+        viewsMeasured++;
+    }
+
+    /**
+     * @return {@link #PASS_LAYOUT} or {@link #PASS_SCROLL}.
+     */
+    public int getPass()
+    {
+        return pass;
+    }
+
+    public long getDurationNanos()
+    {
+        return durationNanos;
+    }
+
+    /**
+     * @return The distance the content actually scrolled, 0 for a layout pass.
+     */
+    public int getScrolled()
+    {
+        return scrolled;
+    }
+
+    /**
+     * @return The number of Views added to the RecyclerView, including Views that were picked up from the scrap again.
+     */
+    public int getViewsAdded()
+    {
+        return viewsAdded;
+    }
+
+    public int getViewsRecycled()
+    {
+        return viewsRecycled;
+    }
+
+    public int getViewsMeasured()
+    {
+        return viewsMeasured;
+    }
+
+    /**
+     * @return The number of added Views that were created or bound for a different item, or whose item changed.
+     * Estimated from the position each View was last laid out at: a View moved by items inserted or removed above it counts as well.
+     */
+    public int getViewsBound()
+    {
+        return viewsBound;
+    }
+
+    /**
+     * @return How far the attached Views reach beyond the start of the screen, in the column that reaches furthest.
+     * Negative when there is a gap, at the start of the content.
+     */
+    public int getStartSlack()
+    {
+        return startSlack;
+    }
+
+    /**
+     * @return How far the attached Views reach beyond the end of the screen, in the column that reaches furthest.
+     * Negative when there is a gap, at the end of the content.
+     */
+    public int getEndSlack()
+    {
+        return endSlack;
+    }
+}
@@ -0,0 +1,98 @@
+package mobi.inthepocket.customlayoutmanager.helpers;
+
+import mobi.inthepocket.customlayoutmanager.interfaces.LayoutMetricsListener;
+
+/**
+ * Collects the metrics of layout passes and scrolls in histograms, so they can be reported once in a while instead of per frame.
+ * Durations are recorded in microseconds.
+ */
+public class LayoutMetricsRecorder implements LayoutMetricsListener
+{
+    private final Histogram layoutMicros = new Histogram();
+    private final Histogram scrollMicros = new Histogram();
+    private final Histogram viewsAdded = new Histogram();
+    private final Histogram viewsRecycled = new Histogram();
+    private final Histogram viewsMeasured = new Histogram();
+    private final Histogram viewsBound = new Histogram();
+    private final Histogram startSlack = new Histogram();
+    private final Histogram endSlack = new Histogram();
+
+    @Override
+    public void onLayoutMetrics(final LayoutMetrics metrics)
+    {
+        final long micros = metrics.getDurationNanos() / 1000;
+        if (metrics.getPass() == LayoutMetrics.PASS_SCROLL)
+        {
+            scrollMicros.record(micros);
+        }
+        else
+        {
+            layoutMicros.record(micros);
+        }
+
+        viewsAdded.record(metrics.getViewsAdded());
+        viewsRecycled.record(metrics.getViewsRecycled());
+        viewsMeasured.record(metrics.getViewsMeasured());
+        viewsBound.record(metrics.getViewsBound());
+        startSlack.record(metrics.getStartSlack());
+        endSlack.record(metrics.getEndSlack());
+    }
+
+    public void clear()
+    {
+        layoutMicros.clear();
+        scrollMicros.clear();
+        viewsAdded.clear();
+        viewsRecycled.clear();
+        viewsMeasured.clear();
+        viewsBound.clear();
+        startSlack.clear();
+        endSlack.clear();
+    }
+
+    public Histogram getLayoutMicros()
+    {
+        return layoutMicros;
+    }
+
+    public Histogram getScrollMicros()
+    {
+        return scrollMicros;
+    }
+
+    public Histogram getViewsAdded()
+    {
+        return viewsAdded;
+    }
+
+    public Histogram getViewsRecycled()
+    {
+        return viewsRecycled;
+    }
+
+    public Histogram getViewsMeasured()
+    {
+        return viewsMeasured;
+    }
+
+    public Histogram getViewsBound()
+    {
+        return viewsBound;
+    }
+
+    /**
+     * @return The start slack of every pass. Gaps are counted as 0.
+     */
+    public Histogram getStartSlack()
+    {
+        return startSlack;
+    }
+
+    /**
+     * @return The end slack of every pass. Gaps are counted as 0.
+     */
+    public Histogram getEndSlack()
+    {
+        return endSlack;
+    }
+}
@@ -0,0 +1,146 @@
+package mobi.inthepocket.customlayoutmanager.helpers;
+
+import java.util.Arrays;
+
+/**
+ * Remembers the measured height of self sized items, keyed by the stable id of the item and the width it was measured at.
+ * <p>
+ * Entries are stored in primitive arrays with open addressing, so lookups and updates do not allocate.
+ */
+public class MeasuredHeightCache
+{
+    public static final int NO_HEIGHT = -1;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    // An empty slot has NO_HEIGHT as its height.
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private int[] widths = new int[INITIAL_CAPACITY];
+    private int[] heights = newHeights(INITIAL_CAPACITY);
+    private int size;
+
+    /**
+     * @param id    The stable id of the item.
+     * @param width The width the item will be laid out at.
+     * @return The height the item was measured at with this width, or {@link #NO_HEIGHT} if it is unknown.
+     */
+    public int get(final long id, final int width)
+    {
+        final int mask = heights.length - 1;
+        for (int slot = indexOf(id, mask); heights[slot] != NO_HEIGHT; slot = (slot + 1) & mask)
+        {
+            if (ids[slot] == id)
+            {
+                return widths[slot] == width ? heights[slot] : NO_HEIGHT;
+            }
+        }
+
+        return NO_HEIGHT;
+    }
+
+    /**
+     * Stores the measured height of an item. Replaces the value for any other width.
+     */
+    public void put(final long id, final int width, final int height)
+    {
+        if ((size + 1) * 4 > heights.length * 3)
+        {
+            resize(heights.length * 2);
+        }
+
+        final int mask = heights.length - 1;
+        int slot = indexOf(id, mask);
+        while (heights[slot] != NO_HEIGHT && ids[slot] != id)
+        {
+            slot = (slot + 1) & mask;
+        }
+
+        if (heights[slot] == NO_HEIGHT)
+        {
+            size++;
+        }
+        ids[slot] = id;
+        widths[slot] = width;
+        heights[slot] = Math.max(0, height);
+    }
+
+    /**
+     * Forgets the height of an item, for example because its content changed.
+     */
+    public void remove(final long id)
+    {
+        final int mask = heights.length - 1;
+        int slot = indexOf(id, mask);
+        while (heights[slot] != NO_HEIGHT && ids[slot] != id)
+        {
+            slot = (slot + 1) & mask;
+        }
+        if (heights[slot] == NO_HEIGHT)
+        {
+            return;
+        }
+
+        heights[slot] = NO_HEIGHT;
+        size--;
+
+        // Move later entries of the same run back, so lookups never stop at the new hole too early.
+        int hole = slot;
+        for (int i = (slot + 1) & mask; heights[i] != NO_HEIGHT; i = (i + 1) & mask)
+        {
+            if (((i - indexOf(ids[i], mask)) & mask) >= ((i - hole) & mask))
+            {
+                ids[hole] = ids[i];
+                widths[hole] = widths[i];
+                heights[hole] = heights[i];
+                heights[i] = NO_HEIGHT;
+                hole = i;
+            }
+        }
+    }
+
+    public void clear()
+    {
+        Arrays.fill(heights, NO_HEIGHT);
+        size = 0;
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    private void resize(final int capacity)
+    {
+        final long[] oldIds = ids;
+        final int[] oldWidths = widths;
+        final int[] oldHeights = heights;
+
+        ids = new long[capacity];
+        widths = new int[capacity];
+        heights = newHeights(capacity);
+        size = 0;
+
+        for (int i = 0; i < oldHeights.length; i++)
+        {
+            if (oldHeights[i] != NO_HEIGHT)
+            {
+                put(oldIds[i], oldWidths[i], oldHeights[i]);
+            }
+        }
+    }
+
+    private static int indexOf(final long id, final int mask)
+    {
+        // Spread the bits, stable ids are often consecutive.
+        final int hash = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private static int[] newHeights(final int capacity)
+    {
+        final int[] heights = new int[capacity];
+        Arrays.fill(heights, NO_HEIGHT);
+
+        return heights;
+    }
+}
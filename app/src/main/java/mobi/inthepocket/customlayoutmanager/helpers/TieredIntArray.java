@@ -0,0 +1,253 @@
+package mobi.inthepocket.customlayoutmanager.helpers;
+
+/**
+ * List of int values that supports inserting and removing in the middle without moving every value after it.
+ * <p>
+ * Values are stored in blocks of a fixed power of two size, each used as a ring buffer. All blocks are full except the last one.
+ * Reading a value is O(1). Inserting or removing a single value shifts the values of its own block and moves one value
+ * between each of the following blocks, so it is O(b + n / b). The block size b grows along with the list to stay close to the
+ * square root of n, which makes that O(sqrt(n)).
+ */
+public class TieredIntArray
+{
+    // Smallest block size is 1 << MIN_BLOCK_SHIFT.
+    private static final int MIN_BLOCK_SHIFT = 4;
+
+    private int blockShift = MIN_BLOCK_SHIFT;
+    private int blockMask = (1 << MIN_BLOCK_SHIFT) - 1;
+
+    private int[][] blocks = new int[0][];
+    // Index of the first value in each block.
+    private int[] heads = new int[0];
+    private int size;
+
+    public int size()
+    {
+        return size;
+    }
+
+    public int get(final int index)
+    {
+        final int block = index >> blockShift;
+
+        return blocks[block][(heads[block] + index) & blockMask];
+    }
+
+    public void set(final int index, final int value)
+    {
+        final int block = index >> blockShift;
+        blocks[block][(heads[block] + index) & blockMask] = value;
+    }
+
+    /**
+     * Sets the values from start (inclusive) to end (exclusive).
+     */
+    public void fill(final int start, final int end, final int value)
+    {
+        for (int index = start; index < end; index++)
+        {
+            set(index, value);
+        }
+    }
+
+    /**
+     * Grows the list by adding values at the end, or shrinks it by dropping values at the end.
+     *
+     * @param value The value of the added values.
+     */
+    public void setSize(final int size, final int value)
+    {
+        if (size > this.size)
+        {
+            insert(this.size, size - this.size, value);
+        }
+        else
+        {
+            this.size = size;
+        }
+    }
+
+    /**
+     * Inserts values. The values from the index onward move up by count.
+     *
+     * @param index The index of the first new value, from 0 to {@link #size()}.
+     * @param count The number of values to insert.
+     * @param value The value of the inserted values.
+     */
+    public void insert(final int index, final int count, final int value)
+    {
+        if (count <= 0)
+        {
+            return;
+        }
+
+        final int newSize = size + count;
+        // Keep the number of blocks close to the block size.
+        if (newSize > (1 << (2 * blockShift + 2)))
+        {
+            rebuild(index, 0, count, value, getBlockShift(newSize));
+            return;
+        }
+        if (index < size && count > blockMask)
+        {
+            // Many values in the middle: copying everything once is cheaper than shifting the blocks once per value.
+            rebuild(index, 0, count, value, blockShift);
+            return;
+        }
+
+        ensureCapacity(newSize);
+        if (index == size)
+        {
+            size = newSize;
+            fill(index, newSize, value);
+            return;
+        }
+        for (int i = 0; i < count; i++)
+        {
+            insertOne(index, value);
+        }
+    }
+
+    /**
+     * Removes values. The values after them move down by count.
+     *
+     * @param index The index of the first value to remove.
+     * @param count The number of values to remove.
+     */
+    public void remove(final int index, final int count)
+    {
+        if (count <= 0)
+        {
+            return;
+        }
+        if (index + count == size)
+        {
+            size = index;
+            return;
+        }
+        if (count > blockMask)
+        {
+            rebuild(index, count, 0, 0, blockShift);
+            return;
+        }
+
+        for (int i = 0; i < count; i++)
+        {
+            removeOne(index);
+        }
+    }
+
+    private void insertOne(final int index, final int value)
+    {
+        final int block = index >> blockShift;
+
+        // Starting at the end, every block passes its last value on to the front of the next block.
+        for (int b = size >> blockShift; b > block; b--)
+        {
+            final int carry = blocks[b - 1][(heads[b - 1] + blockMask) & blockMask];
+            heads[b] = (heads[b] - 1) & blockMask;
+            blocks[b][heads[b]] = carry;
+        }
+
+        // Shift the rest of the block. Its last value was passed on, or the block is the last one and has room.
+        final int[] values = blocks[block];
+        final int head = heads[block];
+        final int end = block == size >> blockShift ? size & blockMask : blockMask;
+        for (int i = end; i > (index & blockMask); i--)
+        {
+            values[(head + i) & blockMask] = values[(head + i - 1) & blockMask];
+        }
+        values[(head + index) & blockMask] = value;
+
+        size++;
+    }
+
+    private void removeOne(final int index)
+    {
+        final int block = index >> blockShift;
+        final int lastBlock = (size - 1) >> blockShift;
+
+        final int[] values = blocks[block];
+        final int head = heads[block];
+        final int end = block == lastBlock ? (size - 1) & blockMask : blockMask;
+        for (int i = index & blockMask; i < end; i++)
+        {
+            values[(head + i) & blockMask] = values[(head + i + 1) & blockMask];
+        }
+
+        // Every following block passes its first value on to the end of the block before it.
+        for (int b = block + 1; b <= lastBlock; b++)
+        {
+            blocks[b - 1][(heads[b - 1] + blockMask) & blockMask] = blocks[b][heads[b]];
+            heads[b] = (heads[b] + 1) & blockMask;
+        }
+
+        size--;
+    }
+
+    private void ensureCapacity(final int capacity)
+    {
+        final int blockCount = (capacity + blockMask) >> blockShift;
+        if (blockCount > blocks.length)
+        {
+            final int newLength = Math.max(blockCount, blocks.length + (blocks.length >> 1));
+            final int[][] newBlocks = new int[newLength][];
+            System.arraycopy(blocks, 0, newBlocks, 0, blocks.length);
+            blocks = newBlocks;
+            final int[] newHeads = new int[newLength];
+            System.arraycopy(heads, 0, newHeads, 0, heads.length);
+            heads = newHeads;
+        }
+        // Blocks are allocated in order, so only the blocks after the last allocated one are missing.
+        for (int b = blockCount - 1; b >= 0 && blocks[b] == null; b--)
+        {
+            blocks[b] = new int[blockMask + 1];
+        }
+    }
+
+    /**
+     * Copies all values into new blocks, removing and inserting values at an index on the way.
+     */
+    private void rebuild(final int index, final int removeCount, final int insertCount, final int value, final int newBlockShift)
+    {
+        final int newSize = size - removeCount + insertCount;
+        final int[] values = new int[newSize];
+        for (int i = 0; i < index; i++)
+        {
+            values[i] = get(i);
+        }
+        for (int i = index; i < index + insertCount; i++)
+        {
+            values[i] = value;
+        }
+        for (int i = index + removeCount; i < size; i++)
+        {
+            values[i - removeCount + insertCount] = get(i);
+        }
+
+        blockShift = newBlockShift;
+        blockMask = (1 << newBlockShift) - 1;
+        blocks = new int[0][];
+        heads = new int[0];
+        ensureCapacity(newSize);
+        for (int b = 0; b << blockShift < newSize; b++)
+        {
+            System.arraycopy(values, b << blockShift, blocks[b], 0, Math.min(blockMask + 1, newSize - (b << blockShift)));
+        }
+        size = newSize;
+    }
+
+    /**
+     * @return The block shift for which the block size is at least the square root of the size.
+     */
+    private static int getBlockShift(final int size)
+    {
+        int shift = MIN_BLOCK_SHIFT;
+        while (1L << (2 * shift) < size)
+        {
+            shift++;
+        }
+
+        return shift;
+    }
+}
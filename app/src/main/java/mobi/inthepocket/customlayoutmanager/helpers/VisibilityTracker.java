@@ -0,0 +1,306 @@
+package mobi.inthepocket.customlayoutmanager.helpers;
+
+import java.util.Arrays;
+
+import mobi.inthepocket.customlayoutmanager.interfaces.VisibilityListener;
+
+/**
+ * Keeps the visible part of a window of positions and reports when items enter or exit the screen,
+ * and when the visible part reaches or drops below a threshold.
+ * <p>
+ * The window moves along with the attached items: it grows when a position outside of it becomes visible,
+ * and drops the positions at its edges that are no longer visible. It never grows beyond the number of positions that can be visible at once,
+ * so a far jump does not stretch it over all positions in between. State is kept in primitive arrays indexed from the first position in the window,
+ * which only grow when the window becomes larger than it was before.
+ */
+public class VisibilityTracker
+{
+    public static final int EVENT_ENTER = 0;
+    public static final int EVENT_EXIT = 1;
+    public static final int EVENT_THRESHOLD_REACHED = 2;
+    public static final int EVENT_THRESHOLD_LOST = 3;
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final VisibilityListener listener;
+    private final int thresholdPercent;
+
+    // First position in the window and the number of positions in it.
+    private int firstPosition;
+    private int count;
+    // Visible percentage of each position in the window, 0 when it is not visible.
+    private int[] percents = new int[INITIAL_CAPACITY];
+    // Time each position entered the screen and the time its visible part reached the threshold.
+    private long[] enterTimes = new long[INITIAL_CAPACITY];
+    private long[] thresholdTimes = new long[INITIAL_CAPACITY];
+
+    /**
+     * @param listener         The listener to report to.
+     * @param thresholdPercent The visible percentage that counts as seen, from 1 to 100.
+     */
+    public VisibilityTracker(final VisibilityListener listener, final int thresholdPercent)
+    {
+        this.listener = listener;
+        this.thresholdPercent = Math.max(1, Math.min(thresholdPercent, 100));
+    }
+
+    public int getThresholdPercent()
+    {
+        return thresholdPercent;
+    }
+
+    /**
+     * @return The visible percentage of a position, 0 if it is not visible or outside of the window.
+     */
+    public int getVisiblePercent(final int position)
+    {
+        final int index = position - firstPosition;
+
+        return index >= 0 && index < count ? percents[index] : 0;
+    }
+
+    /**
+     * Moves the window to a new range of positions. Visible positions that are no longer in the window exit.
+     *
+     * @param first The first position in the window.
+     * @param last  The last position in the window, inclusive. Smaller than first for an empty window.
+     * @param now   The current time in milliseconds.
+     */
+    public void moveWindow(final int first, final int last, final long now)
+    {
+        final int newCount = Math.max(0, last - first + 1);
+
+        // Positions that fall out of the window exit first.
+        for (int index = 0; index < count; index++)
+        {
+            final int position = firstPosition + index;
+            if (position < first || position >= first + newCount)
+            {
+                setPercent(index, position, 0, now);
+            }
+        }
+
+        ensureCapacity(newCount);
+
+        // Keep the state of the positions that are in both windows, at their new index.
+        final int overlapFirst = Math.max(first, firstPosition);
+        final int overlapEnd = Math.min(first + newCount, firstPosition + count);
+        if (overlapFirst < overlapEnd)
+        {
+            final int from = overlapFirst - firstPosition;
+            final int to = overlapFirst - first;
+            final int length = overlapEnd - overlapFirst;
+            System.arraycopy(percents, from, percents, to, length);
+            System.arraycopy(enterTimes, from, enterTimes, to, length);
+            System.arraycopy(thresholdTimes, from, thresholdTimes, to, length);
+            clear(0, to);
+            clear(to + length, newCount);
+        }
+        else
+        {
+            clear(0, newCount);
+        }
+
+        firstPosition = first;
+        count = newCount;
+    }
+
+    /**
+     * Updates the visible part of a position and reports the events it causes. The window is moved to include the position if it becomes visible.
+     *
+     * @param percent  The visible percentage, from 0 to 100.
+     * @param now      The current time in milliseconds.
+     * @param maxCount The number of positions that can be visible at once, for example the number of Views.
+     *                 Positions at the far end of the window exit when including the position would make it larger.
+     */
+    public void setVisiblePercent(final int position, final int percent, final long now, final int maxCount)
+    {
+        int index = position - firstPosition;
+        if (index < 0 || index >= count)
+        {
+            // Positions outside of the window are not visible.
+            if (percent == 0)
+            {
+                return;
+            }
+            includePosition(position, now, maxCount);
+            index = position - firstPosition;
+        }
+        setPercent(index, position, percent, now);
+    }
+
+    /**
+     * Lets all visible positions exit and empties the window, for example when the adapter was replaced.
+     */
+    public void clear(final long now)
+    {
+        moveWindow(0, -1, now);
+    }
+
+    /**
+     * Shifts the positions after inserted items. Inserted items start out invisible.
+     *
+     * @param now The current time in milliseconds.
+     */
+    public void onItemsInserted(final int positionStart, final int itemCount, final long now)
+    {
+        if (positionStart <= firstPosition)
+        {
+            firstPosition += itemCount;
+        }
+        else if (positionStart < firstPosition + count && itemCount > count)
+        {
+            // The inserted items push the later positions away, they exit instead of the window growing over all inserted items.
+            final int index = positionStart - firstPosition;
+            for (int i = index; i < count; i++)
+            {
+                setPercent(i, firstPosition + i + itemCount, 0, now);
+            }
+            count = index;
+        }
+        else if (positionStart < firstPosition + count)
+        {
+            // Items inserted inside the window: the window grows, so no position has to exit.
+            final int index = positionStart - firstPosition;
+            ensureCapacity(count + itemCount);
+            System.arraycopy(percents, index, percents, index + itemCount, count - index);
+            System.arraycopy(enterTimes, index, enterTimes, index + itemCount, count - index);
+            System.arraycopy(thresholdTimes, index, thresholdTimes, index + itemCount, count - index);
+            clear(index, index + itemCount);
+            count += itemCount;
+        }
+    }
+
+    /**
+     * Removed items that were visible exit. The positions after them shift.
+     *
+     * @param now The current time in milliseconds.
+     */
+    public void onItemsRemoved(final int positionStart, final int itemCount, final long now)
+    {
+        final int removedStart = Math.max(positionStart, firstPosition);
+        final int removedEnd = Math.min(positionStart + itemCount, firstPosition + count);
+        if (removedStart < removedEnd)
+        {
+            for (int position = removedStart; position < removedEnd; position++)
+            {
+                setPercent(position - firstPosition, position, 0, now);
+            }
+
+            final int index = removedStart - firstPosition;
+            final int length = removedEnd - removedStart;
+            final int tail = count - index - length;
+            System.arraycopy(percents, index + length, percents, index, tail);
+            System.arraycopy(enterTimes, index + length, enterTimes, index, tail);
+            System.arraycopy(thresholdTimes, index + length, thresholdTimes, index, tail);
+            count -= length;
+        }
+
+        // Shift the window by the removed items before it.
+        firstPosition -= Math.max(0, Math.min(positionStart + itemCount, firstPosition) - positionStart);
+    }
+
+    /**
+     * Calculates the visible part of an item along the scroll axis.
+     *
+     * @return The percentage of the item between the start and the end of the screen, from 0 to 100.
+     */
+    public static int getVisiblePercent(final int top, final int bottom, final int screenStart, final int screenEnd)
+    {
+        final int height = bottom - top;
+        if (height <= 0)
+        {
+            return 0;
+        }
+
+        final int visible = Math.min(bottom, screenEnd) - Math.max(top, screenStart);
+
+        return visible <= 0 ? 0 : (int) (visible * 100L / height);
+    }
+
+    /**
+     * Moves the window so it includes a position. Positions at the edges of the window that are not visible are dropped first,
+     * so the window does not keep growing while items scroll by. After a jump the old positions are too far away to still be visible:
+     * the window is limited to maxCount positions from the new one and the positions beyond exit.
+     */
+    private void includePosition(final int position, final long now, final int maxCount)
+    {
+        int first = firstPosition;
+        int last = firstPosition + count - 1;
+        while (first <= last && percents[first - firstPosition] == 0)
+        {
+            first++;
+        }
+        while (last >= first && percents[last - firstPosition] == 0)
+        {
+            last--;
+        }
+
+        if (first > last)
+        {
+            moveWindow(position, position, now);
+            return;
+        }
+
+        final int limit = Math.max(1, maxCount);
+        if (position > last)
+        {
+            moveWindow(Math.max(first, position - limit + 1), position, now);
+        }
+        else
+        {
+            moveWindow(position, Math.min(last, position + limit - 1), now);
+        }
+    }
+
+    private void setPercent(final int index, final int position, final int percent, final long now)
+    {
+        final int oldPercent = percents[index];
+        if (oldPercent == percent)
+        {
+            return;
+        }
+        percents[index] = percent;
+
+        if (oldPercent == 0)
+        {
+            enterTimes[index] = now;
+            listener.onVisibilityChanged(position, EVENT_ENTER, percent, 0);
+        }
+        if (oldPercent < thresholdPercent && percent >= thresholdPercent)
+        {
+            thresholdTimes[index] = now;
+            listener.onVisibilityChanged(position, EVENT_THRESHOLD_REACHED, percent, now - enterTimes[index]);
+        }
+        else if (oldPercent >= thresholdPercent && percent < thresholdPercent)
+        {
+            listener.onVisibilityChanged(position, EVENT_THRESHOLD_LOST, percent, now - thresholdTimes[index]);
+        }
+        if (percent == 0)
+        {
+            listener.onVisibilityChanged(position, EVENT_EXIT, 0, now - enterTimes[index]);
+        }
+    }
+
+    /**
+     * Marks the positions from start (inclusive) to end (exclusive) in the window as not visible.
+     */
+    private void clear(final int start, final int end)
+    {
+        if (start < end)
+        {
+            Arrays.fill(percents, start, end, 0);
+        }
+    }
+
+    private void ensureCapacity(final int capacity)
+    {
+        if (capacity > percents.length)
+        {
+            final int newCapacity = Math.max(capacity, percents.length * 2);
+            percents = Arrays.copyOf(percents, newCapacity);
+            enterTimes = Arrays.copyOf(enterTimes, newCapacity);
+            thresholdTimes = Arrays.copyOf(thresholdTimes, newCapacity);
+        }
+    }
+}
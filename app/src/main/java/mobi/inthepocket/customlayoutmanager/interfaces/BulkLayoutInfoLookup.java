@@ -0,0 +1,20 @@
+package mobi.inthepocket.customlayoutmanager.interfaces;
+
+import mobi.inthepocket.customlayoutmanager.helpers.LayoutDescriptor;
+
+/**
+ * Optional extension of {@link LayoutInfoLookup} that supplies the layout info of a range of items in one call,
+ * packed as {@link LayoutDescriptor} values.
+ * The LayoutManager then no longer needs several calls per item to lay it out.
+ */
+public interface BulkLayoutInfoLookup extends LayoutInfoLookup
+{
+    /**
+     * Writes the packed layout info for a range of items.
+     *
+     * @param positionStart The adapter position of the first item.
+     * @param itemCount     The number of items in the range. The range never exceeds the number of items in the adapter.
+     * @param descriptors   The array to write to. The descriptor for positionStart + i is written at index i.
+     */
+    void getLayoutDescriptors(final int positionStart, final int itemCount, final int[] descriptors);
+}
@@ -1,11 +1,7 @@
 package mobi.inthepocket.customlayoutmanager.interfaces;
 
-import mobi.inthepocket.customlayoutmanager.enums.LayoutGravity;
-import mobi.inthepocket.customlayoutmanager.enums.SpanCount;
-import mobi.inthepocket.customlayoutmanager.layoutmanagers.AdLayoutManager;
-
 /**
- * Used by the {@link AdLayoutManager}
+ * Used by the {@link mobi.inthepocket.customlayoutmanager.layoutmanagers.AdLayoutManager}
  * to retrieve information required to correctly display each item in the feed.
  */
 public interface LayoutInfoLookup
@@ -14,22 +10,26 @@ public interface LayoutInfoLookup
      * The number of rows occupied by this item.
      * The large item in a trio will have 2, the rest 1.
      */
-    SpanCount getRowSpan(final int position);
+    int getRowSpan(final int position);
 
     /**
-     * The number of columns occupied by this item.
+     * The number of columns occupied by this item, at most the column count of the LayoutManager.
+     * Items that span all columns are full width items. Return {@link mobi.inthepocket.customlayoutmanager.helpers.LayoutDescriptor#MAX_SPAN}
+     * for items that should be full width for any column count.
      */
-    SpanCount getColumnSpan(final int position);
+    int getColumnSpan(final int position);
 
     /**
      * Whether to let this View determine its own size or to give it a specific size in the LayoutManager.
+     * Only used for full width items.
      *
      * @return true if the View's XML will determine the size. False if the size will be determined by the LayoutManager.
      */
     boolean useViewSize(final int position);
 
     /**
-     * Set whether the item should be placed in the left or right column.
+     * The index of the first column occupied by this item, starting at 0 for the left column.
+     * Ignored by full width items.
      */
-    LayoutGravity getGravity(final int position);
+    int getColumn(final int position);
 }
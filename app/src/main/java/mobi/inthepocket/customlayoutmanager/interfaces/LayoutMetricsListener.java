@@ -0,0 +1,16 @@
+package mobi.inthepocket.customlayoutmanager.interfaces;
+
+import mobi.inthepocket.customlayoutmanager.helpers.LayoutMetrics;
+
+/**
+ * Receives what the {@link mobi.inthepocket.customlayoutmanager.layoutmanagers.AdLayoutManager} did in each layout pass and scroll.
+ */
+public interface LayoutMetricsListener
+{
+    /**
+     * Called on the main thread at the end of every layout pass and scroll. Keep this fast, it is part of the frame.
+     *
+     * @param metrics The metrics of the pass. The same instance is reused for the next pass.
+     */
+    void onLayoutMetrics(final LayoutMetrics metrics);
+}
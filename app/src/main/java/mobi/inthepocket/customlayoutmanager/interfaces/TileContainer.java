@@ -0,0 +1,127 @@
+package mobi.inthepocket.customlayoutmanager.interfaces;
+
+import mobi.inthepocket.customlayoutmanager.helpers.FeedLayoutEngine;
+import mobi.inthepocket.customlayoutmanager.helpers.LayoutDescriptor;
+
+/**
+ * The tiles a {@link FeedLayoutEngine} places, and the space it places them in.
+ * The AdLayoutManager implements this with child Views, the benchmarks with primitive arrays.
+ * <p>
+ * Tiles are indexed in the order they are attached: tiles added at the end get the highest index, tiles added at the start index 0.
+ * Tops and bottoms are along the scroll axis, in the coordinates of the container.
+ */
+public interface TileContainer
+{
+    int getTileCount();
+
+    /**
+     * @return The position the tile was laid out for, or its new position when items were added or removed before it.
+     */
+    int getTilePosition(final int index);
+
+    int getTileTop(final int index);
+
+    int getTileBottom(final int index);
+
+    /**
+     * @return The first column the tile was placed in.
+     */
+    int getTileColumn(final int index);
+
+    /**
+     * @return The number of columns the tile was placed in.
+     */
+    int getTileColumnSpan(final int index);
+
+    /**
+     * @return true if the item of the tile was removed from the adapter. Only the pre-layout pass of an animation still lays those out.
+     */
+    boolean isTileRemoved(final int index);
+
+    /**
+     * @return true if the content of the tile asked to be laid out again, so it can not be kept as it is.
+     */
+    boolean isTileChanged(final int index);
+
+    /**
+     * @return false if the tile has to stay attached, for example because it has focus.
+     */
+    boolean canRecycleTile(final int index);
+
+    /**
+     * Converts a position of the pre-layout pass, which is from before the pending adapter changes, to the current position.
+     *
+     * @return The current position, or {@link FeedLayoutEngine#NO_POSITION} if the item was removed.
+     */
+    int convertPreLayoutPosition(final int position);
+
+    /**
+     * Prepares a new tile for a position. It is placed by the next {@link #addTile(int, boolean, int, int, int, int)}.
+     *
+     * @param position   The position of the item.
+     * @param descriptor The {@link LayoutDescriptor} of the item, or {@link LayoutDescriptor#UNKNOWN} for a removed item.
+     * @return The descriptor to lay out the tile with. For removed items, the one the tile was last laid out with.
+     */
+    int obtainTile(final int position, final int descriptor);
+
+    /**
+     * Measures the prepared tile of a full width item that determines its own size.
+     *
+     * @param atEnd Whether the tile will be added at the end (true) or at the start (false).
+     * @return The size of the tile along the scroll axis.
+     */
+    int measureTile(final boolean atEnd);
+
+    /**
+     * Attaches the prepared tile, at the given place.
+     *
+     * @param position  The position of the item.
+     * @param atEnd     Whether the tile is added at the end (true) or at the start (false).
+     * @param column    The first column of the tile.
+     * @param columnEnd The column after the last column of the tile.
+     * @param top       Top of the tile.
+     * @param bottom    Bottom of the tile.
+     */
+    void addTile(final int position, final boolean atEnd, final int column, final int columnEnd, final int top, final int bottom);
+
+    /**
+     * Removes a tile that is no longer needed, so it can be reused for another item.
+     */
+    void removeTile(final int index);
+
+    /**
+     * Detaches the tiles from an index onward. A detached tile is reused if the same position is added again in the same pass.
+     */
+    void scrapTiles(final int fromIndex);
+
+    /**
+     * Moves all tiles the same distance along the scroll axis.
+     */
+    void offsetTiles(final int offset);
+
+    /**
+     * @return The size a self sized item was last measured at for the current cross axis size,
+     * or {@link FeedLayoutEngine#NO_SIZE} if it is not known.
+     */
+    int getMeasuredSize(final int position);
+
+    /**
+     * @return The start of the space tiles are laid out in, after padding.
+     */
+    int getStartAfterPadding();
+
+    /**
+     * @return The end of the space tiles are laid out in, after padding.
+     */
+    int getEndAfterPadding();
+
+    /**
+     * @return The size of the container along the scroll axis. Tiles beyond it are recycled.
+     */
+    int getScrollAxisSize();
+
+    /**
+     * @return The size of the container along the other axis, divided over the columns.
+     */
+    int getCrossAxisSize();
+}
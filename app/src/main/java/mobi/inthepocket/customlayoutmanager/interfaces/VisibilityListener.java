@@ -0,0 +1,20 @@
+package mobi.inthepocket.customlayoutmanager.interfaces;
+
+import mobi.inthepocket.customlayoutmanager.helpers.VisibilityTracker;
+
+/**
+ * Receives changes in how much of each item is visible, for example to count ad impressions.
+ */
+public interface VisibilityListener
+{
+    /**
+     * Called on the main thread, during a layout pass or scroll.
+     *
+     * @param position       The adapter position of the item.
+     * @param event          One of the {@link VisibilityTracker} EVENT values.
+     * @param visiblePercent The part of the item that is visible now, from 0 to 100.
+     * @param durationMillis For {@link VisibilityTracker#EVENT_THRESHOLD_LOST} the time the item was visible for at least the threshold,
+     *                       for the other events the time since the item entered the screen.
+     */
+    void onVisibilityChanged(final int position, final int event, final int visiblePercent, final long durationMillis);
+}
@@ -1,766 +1,2023 @@
 package mobi.inthepocket.customlayoutmanager.layoutmanagers;
 
+import android.content.Context;
 import android.graphics.PointF;
 import android.graphics.Rect;
+import android.os.Build;
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.support.annotation.VisibleForTesting;
 import android.support.v7.widget.LinearSmoothScroller;
+import android.support.v7.widget.OrientationHelper;
 import android.support.v7.widget.RecyclerView;
+import android.util.AttributeSet;
 import android.view.View;
 import android.view.ViewGroup;
 
-import mobi.inthepocket.customlayoutmanager.enums.LayoutGravity;
+import java.util.Arrays;
+import java.util.List;
+
+import mobi.inthepocket.customlayoutmanager.helpers.ColumnEdges;
+import mobi.inthepocket.customlayoutmanager.helpers.FeedLayoutEngine;
+import mobi.inthepocket.customlayoutmanager.helpers.LayoutDescriptor;
+import mobi.inthepocket.customlayoutmanager.helpers.LayoutIndex;
+import mobi.inthepocket.customlayoutmanager.helpers.LayoutMetrics;
+import mobi.inthepocket.customlayoutmanager.helpers.MeasuredHeightCache;
+import mobi.inthepocket.customlayoutmanager.helpers.VisibilityTracker;
+import mobi.inthepocket.customlayoutmanager.interfaces.BulkLayoutInfoLookup;
 import mobi.inthepocket.customlayoutmanager.interfaces.LayoutInfoLookup;
-
-import static mobi.inthepocket.customlayoutmanager.enums.SpanCount.TWO;
+import mobi.inthepocket.customlayoutmanager.interfaces.LayoutMetricsListener;
+import mobi.inthepocket.customlayoutmanager.interfaces.TileContainer;
+import mobi.inthepocket.customlayoutmanager.interfaces.VisibilityListener;
 
 
 /**
- * Adapter that lays out views in two columns. Views can span one or two rows or columns.
- * Valid sizes are 1x1, 1x2, 2x1.
- * Valid "groups" are UNO (2x1),  DUO (1x1 + 1x1) and TRIO (1x1 + 1x2 + 1x1) (both left and right variant).
+ * Adapter that lays out views in a number of columns, two by default. Views can span any number of rows and up to all columns.
+ * A View is placed in the column returned by {@link LayoutInfoLookup#getColumn(int)}, below the lowest of the columns it spans.
+ * Views that span all columns are full width and can determine their own height.
+ * In a two column feed the valid "groups" are UNO (2x1),  DUO (1x1 + 1x1) and TRIO (1x1 + 1x2 + 1x1) (both left and right variant).
+ * <p>
+ * The feed scrolls vertically by default. In the {@link #HORIZONTAL} orientation the same tiling is turned on its side:
+ * columns become rows from top to bottom and the feed scrolls to the right. All geometry in this class is described for the vertical
+ * orientation. In the horizontal orientation tops and bottoms are the left and right edges, widths are heights.
+ * <p>
+ * With {@link #setStackFromEnd(boolean)} the feed starts at the end of the content and keeps the end anchored to the bottom,
+ * for feeds in which new items appear at the bottom.
  * <p>
  * Views need to be in an order that will not create layout gaps.
  * It is for example not allowed to create a feed order where View 5 and 7 are on screen, but 6 is offscreen.
+ * <p>
+ * The placement itself is done by a {@link FeedLayoutEngine}, which reaches the child Views through a {@link TileContainer}.
  */
 public class AdLayoutManager extends RecyclerView.LayoutManager
 {
-    // First adapter position currently visible.
-    private int firstPosition;
-
-    private LayoutInfoLookup layoutInfoLookup;
-
-    // Top of the first item in each column.
-    // New Views added when scrolling up will be placed with their bottoms aligns with the top of this previous View.
-    private int topLeft, topRight;
-    // Bottom of the last item in each column.
-    // New Views added when scrolling down will be placed so that their top aligns with the bottom of this previous View.
-    private int bottomLeft, bottomRight;
-
-    // Fixed ratios to determine the Views' height based on the screen or column width.
-    private float ratioWide;
-    private float ratioStandard;
-    private float ratioTall;
+    public static final int DEFAULT_COLUMN_COUNT = 2;
+
+    public static final int HORIZONTAL = OrientationHelper.HORIZONTAL;
+    public static final int VERTICAL = OrientationHelper.VERTICAL;
+
+    // Names of the trace sections, as they show up in systrace.
+    private static final String TRACE_LAYOUT = "AdLayoutManager layout";
+    private static final String TRACE_SCROLL = "AdLayoutManager scroll";
+
+    // The child Views, as seen by the engine.
+    private final ViewTileContainer tileContainer;
+    // Places the child Views: fills the screen, scrolls, jumps and recycles. Keeps the layout info of the items up to date.
+    private final FeedLayoutEngine engine;
+
+    // The direction the feed scrolls in. Columns are divided over the other axis.
+    private int orientation = VERTICAL;
+
+    // Set to anchor the layout on the end of the content instead of on its start.
+    private boolean stackFromEnd;
+
+    private int columnCount;
+
+    // Absolute geometry of all items, used to answer position and offset questions without walking the attached Views. Kept by the engine.
+    private final LayoutIndex layoutIndex;
+    // Measured heights of self sized items, by stable id. Lets the index place them before they are measured again.
+    private final MeasuredHeightCache measuredHeights = new MeasuredHeightCache();
+
+    // The RecyclerView this LayoutManager is attached to, used to look up stable ids.
+    private RecyclerView recyclerView;
+
+    // Number of items to prefetch when this LayoutManager is nested in another scrolling RecyclerView.
+    private int initialPrefetchItemCount = 2;
+
+    // While flinging, Views are also laid out for the distance the fling covers in this many frames.
+    private int flingLayoutFrames;
+    // Scroll state of the RecyclerView, one of the RecyclerView.SCROLL_STATE values.
+    private int scrollState = RecyclerView.SCROLL_STATE_IDLE;
+    // Views laid out beyond the edges of the screen, and how many of those scrolled into view without being created during that frame.
+    private int extraLayoutViewCount;
+    private int avoidedFrameCreationCount;
+    // Number of times a child View was measured.
+    private int measuredChildCount;
+
+    // Receives the metrics of every layout pass and scroll, null when metrics are disabled.
+    private LayoutMetricsListener metricsListener;
+    private final LayoutMetrics metrics = new LayoutMetrics();
+    // The metrics of the pass that is running, null outside of a pass or when metrics are disabled.
+    private LayoutMetrics activeMetrics;
+    // Set to wrap layout passes and scrolls in android.os.Trace sections.
+    private boolean traceEnabled;
+    // Set when the running pass opened a trace section. Tracing can be toggled during a pass, the section is still closed.
+    private boolean traceSectionOpen;
+
+    // Visible part of the attached items, null when visibility tracking is disabled.
+    private VisibilityTracker visibilityTracker;
+    // Time of the running pass, used for all visibility changes in it.
+    private long passUptimeMillis;
+    // Total distance the children were offset in the running pass. Only Views this close to an edge of the screen can have crossed it.
+    private int passOffsetDistance;
+
+    // Reused for every measured child so measuring does not allocate.
+    private final Rect decorationInsets = new Rect();
+
+    // Scroll position restored from a saved instance state, used by the next layout pass.
+    private SavedState pendingSavedState;
+
+    // Position and offset requested through scrollToPositionWithOffset, used by the next layout pass.
+    private int pendingScrollPosition = RecyclerView.NO_POSITION;
+    private int pendingScrollOffset;
+
+    // Positions returned by the find...VisibleItemPosition methods. Calculated on the first call after the children moved.
+    private int firstVisiblePosition;
+    private int firstCompletelyVisiblePosition;
+    private int lastVisiblePosition;
+    private int lastCompletelyVisiblePosition;
+    private boolean visiblePositionsValid;
+
+    // Set while Views that are about to animate off screen are laid out. These are added as disappearing Views.
+    private boolean addingDisappearingViews;
 
     /**
+     * Creates a LayoutManager with {@link #DEFAULT_COLUMN_COUNT} columns.
+     *
      * @param layoutInfoLookup The {@link LayoutInfoLookup} to use to retrieve info for the items in the adapter.
+     *                         Implement {@link BulkLayoutInfoLookup} to supply the info for several items at once.
      */
     public AdLayoutManager(LayoutInfoLookup layoutInfoLookup)
     {
-        ratioWide = 1.31f;
-        ratioStandard = 1f;
-        // Twice the height of a standard tile
-        ratioTall = ratioStandard / 2;
-
-        this.layoutInfoLookup = layoutInfoLookup;
+        this(layoutInfoLookup, DEFAULT_COLUMN_COUNT);
     }
 
-    @Override
-    public RecyclerView.LayoutParams generateDefaultLayoutParams()
+    /**
+     * @param layoutInfoLookup The {@link LayoutInfoLookup} to use to retrieve info for the items in the adapter.
+     *                         Implement {@link BulkLayoutInfoLookup} to supply the info for several items at once.
+     * @param columnCount      The number of columns to divide the items over.
+     */
+    public AdLayoutManager(LayoutInfoLookup layoutInfoLookup, int columnCount)
     {
-        return new RecyclerView.LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT);
+        this(layoutInfoLookup, columnCount, VERTICAL);
     }
 
-    @Override
-    public void onLayoutChildren(RecyclerView.Recycler recycler, RecyclerView.State state)
+    /**
+     * @param layoutInfoLookup The {@link LayoutInfoLookup} to use to retrieve info for the items in the adapter.
+     *                         Implement {@link BulkLayoutInfoLookup} to supply the info for several items at once.
+     * @param columnCount      The number of columns to divide the items over.
+     * @param orientation      {@link #VERTICAL} or {@link #HORIZONTAL}, for example for a carousel nested in a vertical feed.
+     */
+    public AdLayoutManager(LayoutInfoLookup layoutInfoLookup, int columnCount, int orientation)
     {
-        // Having the large item in a trio as firstPosition here causes several issues.
-        // Ugly fix applied here shifts firstPosition back by one so we start from the first item of the trio.
-        // This makes sure we can use the child at 0 for both left and right position values.
-        if (layoutInfoLookup.getRowSpan(firstPosition) == TWO)
-        {
-            firstPosition--;
-        }
+        tileContainer = new ViewTileContainer();
+        engine = new FeedLayoutEngine(layoutInfoLookup, tileContainer, DEFAULT_COLUMN_COUNT);
+        layoutIndex = engine.getLayoutIndex();
+
+        setColumnCount(columnCount);
+        setOrientation(orientation);
+    }
 
-        // Check if this is the initial layout or if there are already child Views attached.
-        final View oldTopView = getChildAt(0);
-        if (oldTopView == null)
+    /**
+     * Changes the direction the feed scrolls in. The tiling stays the same, turned on its side.
+     *
+     * @param orientation {@link #VERTICAL} or {@link #HORIZONTAL}.
+     */
+    public void setOrientation(final int orientation)
+    {
+        if (orientation != HORIZONTAL && orientation != VERTICAL)
         {
-            // Clean initial layout. Use the default start values.
-            topLeft = topRight = bottomLeft = bottomRight = getPaddingTop();
+            throw new IllegalArgumentException("Invalid orientation: " + orientation);
         }
-        else
+        if (orientation == this.orientation)
         {
-            // onLayoutChildren can also be called for situations other than the initial layout:
-            // a child View requested a new layout, notifyDataSetChanged was called on the adapter, scrollToPosition was used,....
-            // We record the top/bottom values here so we can detach all child Views and then lay them out again in the same position.
-            topLeft = topRight = bottomLeft = bottomRight = getDecoratedTop(oldTopView);
+            return;
         }
 
-        final int parentBottom = getHeight() - getPaddingBottom();
-
-        detachAndScrapAttachedViews(recycler);
-
-        final int count = state.getItemCount();
-
-        // Keep adding views until we run out of items or until the visible area has been filled with Views.
-        for (int i = 0; firstPosition + i < count && (bottomRight < parentBottom || bottomLeft < parentBottom); i++)
-        {
-            final int currentPosition = firstPosition + i;
+        this.orientation = orientation;
 
-            addViewForPosition(recycler, currentPosition, true);
-        }
+        // Tile sizes and measured sizes are along the other axis now.
+        measuredHeights.clear();
+        engine.invalidate();
+        requestLayout();
     }
 
-    @Override
-    public boolean canScrollVertically()
+    public int getOrientation()
     {
-        return true;
+        return orientation;
     }
 
     /**
-     * Scrolls the currently attached child Views up or down after checking the distance they can be moved.
-     * Empty space created by this scroll event will be filled with new Views.
+     * Anchors the feed on the end of its content. The first layout shows the end of the content, content that does not fill
+     * the screen is placed against the bottom, and while the end is visible, items added at the end push the content up.
+     * The order of the items does not change.
      *
-     * @param dy       The distance of the scroll event. Child Views should be moved this distance if possible.
-     * @param recycler Recycler to retrieve new Views from.
-     * @param state    Current RecyclerView state.
-     * @return The distance the child Views were actually moved.
+     * @param stackFromEnd true to anchor on the end of the content.
      */
-    @Override
-    public int scrollVerticallyBy(final int dy, final RecyclerView.Recycler recycler, final RecyclerView.State state)
+    public void setStackFromEnd(final boolean stackFromEnd)
     {
-        if (getChildCount() == 0)
+        if (stackFromEnd == this.stackFromEnd)
         {
-            return 0;
+            return;
         }
 
-        int scrolled = 0;
-
-        if (dy < 0)
-        {
-            while (scrolled > dy)
-            {
-                // Scrolling up
-
-                // Compare the top views in each column. Use the one that is going to cause gaps first.
-                final int top = Math.max(topLeft, topRight);
-                // Check distance between top of first child and top of screen
-                final int hangingTop = Math.max(-top, 0);
-                // Calculate how far we will actually scroll
-                // We will either scroll the full input distance or just enough to not display an empty gap
-                // In the second scenario we will scroll part of the way, add a new view, and scroll the rest of the dy in the next loop pass
-                final int scrollBy = Math.min(scrolled - dy, hangingTop);
-                // Determine how much distance we still have to scroll after completing this current loop
-                scrolled -= scrollBy;
-                // Scroll all children up
-                scrollChildViews(scrollBy);
+        this.stackFromEnd = stackFromEnd;
+        engine.setStackFromEnd(stackFromEnd);
+        requestLayout();
+    }
 
-                // We've scrolled beyond the visible views, make and layout the next one(s)
-                if (firstPosition > 0 && scrolled > dy)
-                {
-                    // We're adding one new View above the content which means the firstPosition gets decremented by one.
-                    firstPosition--;
+    public boolean getStackFromEnd()
+    {
+        return stackFromEnd;
+    }
 
-                    addViewForPosition(recycler, firstPosition, false);
-                }
-                else
-                {
-                    break;
-                }
-            }
+    /**
+     * Changes the number of columns. Spans larger than the column count are limited to it, columns beyond it are moved to the last column.
+     *
+     * @param columnCount The number of columns to divide the items over, at least 1.
+     */
+    public void setColumnCount(final int columnCount)
+    {
+        if (columnCount < 1)
+        {
+            throw new IllegalArgumentException("Column count must be at least 1, got " + columnCount);
         }
-        else if (dy > 0)
+        if (columnCount == this.columnCount)
         {
-            // Scrolling down
-
-            final int parentHeight = getHeight();
-            while (scrolled < dy)
-            {
-                // Compare the bottom views in each column. Use the one that is going to cause gaps first.
-                final int top = Math.min(bottomLeft, bottomRight);
-                // Check distance between bottom of last child and bottom of screen
-                final int hangingBottom = Math.max(top - parentHeight, 0);
-                // Calculate how far we will actually scroll
-                // We will either scroll the full input distance or just enough to not display an empty gap
-                // In the second scenario we will scroll part of the way, add a new view, and scroll the rest of the dy in the next loop pass
-                final int scrollBy = -Math.min(dy - scrolled, hangingBottom);
-                // Determine how much distance we still have to scroll after completing this current loop
-                scrolled -= scrollBy;
-
-                // Scroll all children down
-                scrollChildViews(scrollBy);
-
-                if (scrolled < dy && getItemCount() > firstPosition + getChildCount())
-                {
-                    // No firstPosition changes are done here. Adding a View at the bottom does not mean one went offscreen at the top.
-                    // Incrementing of firstPosition is done in the recycleViewsOutOfBounds method.
-                    final int currentPosition = firstPosition + getChildCount();
-                    addViewForPosition(recycler, currentPosition, true);
-                }
-                else
-                {
-                    break;
-                }
-            }
+            return;
         }
 
-        // Scroll event handled. Check which Views were moved completely off screen and remove them from the RecyclerView.
-        recycleViewsOutOfBounds(recycler);
+        this.columnCount = columnCount;
+        engine.setColumnCount(columnCount);
+        requestLayout();
+    }
 
-        // Let the RecyclerView know how much we actually scrolled.
-        // If this value is less than the input dy, edge glow effects will be shown to indicate the edge of the content was reached.
-        return scrolled;
+    public int getColumnCount()
+    {
+        return columnCount;
     }
 
-    /**
-     * Move child Views the desired direction and distance.
-     */
-    private void scrollChildViews(final int offset)
+    @Override
+    public RecyclerView.LayoutParams generateDefaultLayoutParams()
     {
-        offsetChildrenVertical(offset);
+        return new LayoutParams(ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.WRAP_CONTENT);
+    }
 
-        // Update the top and bottom values for the new View positions
-        topLeft += offset;
-        topRight += offset;
-        bottomLeft += offset;
-        bottomRight += offset;
+    @Override
+    public RecyclerView.LayoutParams generateLayoutParams(final Context c, final AttributeSet attrs)
+    {
+        return new LayoutParams(c, attrs);
     }
 
-    /**
-     * Lays out the view at the selected position.
-     *
-     * @param recycler      The recycler to retrieve the View from.
-     * @param position      The adapter position of the view to lay out.
-     * @param scrollingDown Whether this was triggered by scrolling down (true) or up (false).
-     */
-    private void addViewForPosition(final RecyclerView.Recycler recycler, int position, final boolean scrollingDown)
+    @Override
+    public RecyclerView.LayoutParams generateLayoutParams(final ViewGroup.LayoutParams lp)
     {
-        if (layoutInfoLookup.getRowSpan(position) == TWO)
-        {
-            // 1 column x 2 rows
-            addTallView(recycler, position, scrollingDown);
-        }
-        else if (layoutInfoLookup.getColumnSpan(position) == TWO)
+        if (lp instanceof ViewGroup.MarginLayoutParams)
         {
-            // 2 columns x 1 row
-            addFullWidthView(recycler, position, scrollingDown);
+            return new LayoutParams((ViewGroup.MarginLayoutParams) lp);
         }
         else
         {
-            // 1 column by 1 row
-            addStandardView(recycler, position, scrollingDown);
+            return new LayoutParams(lp);
         }
     }
 
-    /**
-     * Add a View that spans both columns.
-     *
-     * @param recycler      The Recycler to add the new view to.
-     * @param index         The adapter index of the item to add.
-     * @param scrollingDown Whether this was triggered by scrolling down (true) or (up).
-     */
-    private void addFullWidthView(final RecyclerView.Recycler recycler, final int index, boolean scrollingDown)
+    @Override
+    public boolean checkLayoutParams(final RecyclerView.LayoutParams lp)
     {
-        int top = 0;
-        int bottom = 0;
+        return lp instanceof LayoutParams;
+    }
 
-        if (scrollingDown)
-        {
-            top = Math.max(bottomLeft, bottomRight);
-        }
-        else
+    @Override
+    public void onLayoutChildren(RecyclerView.Recycler recycler, RecyclerView.State state)
+    {
+        beginPass(LayoutMetrics.PASS_LAYOUT, TRACE_LAYOUT, recycler);
+        layoutChildren(recycler, state);
+        if (!state.isPreLayout())
         {
-            bottom = Math.min(topLeft, topRight);
+            updateVisibilityAtEdges();
+            // The RecyclerView recycles the scrapped Views that were not reused after the pass.
+            exitScrappedViews(recycler);
         }
+        endPass();
+    }
 
-        // Supports both dynamic View size (from XML) and fixed size from ratio (calculated by this LayoutManager)
-        if (layoutInfoLookup.useViewSize(index))
-        {
-            final View v = recycler.getViewForPosition(index);
-
-            addView(v, scrollingDown ? getChildCount() : 0);
-            measureChildWithMargins(v, 0, 0);
+    private void layoutChildren(final RecyclerView.Recycler recycler, final RecyclerView.State state)
+    {
+        final int count = state.getItemCount();
+        final boolean preLayout = state.isPreLayout();
 
-            if (scrollingDown)
-            {
-                bottom = top + getDecoratedMeasuredHeight(v);
-            }
-            else
-            {
-                top = bottom - getDecoratedMeasuredHeight(v);
-            }
+        // The descriptor cache and index always describe the adapter after the pending changes, also in the pre-layout pass.
+        engine.updateLayoutIndex(getItemCount());
 
-            layoutDecorated(v, getRecyclerViewLeft(), top, getRecyclerViewRight(), bottom);
-        }
-        else
+        if ((pendingScrollPosition != RecyclerView.NO_POSITION || pendingSavedState != null) && count > 0 && !preLayout)
         {
-            final int tileHeight = (int) (getWidth() / ratioWide);
-
-            if (scrollingDown)
+            // Lay out directly at the requested or saved anchor, without replaying a scroll.
+            final int anchorPosition;
+            final int anchorOffset;
+            if (pendingScrollPosition != RecyclerView.NO_POSITION)
             {
-                bottom = top + tileHeight;
+                anchorPosition = pendingScrollPosition;
+                anchorOffset = pendingScrollOffset;
             }
             else
             {
-                top = bottom - tileHeight;
+                anchorPosition = pendingSavedState.anchorPosition;
+                anchorOffset = pendingSavedState.anchorOffset;
             }
+            pendingScrollPosition = RecyclerView.NO_POSITION;
+            pendingSavedState = null;
 
-            measureAndAddViewAtIndex(recycler, index, scrollingDown ? getChildCount() : 0, getRecyclerViewLeft(), top, getRecyclerViewRight(), bottom, 0);
+            engine.layoutAtPosition(count, anchorPosition, anchorOffset);
+            return;
         }
 
-        // View is full width, its values count for both the left and right column.
-        if (scrollingDown)
-        {
-            bottomLeft = bottom;
-            bottomRight = bottom;
-        }
-        else
+        // Views above the group of the first change keep their place and are not laid out again, see FeedLayoutEngine#layout(int).
+        engine.setPreLayout(preLayout);
+        engine.layout(count);
+        engine.setPreLayout(false);
+
+        if (!preLayout && state.willRunPredictiveAnimations())
         {
-            topLeft = top;
-            topRight = top;
+            layoutDisappearingViews(recycler);
         }
-    }
 
+        visiblePositionsValid = false;
+    }
 
-    /**
-     * Add a View that is 1 column wide and 1 row high.
-     *
-     * @param recycler      The Recycler to add the new views to.
-     * @param index         The adapter position of the item.
-     * @param scrollingDown Whether this was triggered by scrolling down (true) or (up).
-     */
-    private void addStandardView(final RecyclerView.Recycler recycler, final int index, final boolean scrollingDown)
+    @Override
+    public boolean supportsPredictiveItemAnimations()
     {
-        addHalfWidthView(recycler, index, ratioStandard, scrollingDown);
+        return true;
     }
 
     /**
-     * Add a View that is 1 column wide and 2 rows high.
+     * Views that were on screen before an adapter change but are pushed off screen by it are still in the scrap after the real layout pass.
+     * Those are laid out as disappearing Views beyond the edges of the screen, so they can animate to their new location.
+     * The column values are restored afterwards, the disappearing Views do not count as part of the layout.
      *
-     * @param recycler      The Recycler to add the new views to.
-     * @param index         The adapter position of the item.
-     * @param scrollingDown Whether this was triggered by scrolling down (true) or (up).
+     * @param recycler The Recycler holding the scrapped Views.
      */
-    private void addTallView(final RecyclerView.Recycler recycler, final int index, final boolean scrollingDown)
+    private void layoutDisappearingViews(final RecyclerView.Recycler recycler)
     {
-        addHalfWidthView(recycler, index, ratioTall, scrollingDown);
+        final List<RecyclerView.ViewHolder> scrapList = recycler.getScrapList();
+        if (scrapList.isEmpty() || getChildCount() == 0)
+        {
+            return;
+        }
+
+        final int firstPosition = engine.getFirstPosition();
+        final int lastPosition = firstPosition + getChildCount() - 1;
+
+        // Collect the positions of the Views that are still in the adapter, in order.
+        final int[] positions = new int[scrapList.size()];
+        int positionCount = 0;
+        for (int i = 0; i < scrapList.size(); i++)
+        {
+            final RecyclerView.ViewHolder holder = scrapList.get(i);
+            final int position = holder.getLayoutPosition();
+            if (!((RecyclerView.LayoutParams) holder.itemView.getLayoutParams()).isItemRemoved() && (position < firstPosition || position > lastPosition))
+            {
+                positions[positionCount++] = position;
+            }
+        }
+        if (positionCount == 0)
+        {
+            return;
+        }
+        Arrays.sort(positions, 0, positionCount);
+
+        addingDisappearingViews = true;
+        engine.layoutDisappearingTiles(positions, positionCount);
+        addingDisappearingViews = false;
     }
 
     /**
-     * Adds a view that is 1 column wide.
-     *
-     * @param recycler      The Recycler to add the new views to.
-     * @param index         The adapter position of the item.
-     * @param ratio         The ratio of this view.
-     * @param scrollingDown Whether this was triggered by scrolling down (true) or up (false).
+     * Adds a child View, as a disappearing View if {@link #layoutDisappearingViews(RecyclerView.Recycler)} is running.
      */
-    private void addHalfWidthView(final RecyclerView.Recycler recycler, final int index, final float ratio, final boolean scrollingDown)
+    private void addChildView(final View child, final int index)
     {
-        // A half width View will be laid out in either the left or right column.
-        final boolean isLeft = layoutInfoLookup.getGravity(index) == LayoutGravity.LEFT;
-
-        final int tileHeight = (int) (getWidth() / 2 / ratio);
-
-        int left, top, right, bottom;
+        visiblePositionsValid = false;
 
-        if (scrollingDown)
+        if (addingDisappearingViews)
         {
-            top = isLeft ? bottomLeft : bottomRight;
-            bottom = top + tileHeight;
+            addDisappearingView(child, index);
         }
         else
         {
-            bottom = isLeft ? topLeft : topRight;
-            top = bottom - tileHeight;
+            addView(child, index);
         }
+    }
 
-        int middle = (getRecyclerViewLeft() + getRecyclerViewRight()) / 2;
-
-        left = isLeft ? getRecyclerViewLeft() : middle;
-        right = isLeft ? middle : getRecyclerViewRight();
+    @Override
+    public boolean canScrollVertically()
+    {
+        return orientation == VERTICAL;
+    }
 
-        measureAndAddViewAtIndex(recycler, index, scrollingDown ? getChildCount() : 0, left, top, right, bottom, right - left);
+    @Override
+    public boolean canScrollHorizontally()
+    {
+        return orientation == HORIZONTAL;
+    }
 
-        if (scrollingDown)
+    @Override
+    public int scrollVerticallyBy(final int dy, final RecyclerView.Recycler recycler, final RecyclerView.State state)
+    {
+        if (orientation == HORIZONTAL)
         {
-            if (layoutInfoLookup.getGravity(index) == LayoutGravity.LEFT)
-            {
-                bottomLeft = bottom;
-            }
-            else
-            {
-                bottomRight = bottom;
-            }
+            return 0;
         }
-        else
+
+        return instrumentedScrollBy(dy, recycler, state);
+    }
+
+    @Override
+    public int scrollHorizontallyBy(final int dx, final RecyclerView.Recycler recycler, final RecyclerView.State state)
+    {
+        if (orientation == VERTICAL)
         {
-            if (layoutInfoLookup.getGravity(index) == LayoutGravity.LEFT)
-            {
-                topLeft = top;
-            }
-            else
-            {
-                topRight = top;
-            }
+            return 0;
         }
+
+        return instrumentedScrollBy(dx, recycler, state);
     }
 
+    private int instrumentedScrollBy(final int dy, final RecyclerView.Recycler recycler, final RecyclerView.State state)
+    {
+        beginPass(LayoutMetrics.PASS_SCROLL, TRACE_SCROLL, recycler);
+        final int scrolled = scrollBy(dy, recycler, state);
+        updateVisibilityAtEdges();
+        if (activeMetrics != null)
+        {
+            activeMetrics.setScrolled(scrolled);
+        }
+        endPass();
+
+        return scrolled;
+    }
 
     /**
-     * Measures a view and adds it to the recycler at the specified index.
+     * Scrolls the currently attached child Views up or down after checking the distance they can be moved.
+     * Empty space created by this scroll event will be filled with new Views.
+     * Scrolling further than a screen jumps to the new offset instead, so only the Views for the destination are laid out.
      *
-     * @param recycler      The Recycler to retrieve the View from.
-     * @param adapterIndex  The adapter index of the item to add.
-     * @param index         The View index where this view will be added in the RecyclerView viewgroup.
-     * @param left          Left side of this View.
-     * @param top           Top of this View.
-     * @param bottom        Bottom of this View.
-     * @param occupiedWidth The amount of horizontal space already occupied (by other Views) and therefore not available to this view.
+     * @param dy       The distance of the scroll event, along the scroll axis. Child Views should be moved this distance if possible.
+     * @param recycler Recycler to retrieve new Views from.
+     * @param state    Current RecyclerView state.
+     * @return The distance the child Views were actually moved.
      */
-    private void measureAndAddViewAtIndex(final RecyclerView.Recycler recycler, final int adapterIndex, final int index, final int left, final int top, final int right, final int bottom, final int occupiedWidth)
+    private int scrollBy(final int dy, final RecyclerView.Recycler recycler, final RecyclerView.State state)
     {
-        final View view = recycler.getViewForPosition(adapterIndex);
+        final int scrolled = engine.scrollBy(state.getItemCount(), dy);
+        // A jump scraps the attached Views, outside of a layout pass the RecyclerView does not recycle the ones that were not reused.
+        exitScrappedViews(recycler);
+        recycleScrap(recycler);
+
+        if (hasExtraLayoutSpace() && scrolled != 0)
+        {
+            countViewsScrolledIntoView(scrolled > 0);
+            fillExtraLayoutSpace(state.getItemCount(), scrolled);
+        }
 
-        addView(view, index);
-        measureChildWithMarginsAndDesiredHeight(view, bottom - top, occupiedWidth);
-        layoutDecorated(view, left, top, right, bottom);
+        // Let the RecyclerView know how much we actually scrolled.
+        // If this value is less than the input dy, edge glow effects will be shown to indicate the edge of the content was reached.
+        return scrolled;
     }
 
     /**
-     * Largely copied from the default {@link RecyclerView.LayoutManager#measureChildWithMargins(View, int, int)} method,
-     * but changed to use a custom, calculated height instead of a View's default XML height.
-     * <p>
-     * The heightUsed parameter has been omitted because it gets ignored for vertical feeds.
+     * Lays out Views beyond the edge of the screen in the scroll direction, so they already exist when they scroll into view.
      *
-     * @param child         The child View to measure.
-     * @param desiredHeight The height this View should be given.
-     * @param occupiedWidth The amount of horizontal space already occupied (by other Views) and therefore not available to this view.
+     * @param itemCount The number of items in the adapter.
+     * @param scrolled  The distance that was just scrolled, the sign gives the direction.
      */
-    private void measureChildWithMarginsAndDesiredHeight(View child, int desiredHeight, int occupiedWidth)
+    private void fillExtraLayoutSpace(final int itemCount, final int scrolled)
     {
-        final RecyclerView.LayoutParams lp = (RecyclerView.LayoutParams) child.getLayoutParams();
-
-
-        // The measureChildWithMargins method uses a private method to get the item decorations, we solve it like this:
-        final Rect decorations = new Rect();
-        calculateItemDecorationsForChild(child, decorations);
-        occupiedWidth += decorations.left + decorations.right;
-        final int heightUsed = decorations.top + decorations.bottom;
-
-
-        final int widthSpec = getChildMeasureSpec(getWidth(),
-                getWidthMode(),
-                getPaddingLeft() + getPaddingRight() + lp.leftMargin + lp.rightMargin + occupiedWidth,
-                lp.width,
-                canScrollHorizontally());
-        // The standard measureChildWithMargins method uses the height from the View's LayoutParams, but we want to be able to supply our own, calculated height.
-        final int heightSpec = getChildMeasureSpec(getHeight(),
-                getHeightMode(),
-                getPaddingTop() + getPaddingBottom() + lp.topMargin + lp.bottomMargin + heightUsed,
-                desiredHeight - heightUsed,
-                canScrollVertically());
+        int extra = engine.getExtraLayoutSpace();
+        if (scrollState == RecyclerView.SCROLL_STATE_SETTLING)
+        {
+            // The distance of this frame approximates the fling velocity. Never lay out more than a screen ahead.
+            extra += Math.min(Math.abs(scrolled) * flingLayoutFrames, getScrollSpace());
+        }
 
-        // The measureChildWithMargins method has an extra shouldMeasureChild check and only measures the view if required.
-        // That method is private, so we measure the view every time. :(
-        child.measure(widthSpec, heightSpec);
+        engine.fillAhead(itemCount, scrolled > 0, extra);
     }
 
     /**
-     * Removes and recyclers views that are no longer on screen.
+     * Counts the Views that were laid out beyond the edge of the screen and have now scrolled into view.
+     * Tops never decrease with the position, so only the Views at the edge that was scrolled towards need to be checked.
      *
-     * @param recycler The Recycler to recycle Views into.
+     * @param scrollingDown Whether the content was scrolled down (true) or up (false).
      */
-    private void recycleViewsOutOfBounds(RecyclerView.Recycler recycler)
+    private void countViewsScrolledIntoView(final boolean scrollingDown)
     {
-        boolean removedTop = false;
-        boolean removedBottom = false;
-
+        final int parentHeight = getScrollAxisSize();
         final int childCount = getChildCount();
-        boolean foundFirstVisibleView = false;
-        int firstVisibleView = 0;
-        int lastVisibleView = 0;
-        for (int i = 0; i < childCount; i++)
+
+        for (int n = 0; n < childCount; n++)
         {
-            final View v = getChildAt(i);
-            if (v.hasFocus() || isVisible(v))
+            final View child = getChildAt(scrollingDown ? childCount - 1 - n : n);
+            final LayoutParams lp = (LayoutParams) child.getLayoutParams();
+            final boolean visible = getDecoratedStart(child) < parentHeight && getDecoratedEnd(child) > 0;
+            if (lp.laidOutAhead && visible)
             {
-                if (!foundFirstVisibleView)
-                {
-                    firstVisibleView = i;
-                    foundFirstVisibleView = true;
-                }
-                lastVisibleView = i;
+                lp.laidOutAhead = false;
+                avoidedFrameCreationCount++;
+            }
+            else if (!lp.laidOutAhead && (scrollingDown ? getDecoratedEnd(child) <= parentHeight : getDecoratedStart(child) >= 0))
+            {
+                // Completely on screen and not laid out ahead, the Views beyond it were counted already.
+                break;
             }
         }
-        for (int i = childCount - 1; i > lastVisibleView; i--)
-        {
-            removedBottom = true;
-            removeAndRecycleViewAt(i, recycler);
-        }
-        for (int i = firstVisibleView - 1; i >= 0; i--)
+    }
+
+    /**
+     * Lets the GapWorker create and bind the next group in the scroll direction while the UI thread is idle,
+     * so it does not have to happen in {@link #scrollBy(int, RecyclerView.Recycler, RecyclerView.State)} during the frame.
+     * For groups that cover several columns the items of all columns are prefetched.
+     */
+    @Override
+    public void collectAdjacentPrefetchPositions(final int dx, final int dy, final RecyclerView.State state, final LayoutPrefetchRegistry layoutPrefetchRegistry)
+    {
+        final int delta = orientation == VERTICAL ? dy : dx;
+        if (getChildCount() == 0 || delta == 0)
         {
-            removedTop = true;
-            removeAndRecycleViewAt(i, recycler);
+            return;
         }
-        if (getChildCount() == 0)
+
+        engine.updateLayoutIndex(state.getItemCount());
+
+        if (delta > 0)
         {
-            firstPosition = 0;
+            // The next View to be added at the bottom, followed by the rest of its group.
+            final int nextPosition = engine.getFirstPosition() + getChildCount();
+            if (nextPosition >= layoutIndex.getItemCount())
+            {
+                return;
+            }
+
+            final int group = layoutIndex.getGroup(nextPosition);
+            final int parentBottom = getEndAfterPadding();
+            for (int position = nextPosition; position < layoutIndex.getItemCount() && layoutIndex.getGroup(position) == group; position++)
+            {
+                layoutPrefetchRegistry.addPosition(position, Math.max(0, getIndexedScreenTop(position) - parentBottom));
+            }
         }
         else
         {
-            firstPosition += firstVisibleView;
-        }
+            // The next View to be added at the top, followed by the rest of its group.
+            final int previousPosition = engine.getFirstPosition() - 1;
+            if (previousPosition < 0 || previousPosition >= layoutIndex.getItemCount())
+            {
+                return;
+            }
 
-        if (removedBottom)
-        {
-            updateBottomValues();
-        }
-        else if (removedTop)
-        {
-            updateTopValues();
+            final int group = layoutIndex.getGroup(previousPosition);
+            final int parentTop = getStartAfterPadding();
+            for (int position = previousPosition; position >= 0 && layoutIndex.getGroup(position) == group; position--)
+            {
+                final int bottom = getIndexedScreenTop(position) + layoutIndex.getHeight(position);
+                layoutPrefetchRegistry.addPosition(position, Math.max(0, parentTop - bottom));
+            }
         }
     }
 
     /**
-     * @param v The View to check the visibility for.
-     * @return true if the View is at least partially visible.
+     * Used when this RecyclerView is nested in another scrolling RecyclerView,
+     * to prefetch the Views that will be shown first when it scrolls into view.
      */
-    private boolean isVisible(final View v)
+    @Override
+    public void collectInitialPrefetchPositions(final int adapterItemCount, final LayoutPrefetchRegistry layoutPrefetchRegistry)
     {
-        final int parentWidth = getWidth();
-        final int parentHeight = getHeight();
-
-        return getDecoratedRight(v) >= 0 &&
-                getDecoratedLeft(v) <= parentWidth &&
-                getDecoratedBottom(v) >= 0 &&
-                getDecoratedTop(v) <= parentHeight;
+        final int start = Math.max(0, Math.min(engine.getFirstPosition(), adapterItemCount - 1));
+        for (int i = 0; i < initialPrefetchItemCount && start + i < adapterItemCount; i++)
+        {
+            layoutPrefetchRegistry.addPosition(start + i, 0);
+        }
     }
 
     /**
-     * Updates the top of the first Views in each column.
+     * Sets the number of items to prefetch in {@link #collectInitialPrefetchPositions(int, LayoutPrefetchRegistry)}.
+     * Set this to the number of items visible when the nested RecyclerView first scrolls into view.
+     *
+     * @param itemCount Number of items to prefetch.
      */
-    private void updateTopValues()
+    public void setInitialPrefetchItemCount(final int itemCount)
     {
-        updateColumnValues(true);
+        initialPrefetchItemCount = itemCount;
     }
 
     /**
-     * Updates the bottom of the last Views in each column.
+     * @return The number of items to prefetch when this RecyclerView is nested in another scrolling RecyclerView.
      */
-    private void updateBottomValues()
+    public int getInitialPrefetchItemCount()
     {
-        updateColumnValues(false);
+        return initialPrefetchItemCount;
     }
 
     /**
-     * Updates the top/bottom of the first/last Views in each column.
+     * Keeps Views laid out for a fixed distance beyond the edge of the screen in the scroll direction, and below the screen after a layout.
+     * Those Views are created and bound before they are needed, instead of in the frame in which they scroll into view.
      *
-     * @param updateTopValues True if used for top, false if used for bottom.
+     * @param pixels The distance beyond the edge of the screen, 0 to only lay out the visible area.
      */
-    private void updateColumnValues(final boolean updateTopValues)
+    public void setExtraLayoutSpace(final int pixels)
     {
-        boolean foundLeft = false;
-        boolean foundRight = false;
-
-        final int startIndex = updateTopValues ? 0 : getChildCount() - 1;
-        final int endIndex = updateTopValues ? getChildCount() - 1 : 0;
-        final int step = updateTopValues ? 1 : -1;
+        engine.setExtraLayoutSpace(Math.max(0, pixels));
+    }
 
-        for (int i = startIndex; i != endIndex; i += step)
-        {
-            final View checkingView = getChildAt(i);
-            final int adapterPosition = getPosition(checkingView);
+    public int getExtraLayoutSpace()
+    {
+        return engine.getExtraLayoutSpace();
+    }
 
-            if (layoutInfoLookup.getColumnSpan(adapterPosition) == TWO)
-            {
-                if (updateTopValues)
-                {
-                    topLeft = topRight = getDecoratedTop(checkingView);
-                }
-                else
-                {
-                    bottomLeft = bottomRight = getDecoratedBottom(checkingView);
-                }
+    /**
+     * While the RecyclerView flings, additionally lays out the distance the fling covers in a number of frames,
+     * based on the distance of the current frame and limited to one screen.
+     *
+     * @param frames The number of frames to look ahead, 0 to disable.
+     */
+    public void setFlingLayoutFrames(final int frames)
+    {
+        flingLayoutFrames = Math.max(0, frames);
+    }
 
-                break;
-            }
-            else
-            {
-                if (layoutInfoLookup.getGravity(adapterPosition) == LayoutGravity.LEFT)
-                {
-                    if (updateTopValues)
-                    {
-                        topLeft = getDecoratedTop(checkingView);
-                    }
-                    else
-                    {
-                        bottomLeft = getDecoratedBottom(checkingView);
-                    }
-
-                    foundLeft = true;
-                }
-                else
-                {
-                    if (updateTopValues)
-                    {
-                        topRight = getDecoratedTop(checkingView);
-                    }
-                    else
-                    {
-                        bottomRight = getDecoratedBottom(checkingView);
-                    }
-
-                    foundRight = true;
-                }
+    public int getFlingLayoutFrames()
+    {
+        return flingLayoutFrames;
+    }
 
-                if (foundRight && foundLeft)
-                {
-                    break;
-                }
-            }
+    /**
+     * @return The number of times a View was laid out beyond the edges of the screen because of the extra layout space.
+     */
+    public int getExtraLayoutViewCount()
+    {
+        return extraLayoutViewCount;
+    }
+
+    /**
+     * @return The number of Views laid out in the extra layout space that scrolled into view,
+     * each of which would otherwise have been created or bound during that frame.
+     */
+    public int getAvoidedFrameCreationCount()
+    {
+        return avoidedFrameCreationCount;
+    }
+
+    public void resetExtraLayoutSpaceCounts()
+    {
+        extraLayoutViewCount = 0;
+        avoidedFrameCreationCount = 0;
+    }
+
+    /**
+     * Reports the time spent and the Views added, recycled, measured and bound in every layout pass and scroll.
+     * Without a listener nothing is counted or timed.
+     *
+     * @param listener The listener to report to, null to disable metrics.
+     */
+    public void setLayoutMetricsListener(final LayoutMetricsListener listener)
+    {
+        metricsListener = listener;
+    }
+
+    /**
+     * Wraps every layout pass and scroll in an {@link android.os.Trace} section, so they show up in systrace.
+     * Only has effect from API 18.
+     */
+    public void setTraceEnabled(final boolean enabled)
+    {
+        traceEnabled = enabled;
+    }
+
+    /**
+     * Reports when items enter or exit the screen, and when their visible part reaches or drops below a threshold.
+     * Visibility is updated as Views are added, moved and recycled, and is measured within the padding.
+     * Items that are visible when the listener is replaced exit for the old listener.
+     *
+     * @param listener         The listener to report to, null to disable visibility tracking.
+     * @param thresholdPercent The visible percentage that counts as seen, from 1 to 100.
+     */
+    public void setVisibilityListener(final VisibilityListener listener, final int thresholdPercent)
+    {
+        if (visibilityTracker != null)
+        {
+            visibilityTracker.clear(SystemClock.uptimeMillis());
+        }
+        visibilityTracker = listener == null ? null : new VisibilityTracker(listener, thresholdPercent);
+        if (visibilityTracker != null && getChildCount() > 0)
+        {
+            requestLayout();
         }
     }
 
-    @Override
-    public void onItemsAdded(RecyclerView recyclerView, int positionStart, int itemCount)
+    /**
+     * @return The visible percentage of an item, as of the last layout pass or scroll.
+     * 0 if it is not attached or visibility tracking is disabled.
+     */
+    public int getVisiblePercent(final int position)
     {
-        super.onItemsAdded(recyclerView, positionStart, itemCount);
+        return visibilityTracker == null ? 0 : visibilityTracker.getVisiblePercent(position);
+    }
 
-        if(positionStart < firstPosition)
+    /**
+     * Updates the visible part of an attached View, from its edges along the scroll axis.
+     * Views of removed items are skipped, those items already exited when they were removed.
+     */
+    private void updateVisibility(final View view, final int start, final int end)
+    {
+        if (visibilityTracker == null || engine.isPreLayout() || ((RecyclerView.LayoutParams) view.getLayoutParams()).isItemRemoved())
         {
-            firstPosition += itemCount;
+            return;
         }
+
+        final int percent = VisibilityTracker.getVisiblePercent(start, end, getStartAfterPadding(), getEndAfterPadding());
+        // Only items with an attached or scrapped View can be visible, after a jump the others exit.
+        final int viewCount = getChildCount() + tileContainer.recycler.getScrapList().size();
+        visibilityTracker.setVisiblePercent(getPosition(view), percent, passUptimeMillis, viewCount);
     }
 
-    @Override
-    public void onItemsRemoved(RecyclerView recyclerView, int positionStart, int itemCount)
+    /**
+     * Updates the visible part of the Views that the offsets of the pass can have moved across an edge of the screen.
+     * Views that stayed completely on or off screen keep their visible part, and Views added during the pass were updated when they were added.
+     * The Views within the offset distance of either edge are found with the binary search over the group tops of the children.
+     */
+    private void updateVisibilityAtEdges()
     {
-        super.onItemsRemoved(recyclerView, positionStart, itemCount);
+        final int distance = passOffsetDistance;
+        passOffsetDistance = 0;
+        if (visibilityTracker == null || distance == 0)
+        {
+            return;
+        }
 
-        if(positionStart < firstPosition)
+        if (hasOrderedChildGroups())
+        {
+            updateVisibilityOfGroupsBetween(getStartAfterPadding() - distance, getStartAfterPadding() + distance);
+            updateVisibilityOfGroupsBetween(getEndAfterPadding() - distance, getEndAfterPadding() + distance);
+        }
+        else
         {
-            firstPosition -= itemCount;
+            updateVisibilityOfChildren(0, getChildCount());
         }
     }
 
     /**
-     * Jumps to the requested position. Not animated.
-     *
-     * @param position The adapter position to jump to.
+     * Updates the visible part of the children whose groups overlap a range along the scroll axis.
      */
-    @Override
-    public void scrollToPosition(final int position)
+    private void updateVisibilityOfGroupsBetween(final int from, final int to)
     {
-        firstPosition = position;
+        // The group that covers from, up to the last group that starts before to.
+        final int afterFromIndex = findFirstChildGroupStartingAt(from + 1);
+        final int fromIndex = afterFromIndex > 0 ? findFirstChildGroupStartingAt(getChildGroupTop(afterFromIndex - 1)) : 0;
 
-        // Remove all Views so scroll offset is reset and our target View gets its top aligned with the top of the RecyclerView.
-        removeAllViews();
-        requestLayout();
+        updateVisibilityOfChildren(fromIndex, findFirstChildGroupStartingAt(to));
+    }
+
+    private void updateVisibilityOfChildren(final int startIndex, final int endIndex)
+    {
+        for (int i = startIndex; i < endIndex; i++)
+        {
+            final View child = getChildAt(i);
+            updateVisibility(child, getDecoratedStart(child), getDecoratedEnd(child));
+        }
     }
 
     /**
-     * Scrolls to the requested position. Animated.
+     * Lets the items exit whose Views were scrapped during the pass and not attached again.
      */
-    @Override
-    public void smoothScrollToPosition(RecyclerView recyclerView, RecyclerView.State state, int position)
+    private void exitScrappedViews(final RecyclerView.Recycler recycler)
     {
-        final LinearSmoothScroller linearSmoothScroller = new LinearSmoothScroller(recyclerView.getContext())
+        if (visibilityTracker == null)
         {
-            @Override
-            public PointF computeScrollVectorForPosition(int targetPosition)
+            return;
+        }
+
+        final List<RecyclerView.ViewHolder> scrapList = recycler.getScrapList();
+        for (int i = scrapList.size() - 1; i >= 0; i--)
+        {
+            final RecyclerView.ViewHolder holder = scrapList.get(i);
+            if (!((RecyclerView.LayoutParams) holder.itemView.getLayoutParams()).isItemRemoved())
             {
-                if (getChildCount() == 0)
-                {
-                    return null;
-                }
+                visibilityTracker.setVisiblePercent(holder.getLayoutPosition(), 0, passUptimeMillis, getChildCount() + scrapList.size());
+            }
+        }
+    }
 
-                // Determine which direction we need to scroll in (-1 is up, 1 is down)
-                final int firstChildPos = getAdapterIndexForViewIndex(0);
-                final int direction = targetPosition < firstChildPos ? -1 : 1;
+    /**
+     * Starts a trace section and the metrics of a layout pass or scroll, if they are enabled.
+     *
+     * @param recycler The Recycler the engine retrieves Views from during the pass.
+     */
+    private void beginPass(final int pass, final String traceSection, final RecyclerView.Recycler recycler)
+    {
+        tileContainer.recycler = recycler;
+        passUptimeMillis = visibilityTracker != null ? SystemClock.uptimeMillis() : 0;
+        passOffsetDistance = 0;
 
-                // Only need to scroll in the y direction.
-                return new PointF(0, direction);
-            }
+        traceSectionOpen = traceEnabled && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2;
+        if (traceSectionOpen)
+        {
+            Trace.beginSection(traceSection);
+        }
+        if (metricsListener != null)
+        {
+            activeMetrics = metrics;
+            activeMetrics.start(pass, System.nanoTime());
+        }
+    }
 
-            @Override
-            protected int getVerticalSnapPreference()
+    /**
+     * Ends what {@link #beginPass(int, String, RecyclerView.Recycler)} started and reports the metrics.
+     */
+    private void endPass()
+    {
+        tileContainer.recycler = null;
+
+        if (activeMetrics != null)
+        {
+            final LayoutMetrics finished = activeMetrics;
+            activeMetrics = null;
+
+            final boolean empty = getChildCount() == 0;
+            final ColumnEdges columnEdges = engine.getColumnEdges();
+            finished.finish(System.nanoTime(),
+                    empty ? 0 : getStartAfterPadding() - columnEdges.getMinTop(),
+                    empty ? 0 : columnEdges.getMaxBottom() - getEndAfterPadding());
+            // The listener can have been removed during the pass.
+            if (metricsListener != null)
             {
-                return SNAP_TO_START;
+                metricsListener.onLayoutMetrics(finished);
             }
-        };
-        linearSmoothScroller.setTargetPosition(position);
-        startSmoothScroll(linearSmoothScroller);
+        }
+        if (traceSectionOpen)
+        {
+            traceSectionOpen = false;
+            Trace.endSection();
+        }
+    }
+
+    private boolean hasExtraLayoutSpace()
+    {
+        return engine.getExtraLayoutSpace() > 0 || flingLayoutFrames > 0;
+    }
+
+    @Override
+    public void onScrollStateChanged(final int state)
+    {
+        super.onScrollStateChanged(state);
+
+        scrollState = state;
     }
 
     /**
-     * @return The adapter position of the first View that is (partially) visible on screen.
+     * Calculates where the top of an item would be on screen, relative to the first attached View.
+     *
+     * @param position The adapter position of the item.
+     * @return The top of the item in RecyclerView coordinates.
      */
-    public int findFirstVisibleItemPosition()
+    private int getIndexedScreenTop(final int position)
     {
-        return getChildCount() > 0 ? getPosition(getChildAt(0)) : 0;
+        final View firstView = getChildAt(0);
+
+        return getDecoratedStart(firstView) + layoutIndex.getTop(position) - layoutIndex.getTop(getPosition(firstView));
     }
 
     /**
-     * @return The adapter position of the first View that is completely visible on screen.
+     * Recycles the scrapped Views that were not reused. Outside of a layout pass the RecyclerView does not do this for us.
      */
-    public int findFirstCompletelyVisibleItemPosition()
+    private void recycleScrap(final RecyclerView.Recycler recycler)
     {
-        if (getChildCount() > 0)
+        final List<RecyclerView.ViewHolder> scrapList = recycler.getScrapList();
+        for (int i = scrapList.size() - 1; i >= 0; i--)
         {
-            for (int i = 0; i < getChildCount(); i++)
+            recycler.recycleView(scrapList.get(i).itemView);
+            if (activeMetrics != null)
             {
-                final View v = getChildAt(i);
-                if (getDecoratedTop(v) >= getPaddingTop() && getDecoratedBottom(v) <= getHeight() - getPaddingBottom())
-                {
-                    return getPosition(v);
-                }
+                activeMetrics.onViewRecycled();
             }
         }
+    }
 
-        return 0;
+    /**
+     * Remembers whether a View was added completely beyond the edges of the screen, in the extra layout space.
+     */
+    private void markLaidOutAhead(final View view)
+    {
+        final LayoutParams lp = (LayoutParams) view.getLayoutParams();
+        lp.laidOutAhead = !engine.isPreLayout() && !addingDisappearingViews
+                && (getDecoratedStart(view) >= getScrollAxisSize() || getDecoratedEnd(view) <= 0);
+        if (lp.laidOutAhead)
+        {
+            extraLayoutViewCount++;
+        }
     }
 
     /**
-     * @return The adapter position of the last View that is (partially) visible on screen.
+     * Stores the columns a View is laid out in, so the column edges can be updated when it is removed.
      */
-    public int findLastVisibleItemPosition()
+    private static void setColumns(final View view, final int column, final int columnSpan)
     {
-        return getChildCount() > 0 ? getPosition(getChildAt(getChildCount() - 1)) : 0;
+        final LayoutParams lp = (LayoutParams) view.getLayoutParams();
+        lp.column = column;
+        lp.columnSpan = columnSpan;
     }
 
     /**
-     * @return The adapter position of the first View that is completely visible on screen.
+     * Measures a self sized child with the height from its LayoutParams.
+     * Like {@link #measureChildWithMarginsAndDesiredHeight(View, int, int)}, a child that comes back on screen is only measured again
+     * when its content requested a new layout or the available space changed.
+     *
+     * @param child The child View to measure.
      */
-    public int findLastCompletelyVisibleItemPosition()
+    private void measureSelfSizedChild(final View child)
     {
-        if (getChildCount() > 0)
+        final LayoutParams lp = (LayoutParams) child.getLayoutParams();
+
+        calculateItemDecorationsForChild(child, decorationInsets);
+        final int widthUsed = decorationInsets.left + decorationInsets.right;
+        final int heightUsed = decorationInsets.top + decorationInsets.bottom;
+
+        final int widthSpec = getChildMeasureSpec(getWidth(),
+                getWidthMode(),
+                getPaddingLeft() + getPaddingRight() + lp.leftMargin + lp.rightMargin + widthUsed,
+                lp.width,
+                canScrollHorizontally());
+        final int heightSpec = getChildMeasureSpec(getHeight(),
+                getHeightMode(),
+                getPaddingTop() + getPaddingBottom() + lp.topMargin + lp.bottomMargin + heightUsed,
+                lp.height,
+                canScrollVertically());
+
+        if (child.isLayoutRequested() || !lp.hasMeasureSpecs(widthSpec, heightSpec))
         {
-            for (int i = getChildCount() - 1; i >= 0; i--)
+            child.measure(widthSpec, heightSpec);
+            lp.setMeasureSpecs(widthSpec, heightSpec);
+            measuredChildCount++;
+            if (activeMetrics != null)
             {
-                final View v = getChildAt(i);
-                if (getDecoratedTop(v) >= getPaddingTop() && getDecoratedBottom(v) <= getHeight() - getPaddingBottom())
-                {
-                    return getPosition(v);
-                }
+                activeMetrics.onViewMeasured();
             }
         }
-        return 0;
     }
 
     /**
-     * @return The left side of the parent RecyclerView.
+     * Largely copied from the default {@link RecyclerView.LayoutManager#measureChildWithMargins(View, int, int)} method,
+     * but changed to use a custom, calculated height instead of a View's default XML height.
+     * <p>
+     * The heightUsed parameter has been omitted because it gets ignored for vertical feeds.
+     * In the horizontal orientation the desired height is applied to the width and the occupied width to the height.
+     * <p>
+     * The measure specs are stored in the child's {@link LayoutParams}. A child that did not request a new layout
+     * and gets the same specs as last time keeps its measurement, so re-adding it does not measure it again.
+     *
+     * @param child         The child View to measure.
+     * @param desiredHeight The height this View should be given.
+     * @param occupiedWidth The amount of horizontal space already occupied (by other Views) and therefore not available to this view.
+     */
+    @VisibleForTesting
+    void measureChildWithMarginsAndDesiredHeight(View child, int desiredHeight, int occupiedWidth)
+    {
+        final LayoutParams lp = (LayoutParams) child.getLayoutParams();
+
+
+        // The measureChildWithMargins method uses a private method to get the item decorations, we solve it like this:
+        calculateItemDecorationsForChild(child, decorationInsets);
+        final int insetsWidth = decorationInsets.left + decorationInsets.right;
+        final int insetsHeight = decorationInsets.top + decorationInsets.bottom;
+
+        final int widthSpec;
+        final int heightSpec;
+        if (orientation == VERTICAL)
+        {
+            widthSpec = getChildMeasureSpec(getWidth(),
+                    getWidthMode(),
+                    getPaddingLeft() + getPaddingRight() + lp.leftMargin + lp.rightMargin + insetsWidth + occupiedWidth,
+                    lp.width,
+                    canScrollHorizontally());
+            // The standard measureChildWithMargins method uses the height from the View's LayoutParams, but we want to be able to supply our own, calculated height.
+            heightSpec = getChildMeasureSpec(getHeight(),
+                    getHeightMode(),
+                    getPaddingTop() + getPaddingBottom() + lp.topMargin + lp.bottomMargin + insetsHeight,
+                    desiredHeight - insetsHeight,
+                    canScrollVertically());
+        }
+        else
+        {
+            widthSpec = getChildMeasureSpec(getWidth(),
+                    getWidthMode(),
+                    getPaddingLeft() + getPaddingRight() + lp.leftMargin + lp.rightMargin + insetsWidth,
+                    desiredHeight - insetsWidth,
+                    canScrollHorizontally());
+            heightSpec = getChildMeasureSpec(getHeight(),
+                    getHeightMode(),
+                    getPaddingTop() + getPaddingBottom() + lp.topMargin + lp.bottomMargin + insetsHeight + occupiedWidth,
+                    lp.height,
+                    canScrollVertically());
+        }
+
+        // The measureChildWithMargins method has an extra shouldMeasureChild check, but that method is private.
+        // Our own check compares the specs to the ones of the last measurement.
+        if (child.isLayoutRequested() || !lp.hasMeasureSpecs(widthSpec, heightSpec))
+        {
+            child.measure(widthSpec, heightSpec);
+            lp.setMeasureSpecs(widthSpec, heightSpec);
+            measuredChildCount++;
+            if (activeMetrics != null)
+            {
+                activeMetrics.onViewMeasured();
+            }
+        }
+    }
+
+    /**
+     * @return The number of times a child View was measured. Children that did not change are not measured again.
      */
-    private int getRecyclerViewLeft()
+    @VisibleForTesting
+    int getMeasuredChildCount()
+    {
+        return measuredChildCount;
+    }
 
+    /**
+     * @return The number of self sized items whose measured height is remembered. Needs stable ids and an attached RecyclerView.
+     */
+    @VisibleForTesting
+    int getMeasuredHeightCount()
     {
-        return getPaddingLeft();
+        return measuredHeights.size();
     }
 
     /**
-     * @return The right side of the parent RecyclerView.
+     * @param column A column index, or the column count for the right side of the last column.
+     * @return The left side of the column.
      */
-    private int getRecyclerViewRight()
+    private int getColumnLeft(final int column)
     {
-        return getWidth() - getPaddingRight();
+        final int left = getCrossStartAfterPadding();
+
+        return left + (getCrossEndAfterPadding() - left) * column / columnCount;
     }
 
     /**
-     * Converts the View index to the adapter index.
-     *
-     * @param viewIndex The childView index in the parent RecyclerView ViewGroup.
-     * @return The adapter index for the View found at this position.
+     * Forgets the measured heights of the items in a range, their content changed.
+     */
+    private void invalidateMeasuredHeights(final int positionStart, final int itemCount)
+    {
+        final RecyclerView.Adapter<?> adapter = recyclerView != null ? recyclerView.getAdapter() : null;
+        if (adapter == null || !adapter.hasStableIds() || measuredHeights.size() == 0)
+        {
+            return;
+        }
+
+        final int end = Math.min(positionStart + itemCount, adapter.getItemCount());
+        for (int position = positionStart; position < end; position++)
+        {
+            measuredHeights.remove(adapter.getItemId(position));
+        }
+    }
+
+    @Override
+    public void onAttachedToWindow(final RecyclerView view)
+    {
+        super.onAttachedToWindow(view);
+
+        recyclerView = view;
+    }
+
+    @Override
+    public void onDetachedFromWindow(final RecyclerView view, final RecyclerView.Recycler recycler)
+    {
+        super.onDetachedFromWindow(view, recycler);
+        visiblePositionsValid = false;
+        clearVisibility();
+
+        recyclerView = null;
+    }
+
+    /**
+     * Lets all visible items exit, when the items they belong to are gone.
      */
-    private int getAdapterIndexForViewIndex(final int viewIndex)
+    private void clearVisibility()
+    {
+        if (visibilityTracker != null)
+        {
+            visibilityTracker.clear(SystemClock.uptimeMillis());
+        }
+    }
+
+    @Override
+    public void onAdapterChanged(RecyclerView.Adapter oldAdapter, RecyclerView.Adapter newAdapter)
+    {
+        super.onAdapterChanged(oldAdapter, newAdapter);
+        visiblePositionsValid = false;
+        clearVisibility();
+
+        engine.clear();
+        measuredHeights.clear();
+    }
+
+    @Override
+    public void onItemsChanged(RecyclerView recyclerView)
+    {
+        super.onItemsChanged(recyclerView);
+        visiblePositionsValid = false;
+        clearVisibility();
+
+        engine.clear();
+        measuredHeights.clear();
+    }
+
+    @Override
+    public void onItemsUpdated(RecyclerView recyclerView, int positionStart, int itemCount)
+    {
+        super.onItemsUpdated(recyclerView, positionStart, itemCount);
+
+        engine.onItemsUpdated(positionStart, itemCount);
+        invalidateMeasuredHeights(positionStart, itemCount);
+    }
+
+    @Override
+    public void onItemsMoved(RecyclerView recyclerView, int from, int to, int itemCount)
+    {
+        super.onItemsMoved(recyclerView, from, to, itemCount);
+        visiblePositionsValid = false;
+
+        engine.onItemsMoved(from, to, itemCount);
+        if (visibilityTracker != null)
+        {
+            // The moved item exits and enters again at its new position in the next pass.
+            final long now = SystemClock.uptimeMillis();
+            visibilityTracker.onItemsRemoved(from, itemCount, now);
+            visibilityTracker.onItemsInserted(to, itemCount, now);
+        }
+    }
+
+    @Override
+    public void onItemsAdded(RecyclerView recyclerView, int positionStart, int itemCount)
     {
-        return getPosition(getChildAt(viewIndex));
+        super.onItemsAdded(recyclerView, positionStart, itemCount);
+        visiblePositionsValid = false;
+
+        engine.onItemsAdded(positionStart, itemCount);
+        if (visibilityTracker != null)
+        {
+            visibilityTracker.onItemsInserted(positionStart, itemCount, SystemClock.uptimeMillis());
+        }
+    }
+
+    @Override
+    public void onItemsRemoved(RecyclerView recyclerView, int positionStart, int itemCount)
+    {
+        super.onItemsRemoved(recyclerView, positionStart, itemCount);
+        visiblePositionsValid = false;
+
+        engine.onItemsRemoved(positionStart, itemCount);
+        if (visibilityTracker != null)
+        {
+            visibilityTracker.onItemsRemoved(positionStart, itemCount, SystemClock.uptimeMillis());
+        }
+
+        // Removed items can not be looked up by id. Start over when most entries must belong to items that are gone.
+        if (measuredHeights.size() > 2 * getItemCount())
+        {
+            measuredHeights.clear();
+        }
+    }
+
+    @Override
+    public int computeVerticalScrollOffset(final RecyclerView.State state)
+    {
+        return computeScrollOffset(state);
+    }
+
+    @Override
+    public int computeHorizontalScrollOffset(final RecyclerView.State state)
+    {
+        return computeScrollOffset(state);
+    }
+
+    @Override
+    public int computeVerticalScrollRange(final RecyclerView.State state)
+    {
+        return computeScrollRange(state);
+    }
+
+    @Override
+    public int computeHorizontalScrollRange(final RecyclerView.State state)
+    {
+        return computeScrollRange(state);
+    }
+
+    @Override
+    public int computeVerticalScrollExtent(final RecyclerView.State state)
+    {
+        return computeScrollExtent(state);
+    }
+
+    @Override
+    public int computeHorizontalScrollExtent(final RecyclerView.State state)
+    {
+        return computeScrollExtent(state);
+    }
+
+    /**
+     * The distance the content has been scrolled, based on the {@link LayoutIndex} position of the first attached View.
+     */
+    private int computeScrollOffset(final RecyclerView.State state)
+    {
+        if (getChildCount() == 0)
+        {
+            return 0;
+        }
+
+        engine.updateLayoutIndex(state.getItemCount());
+
+        return engine.getScrollOffset();
+    }
+
+    /**
+     * The total height of all content: the sum of the heights of all groups.
+     */
+    private int computeScrollRange(final RecyclerView.State state)
+    {
+        if (getChildCount() == 0)
+        {
+            return 0;
+        }
+
+        engine.updateLayoutIndex(state.getItemCount());
+
+        return layoutIndex.getTotalHeight();
+    }
+
+    /**
+     * The visible part of the content.
+     */
+    private int computeScrollExtent(final RecyclerView.State state)
+    {
+        if (getChildCount() == 0)
+        {
+            return 0;
+        }
+
+        return Math.min(getScrollSpace(), computeScrollRange(state));
+    }
+
+    /**
+     * Saves the start of the first group on screen and its offset from the top, so the exact scroll position can be restored.
+     */
+    @Override
+    public Parcelable onSaveInstanceState()
+    {
+        if (pendingScrollPosition != RecyclerView.NO_POSITION)
+        {
+            // Not laid out since the scroll was requested, save the requested position.
+            return new SavedState(pendingScrollPosition, pendingScrollOffset);
+        }
+
+        if (pendingSavedState != null)
+        {
+            // Not laid out since the state was restored, save the same state again.
+            return new SavedState(pendingSavedState.anchorPosition, pendingSavedState.anchorOffset);
+        }
+
+        final int firstPosition = engine.getFirstPosition();
+        if (getChildCount() == 0 || !engine.isLayoutIndexValid() || firstPosition >= layoutIndex.getItemCount())
+        {
+            return new SavedState(firstPosition, 0);
+        }
+
+        final View firstView = getChildAt(0);
+        final int group = layoutIndex.getGroup(firstPosition);
+        // The group can start above the first attached View, when its first items have been recycled already.
+        final int groupTop = getDecoratedStart(firstView) - (layoutIndex.getTop(firstPosition) - layoutIndex.getGroupTop(group));
+
+        return new SavedState(layoutIndex.getGroupStart(group), groupTop - getStartAfterPadding());
+    }
+
+    @Override
+    public void onRestoreInstanceState(final Parcelable state)
+    {
+        if (state instanceof SavedState)
+        {
+            pendingSavedState = (SavedState) state;
+            pendingScrollPosition = RecyclerView.NO_POSITION;
+            requestLayout();
+        }
+    }
+
+    /**
+     * Jumps to the requested position. Not animated.
+     *
+     * @param position The adapter position to jump to.
+     */
+    @Override
+    public void scrollToPosition(final int position)
+    {
+        scrollToPositionWithOffset(position, 0);
+    }
+
+    /**
+     * Jumps to the requested position and places its top at an offset from the top of the RecyclerView. Not animated.
+     * <p>
+     * The target is looked up in the {@link LayoutIndex} during the next layout pass, which lays out a single screen at the target.
+     * The attached Views are scrapped for that pass, so the ones that are still visible at the target are reused without being rebound.
+     *
+     * @param position The adapter position to jump to. Positions beyond the last item jump to the last item.
+     * @param offset   The distance between the top of the RecyclerView (after padding) and the top of the item.
+     */
+    public void scrollToPositionWithOffset(final int position, final int offset)
+    {
+        if (position < 0)
+        {
+            throw new IllegalArgumentException("Invalid position: " + position);
+        }
+
+        pendingScrollPosition = position;
+        pendingScrollOffset = offset;
+        pendingSavedState = null;
+
+        requestLayout();
+    }
+
+    /**
+     * Scrolls to the requested position. Animated.
+     * <p>
+     * The distance to the target is calculated with the {@link LayoutIndex}. When the target is more than a screen away,
+     * the RecyclerView first jumps to one screen before the target, so only the last screen is animated.
+     * This keeps the duration and the number of Views that are bound independent of the distance.
+     */
+    @Override
+    public void smoothScrollToPosition(RecyclerView recyclerView, RecyclerView.State state, int position)
+    {
+        engine.updateLayoutIndex(state.getItemCount());
+
+        if (getChildCount() > 0 && position >= 0 && position < layoutIndex.getItemCount())
+        {
+            final int distance = engine.getClampedScrollOffset(layoutIndex.getTop(position)) - engine.getScrollOffset();
+            final int animatedDistance = getScrollSpace();
+            if (Math.abs(distance) > animatedDistance)
+            {
+                // Far jumps are handled by scrollBy without laying out the items in between.
+                final int jump = distance > 0 ? distance - animatedDistance : distance + animatedDistance;
+                if (orientation == VERTICAL)
+                {
+                    recyclerView.scrollBy(0, jump);
+                }
+                else
+                {
+                    recyclerView.scrollBy(jump, 0);
+                }
+            }
+        }
+
+        final IndexSmoothScroller smoothScroller = new IndexSmoothScroller(recyclerView.getContext());
+        smoothScroller.setTargetPosition(position);
+        startSmoothScroll(smoothScroller);
+    }
+
+    /**
+     * @return The adapter position of the first View that is (partially) visible on screen, or {@link RecyclerView#NO_POSITION}.
+     */
+    public int findFirstVisibleItemPosition()
+    {
+        updateVisiblePositions();
+
+        return firstVisiblePosition;
+    }
+
+    /**
+     * @return The adapter position of the first View that is completely visible on screen, or {@link RecyclerView#NO_POSITION}.
+     */
+    public int findFirstCompletelyVisibleItemPosition()
+    {
+        updateVisiblePositions();
+
+        return firstCompletelyVisiblePosition;
+    }
+
+    /**
+     * @return The adapter position of the last View that is (partially) visible on screen, or {@link RecyclerView#NO_POSITION}.
+     */
+    public int findLastVisibleItemPosition()
+    {
+        updateVisiblePositions();
+
+        return lastVisiblePosition;
+    }
+
+    /**
+     * @return The adapter position of the last View that is completely visible on screen, or {@link RecyclerView#NO_POSITION}.
+     */
+    public int findLastCompletelyVisibleItemPosition()
+    {
+        updateVisiblePositions();
+
+        return lastCompletelyVisiblePosition;
+    }
+
+    /**
+     * Finds the visible positions if the children moved since they were last found.
+     * <p>
+     * Items inside a group can be in any order on screen, for example an item in the right column after a tall item in the left column.
+     * The tops of the groups never decrease with the position though, so the children whose group reaches the screen are found
+     * with a binary search over the group tops. Only those children are checked one by one.
+     * Without an up to date {@link LayoutIndex} or when the children are not in position order, all children are checked.
+     */
+    private void updateVisiblePositions()
+    {
+        if (visiblePositionsValid)
+        {
+            return;
+        }
+
+        firstVisiblePosition = RecyclerView.NO_POSITION;
+        firstCompletelyVisiblePosition = RecyclerView.NO_POSITION;
+        lastVisiblePosition = RecyclerView.NO_POSITION;
+        lastCompletelyVisiblePosition = RecyclerView.NO_POSITION;
+
+        final int start = getStartAfterPadding();
+        final int end = getEndAfterPadding();
+
+        if (hasOrderedChildGroups())
+        {
+            // Groups before the one that covers the start of the screen end above it.
+            final int afterStartIndex = findFirstChildGroupStartingAt(start + 1);
+            final int startIndex = afterStartIndex > 0 ? findFirstChildGroupStartingAt(getChildGroupTop(afterStartIndex - 1)) : 0;
+            // Groups that start at or below the end of the screen are not visible either.
+            final int endIndex = findFirstChildGroupStartingAt(end);
+
+            updateVisiblePositions(startIndex, endIndex, start, end);
+        }
+        else
+        {
+            updateVisiblePositions(0, getChildCount(), start, end);
+        }
+
+        visiblePositionsValid = true;
+    }
+
+    /**
+     * Checks the children in a range one by one and keeps the lowest and highest positions that are (completely) visible.
+     */
+    private void updateVisiblePositions(final int startIndex, final int endIndex, final int start, final int end)
+    {
+        for (int i = startIndex; i < endIndex; i++)
+        {
+            final View child = getChildAt(i);
+            final int top = getDecoratedStart(child);
+            final int bottom = getDecoratedEnd(child);
+            if (bottom <= start || top >= end)
+            {
+                continue;
+            }
+
+            final int position = getPosition(child);
+            firstVisiblePosition = minPosition(firstVisiblePosition, position);
+            lastVisiblePosition = Math.max(lastVisiblePosition, position);
+            if (top >= start && bottom <= end)
+            {
+                firstCompletelyVisiblePosition = minPosition(firstCompletelyVisiblePosition, position);
+                lastCompletelyVisiblePosition = Math.max(lastCompletelyVisiblePosition, position);
+            }
+        }
+    }
+
+    private static int minPosition(final int current, final int position)
+    {
+        return current == RecyclerView.NO_POSITION ? position : Math.min(current, position);
+    }
+
+    /**
+     * The group tops of the children only increase with the child index when the children are consecutive positions,
+     * which are all described by the {@link LayoutIndex}. Disappearing Views and pending adapter changes break this.
+     */
+    private boolean hasOrderedChildGroups()
+    {
+        final int childCount = getChildCount();
+        if (childCount == 0 || !engine.isLayoutIndexValid())
+        {
+            return false;
+        }
+
+        final int first = getPosition(getChildAt(0));
+        final int last = getPosition(getChildAt(childCount - 1));
+
+        return first >= 0 && last - first == childCount - 1 && last < layoutIndex.getItemCount();
+    }
+
+    /**
+     * @return The top of the group of a child, in RecyclerView coordinates.
+     */
+    private int getChildGroupTop(final int index)
+    {
+        final View child = getChildAt(index);
+
+        return getDecoratedStart(child) - layoutIndex.getGroupRelativeTop(getPosition(child));
+    }
+
+    /**
+     * Binary search over the group tops of the children, which never decrease with the child index.
+     *
+     * @param offset A top, in RecyclerView coordinates.
+     * @return The index of the first child whose group starts at or below the offset, or the child count if there is none.
+     */
+    private int findFirstChildGroupStartingAt(final int offset)
+    {
+        int low = 0;
+        int high = getChildCount();
+        while (low < high)
+        {
+            final int middle = (low + high) >>> 1;
+            if (getChildGroupTop(middle) < offset)
+            {
+                low = middle + 1;
+            }
+            else
+            {
+                high = middle;
+            }
+        }
+
+        return low;
+    }
+
+    /**
+     * @return The height available for child Views.
+     */
+    private int getScrollSpace()
+    {
+        return getEndAfterPadding() - getStartAfterPadding();
+    }
+
+    /**
+     * @return The height of the RecyclerView.
+     */
+    private int getScrollAxisSize()
+    {
+        return orientation == VERTICAL ? getHeight() : getWidth();
+    }
+
+    /**
+     * @return The width of the RecyclerView, divided over the columns.
+     */
+    private int getCrossAxisSize()
+    {
+        return orientation == VERTICAL ? getWidth() : getHeight();
+    }
+
+    /**
+     * @return The top of the parent RecyclerView, after padding.
+     */
+    private int getStartAfterPadding()
+    {
+        return orientation == VERTICAL ? getPaddingTop() : getPaddingLeft();
+    }
+
+    /**
+     * @return The bottom of the parent RecyclerView, after padding.
+     */
+    private int getEndAfterPadding()
+    {
+        return orientation == VERTICAL ? getHeight() - getPaddingBottom() : getWidth() - getPaddingRight();
+    }
+
+    /**
+     * @return The left side of the parent RecyclerView.
+     */
+    private int getCrossStartAfterPadding()
+    {
+        return orientation == VERTICAL ? getPaddingLeft() : getPaddingTop();
+    }
+
+    /**
+     * @return The right side of the parent RecyclerView.
+     */
+    private int getCrossEndAfterPadding()
+    {
+        return orientation == VERTICAL ? getWidth() - getPaddingRight() : getHeight() - getPaddingBottom();
+    }
+
+    private int getDecoratedStart(final View child)
+    {
+        return orientation == VERTICAL ? getDecoratedTop(child) : getDecoratedLeft(child);
+    }
+
+    private int getDecoratedEnd(final View child)
+    {
+        return orientation == VERTICAL ? getDecoratedBottom(child) : getDecoratedRight(child);
+    }
+
+    private int getDecoratedMeasuredSize(final View child)
+    {
+        return orientation == VERTICAL ? getDecoratedMeasuredHeight(child) : getDecoratedMeasuredWidth(child);
+    }
+
+    /**
+     * Lays out a child with its decorations, turning the bounds on their side in the horizontal orientation.
+     */
+    private void layoutChild(final View child, final int top, final int bottom, final int left, final int right)
+    {
+        if (orientation == VERTICAL)
+        {
+            layoutDecorated(child, left, top, right, bottom);
+        }
+        else
+        {
+            layoutDecorated(child, top, left, bottom, right);
+        }
+    }
+
+    /**
+     * The child Views as tiles of the {@link FeedLayoutEngine}. Tiles are child Views in child order,
+     * tops and bottoms are their decorated edges along the scroll axis.
+     */
+    private class ViewTileContainer implements TileContainer
+    {
+        // Recycler of the running layout pass or scroll, null outside of them.
+        private RecyclerView.Recycler recycler;
+        // The View of the tile that is being added, and whether it was attached to measure it.
+        private View pendingView;
+        private boolean pendingViewAttached;
+
+        @Override
+        public int getTileCount()
+        {
+            return getChildCount();
+        }
+
+        @Override
+        public int getTilePosition(final int index)
+        {
+            return getPosition(getChildAt(index));
+        }
+
+        @Override
+        public int getTileTop(final int index)
+        {
+            return getDecoratedStart(getChildAt(index));
+        }
+
+        @Override
+        public int getTileBottom(final int index)
+        {
+            return getDecoratedEnd(getChildAt(index));
+        }
+
+        @Override
+        public int getTileColumn(final int index)
+        {
+            return ((LayoutParams) getChildAt(index).getLayoutParams()).column;
+        }
+
+        @Override
+        public int getTileColumnSpan(final int index)
+        {
+            return ((LayoutParams) getChildAt(index).getLayoutParams()).columnSpan;
+        }
+
+        @Override
+        public boolean isTileRemoved(final int index)
+        {
+            return ((RecyclerView.LayoutParams) getChildAt(index).getLayoutParams()).isItemRemoved();
+        }
+
+        @Override
+        public boolean isTileChanged(final int index)
+        {
+            return getChildAt(index).isLayoutRequested();
+        }
+
+        @Override
+        public boolean canRecycleTile(final int index)
+        {
+            return !getChildAt(index).hasFocus();
+        }
+
+        @Override
+        public int convertPreLayoutPosition(final int position)
+        {
+            return recycler.convertPreLayoutPositionToPostLayout(position);
+        }
+
+        @Override
+        public int obtainTile(final int position, final int descriptor)
+        {
+            final View view = recycler.getViewForPosition(position);
+            final LayoutParams lp = (LayoutParams) view.getLayoutParams();
+
+            if (activeMetrics != null)
+            {
+                activeMetrics.onViewAdded(lp.position != position || lp.isItemChanged());
+            }
+            // Items that are being removed are no longer in the adapter and use the descriptor their View was last laid out with.
+            if (descriptor != LayoutDescriptor.UNKNOWN)
+            {
+                lp.descriptor = descriptor;
+            }
+            lp.position = position;
+
+            pendingView = view;
+            pendingViewAttached = false;
+
+            return lp.descriptor;
+        }
+
+        @Override
+        public int measureTile(final boolean atEnd)
+        {
+            // Supports dynamic View size (from XML), the View is attached first so it is measured like it will be laid out.
+            addChildView(pendingView, atEnd ? getChildCount() : 0);
+            pendingViewAttached = true;
+            measureSelfSizedChild(pendingView);
+
+            final int measuredHeight = getDecoratedMeasuredSize(pendingView);
+            // Pre-layout positions do not match the stable ids of the current items.
+            final long id = recyclerView != null && !engine.isPreLayout() ? recyclerView.getChildItemId(pendingView) : RecyclerView.NO_ID;
+            if (id != RecyclerView.NO_ID)
+            {
+                measuredHeights.put(id, getCrossAxisSize(), measuredHeight);
+            }
+
+            return measuredHeight;
+        }
+
+        @Override
+        public void addTile(final int position, final boolean atEnd, final int column, final int columnEnd, final int top, final int bottom)
+        {
+            final View view = pendingView;
+            pendingView = null;
+
+            final int left = getColumnLeft(column);
+            final int right = getColumnLeft(columnEnd);
+
+            if (!pendingViewAttached)
+            {
+                addChildView(view, atEnd ? getChildCount() : 0);
+            }
+            setColumns(view, column, columnEnd - column);
+            if (!pendingViewAttached)
+            {
+                measureChildWithMarginsAndDesiredHeight(view, bottom - top, getCrossEndAfterPadding() - getCrossStartAfterPadding() - (right - left));
+            }
+            layoutChild(view, top, bottom, left, right);
+            updateVisibility(view, top, bottom);
+
+            if (hasExtraLayoutSpace())
+            {
+                markLaidOutAhead(view);
+            }
+        }
+
+        @Override
+        public void removeTile(final int index)
+        {
+            // A recycled View has no visible part.
+            updateVisibility(getChildAt(index), 0, 0);
+            removeAndRecycleViewAt(index, recycler);
+            if (activeMetrics != null)
+            {
+                activeMetrics.onViewRecycled();
+            }
+            visiblePositionsValid = false;
+        }
+
+        @Override
+        public void scrapTiles(final int fromIndex)
+        {
+            for (int i = getChildCount() - 1; i >= fromIndex; i--)
+            {
+                detachAndScrapViewAt(i, recycler);
+            }
+            visiblePositionsValid = false;
+        }
+
+        @Override
+        public void offsetTiles(final int offset)
+        {
+            visiblePositionsValid = false;
+
+            if (orientation == VERTICAL)
+            {
+                offsetChildrenVertical(offset);
+            }
+            else
+            {
+                offsetChildrenHorizontal(offset);
+            }
+
+            if (visibilityTracker != null)
+            {
+                // The Views that crossed an edge are updated once at the end of the pass, see updateVisibilityAtEdges.
+                passOffsetDistance += Math.abs(offset);
+            }
+        }
+
+        @Override
+        public int getMeasuredSize(final int position)
+        {
+            final RecyclerView.Adapter<?> adapter = recyclerView != null ? recyclerView.getAdapter() : null;
+            if (adapter == null || !adapter.hasStableIds() || measuredHeights.size() == 0)
+            {
+                return FeedLayoutEngine.NO_SIZE;
+            }
+
+            final int height = measuredHeights.get(adapter.getItemId(position), getCrossAxisSize());
+
+            return height == MeasuredHeightCache.NO_HEIGHT ? FeedLayoutEngine.NO_SIZE : height;
+        }
+
+        @Override
+        public int getStartAfterPadding()
+        {
+            return AdLayoutManager.this.getStartAfterPadding();
+        }
+
+        @Override
+        public int getEndAfterPadding()
+        {
+            return AdLayoutManager.this.getEndAfterPadding();
+        }
+
+        @Override
+        public int getScrollAxisSize()
+        {
+            return AdLayoutManager.this.getScrollAxisSize();
+        }
+
+        @Override
+        public int getCrossAxisSize()
+        {
+            return AdLayoutManager.this.getCrossAxisSize();
+        }
+    }
+
+    /**
+     * Smooth scroller that scrolls the exact distance to the target, as calculated with the {@link LayoutIndex},
+     * instead of seeking in fixed steps until the target View is laid out.
+     */
+    private class IndexSmoothScroller extends LinearSmoothScroller
+    {
+        IndexSmoothScroller(final Context context)
+        {
+            super(context);
+        }
+
+        @Override
+        public PointF computeScrollVectorForPosition(final int targetPosition)
+        {
+            final int distance = getDistanceToTarget(targetPosition);
+            if (distance == 0)
+            {
+                return null;
+            }
+
+            // Only need to scroll along the scroll axis.
+            return orientation == VERTICAL ? new PointF(0, distance) : new PointF(distance, 0);
+        }
+
+        @Override
+        protected void updateActionForInterimTarget(final Action action)
+        {
+            final int distance = getDistanceToTarget(getTargetPosition());
+            if (distance == 0)
+            {
+                // Unknown distance, let the default implementation jump to the target.
+                super.updateActionForInterimTarget(action);
+                return;
+            }
+
+            // Scroll linearly until the target View is laid out, onTargetFound will then snap it into place.
+            final float direction = Math.signum(distance);
+            mTargetVector = orientation == VERTICAL ? new PointF(0, direction) : new PointF(direction, 0);
+            mInterimTargetDx = orientation == VERTICAL ? 0 : distance;
+            mInterimTargetDy = orientation == VERTICAL ? distance : 0;
+            action.update(mInterimTargetDx, mInterimTargetDy, calculateTimeForScrolling(Math.abs(distance)), mLinearInterpolator);
+        }
+
+        @Override
+        protected int getVerticalSnapPreference()
+        {
+            return SNAP_TO_START;
+        }
+
+        @Override
+        protected int getHorizontalSnapPreference()
+        {
+            return SNAP_TO_START;
+        }
+
+        /**
+         * @return The distance between the current scroll offset and the offset at which the target is at the top,
+         * or 0 if there is nothing to scroll or the target is not part of the {@link LayoutIndex}.
+         */
+        private int getDistanceToTarget(final int targetPosition)
+        {
+            if (getChildCount() == 0 || !engine.isLayoutIndexValid() || targetPosition < 0 || targetPosition >= layoutIndex.getItemCount())
+            {
+                return 0;
+            }
+
+            return engine.getClampedScrollOffset(layoutIndex.getTop(targetPosition)) - engine.getScrollOffset();
+        }
+    }
+
+    /**
+     * LayoutParams that remember the measure specs a child was last measured with.
+     */
+    public static class LayoutParams extends RecyclerView.LayoutParams
+    {
+        // The first column this View was laid out in and the number of columns it spans.
+        int column;
+        int columnSpan;
+        // The LayoutDescriptor this View was laid out with. Still needed when the item is removed from the adapter.
+        int descriptor;
+        // The position this View was last added for. A View added for another position had to be bound again.
+        int position = RecyclerView.NO_POSITION;
+        // Set when the View was laid out beyond the edges of the screen and has not scrolled into view yet.
+        boolean laidOutAhead;
+
+        // Specs of the last measurement done by the AdLayoutManager.
+        private int widthMeasureSpec;
+        private int heightMeasureSpec;
+        private boolean measured;
+
+        public LayoutParams(Context c, AttributeSet attrs)
+        {
+            super(c, attrs);
+        }
+
+        public LayoutParams(int width, int height)
+        {
+            super(width, height);
+        }
+
+        public LayoutParams(ViewGroup.MarginLayoutParams source)
+        {
+            super(source);
+        }
+
+        public LayoutParams(ViewGroup.LayoutParams source)
+        {
+            super(source);
+        }
+
+        /**
+         * @return true if the child was last measured with exactly these specs.
+         */
+        boolean hasMeasureSpecs(final int widthSpec, final int heightSpec)
+        {
+            return measured && widthMeasureSpec == widthSpec && heightMeasureSpec == heightSpec;
+        }
+
+        void setMeasureSpecs(final int widthSpec, final int heightSpec)
+        {
+            widthMeasureSpec = widthSpec;
+            heightMeasureSpec = heightSpec;
+            measured = true;
+        }
+    }
+
+    /**
+     * The scroll position of the feed: the first adapter position of a group and the distance between its top and the top of the RecyclerView.
+     */
+    public static class SavedState implements Parcelable
+    {
+        final int anchorPosition;
+        final int anchorOffset;
+
+        SavedState(final int anchorPosition, final int anchorOffset)
+        {
+            this.anchorPosition = anchorPosition;
+            this.anchorOffset = anchorOffset;
+        }
+
+        SavedState(final Parcel in)
+        {
+            anchorPosition = in.readInt();
+            anchorOffset = in.readInt();
+        }
+
+        @Override
+        public int describeContents()
+        {
+            return 0;
+        }
+
+        @Override
+        public void writeToParcel(final Parcel dest, final int flags)
+        {
+            dest.writeInt(anchorPosition);
+            dest.writeInt(anchorOffset);
+        }
+
+        public static final Parcelable.Creator<SavedState> CREATOR = new Parcelable.Creator<SavedState>()
+        {
+            @Override
+            public SavedState createFromParcel(final Parcel in)
+            {
+                return new SavedState(in);
+            }
+
+            @Override
+            public SavedState[] newArray(final int size)
+            {
+                return new SavedState[size];
+            }
+        };
     }
 }
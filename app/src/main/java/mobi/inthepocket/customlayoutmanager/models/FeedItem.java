@@ -0,0 +1,61 @@
+package mobi.inthepocket.customlayoutmanager.models;
+
+import mobi.inthepocket.customlayoutmanager.enums.LayoutGravity;
+
+/**
+ * A single item in the feed.
+ * The type and gravity are fixed when the item is created, so they never have to be derived from the item's content.
+ */
+public class FeedItem
+{
+    public enum Type
+    {
+        // Standard 1x1 tile.
+        PICTURE,
+        // Standard 1x1 tile.
+        TEXT,
+        // 1 column wide, 2 rows high.
+        TEXT_TALL,
+        // Spans all columns.
+        WIDE
+    }
+
+    private final long id;
+    private final Type type;
+    private final LayoutGravity gravity;
+    private final String title;
+
+    /**
+     * @param id      Unique, stable id of the item. Used as the adapter's stable id.
+     * @param type    The kind of tile to show this item in.
+     * @param gravity The column to place the item in. Ignored for wide items.
+     * @param title   The text to show in the tile.
+     */
+    public FeedItem(final long id, final Type type, final LayoutGravity gravity, final String title)
+    {
+        this.id = id;
+        this.type = type;
+        this.gravity = gravity;
+        this.title = title;
+    }
+
+    public long getId()
+    {
+        return id;
+    }
+
+    public Type getType()
+    {
+        return type;
+    }
+
+    public LayoutGravity getGravity()
+    {
+        return gravity;
+    }
+
+    public String getTitle()
+    {
+        return title;
+    }
+}
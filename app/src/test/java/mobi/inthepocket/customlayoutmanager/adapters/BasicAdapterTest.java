@@ -0,0 +1,168 @@
+package mobi.inthepocket.customlayoutmanager.adapters;
+
+import android.support.v7.widget.RecyclerView;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import mobi.inthepocket.customlayoutmanager.BuildConfig;
+import mobi.inthepocket.customlayoutmanager.models.FeedItem;
+
+import static mobi.inthepocket.customlayoutmanager.enums.LayoutGravity.LEFT;
+import static mobi.inthepocket.customlayoutmanager.enums.LayoutGravity.RIGHT;
+import static org.junit.Assert.assertEquals;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class BasicAdapterTest
+{
+    // Runs the diff calculations when the test asks for it, in any order.
+    private final List<Runnable> pendingDiffs = new ArrayList<>();
+    private final RecordingObserver observer = new RecordingObserver();
+    private BasicAdapter adapter;
+
+    @Before
+    public void setUp()
+    {
+        adapter = new BasicAdapter(RuntimeEnvironment.application, null, new Executor()
+        {
+            @Override
+            public void execute(final Runnable command)
+            {
+                pendingDiffs.add(command);
+            }
+        });
+        adapter.setItems(Arrays.asList(item(0, "a"), item(1, "b"), item(2, "c"), item(3, "d")));
+        adapter.registerAdapterDataObserver(observer);
+    }
+
+    @Test
+    public void submitItems_notifiesOnlyDifferences()
+    {
+        adapter.submitItems(Arrays.asList(item(0, "a"), item(2, "c changed"), item(3, "d"), item(4, "e")));
+        assertEquals(4, adapter.getItemCount());
+        assertEquals(0, observer.events.size());
+
+        runPendingDiffs();
+
+        assertEquals(4, adapter.getItemCount());
+        assertEquals(4, adapter.getItemId(3));
+        // Positions depend on the order DiffUtil dispatches in, only the kinds of notifications are checked.
+        assertEquals(3, observer.events.size());
+        assertEquals(1, count("removed"));
+        assertEquals(1, count("changed"));
+        assertEquals(1, count("inserted"));
+    }
+
+    @Test
+    public void submitItems_discardsSupersededResults()
+    {
+        adapter.submitItems(Arrays.asList(item(0, "a")));
+        final Runnable first = pendingDiffs.remove(0);
+        adapter.submitItems(Arrays.asList(item(0, "a"), item(1, "b")));
+
+        runPendingDiffs();
+        first.run();
+
+        assertEquals(2, adapter.getItemCount());
+        assertEquals(Arrays.asList("removed 2"), observer.events);
+    }
+
+    @Test
+    public void setItems_discardsPendingResults()
+    {
+        adapter.submitItems(Arrays.asList(item(0, "a")));
+        adapter.setItems(Arrays.asList(item(5, "f"), item(6, "g")));
+
+        runPendingDiffs();
+
+        assertEquals(2, adapter.getItemCount());
+        assertEquals(5, adapter.getItemId(0));
+    }
+
+    @Test
+    public void itemAddedDuringDiff_calculatesAgain()
+    {
+        adapter.submitItems(Arrays.asList(item(0, "a"), item(1, "b")));
+        adapter.addItem(0, item(7, "h"));
+
+        runPendingDiffs();
+
+        assertEquals(2, adapter.getItemCount());
+        assertEquals(1, adapter.getItemId(1));
+    }
+
+    private void runPendingDiffs()
+    {
+        while (!pendingDiffs.isEmpty())
+        {
+            pendingDiffs.remove(0).run();
+        }
+    }
+
+    private int count(final String kind)
+    {
+        int count = 0;
+        for (final String event : observer.events)
+        {
+            if (event.startsWith(kind))
+            {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    private static FeedItem item(final long id, final String title)
+    {
+        return new FeedItem(id, FeedItem.Type.TEXT, id % 2 == 0 ? LEFT : RIGHT, title);
+    }
+
+    /**
+     * Records the notifications of the adapter, with the position they start at.
+     */
+    private static class RecordingObserver extends RecyclerView.AdapterDataObserver
+    {
+        final List<String> events = new ArrayList<>();
+
+        @Override
+        public void onChanged()
+        {
+            events.add("all");
+        }
+
+        @Override
+        public void onItemRangeChanged(final int positionStart, final int itemCount, final Object payload)
+        {
+            events.add("changed " + positionStart);
+        }
+
+        @Override
+        public void onItemRangeInserted(final int positionStart, final int itemCount)
+        {
+            events.add("inserted " + positionStart);
+        }
+
+        @Override
+        public void onItemRangeRemoved(final int positionStart, final int itemCount)
+        {
+            events.add("removed " + positionStart);
+        }
+
+        @Override
+        public void onItemRangeMoved(final int fromPosition, final int toPosition, final int itemCount)
+        {
+            events.add("moved " + fromPosition);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package mobi.inthepocket.customlayoutmanager.helpers;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class ColumnEdgesTest
+{
+    private ColumnEdges columnEdges;
+
+    @Before
+    public void setUp()
+    {
+        columnEdges = new ColumnEdges();
+        columnEdges.setColumnCount(3);
+        columnEdges.set(100);
+    }
+
+    @Test
+    public void placeBelow_usesLowestSpannedColumn()
+    {
+        assertEquals(100, columnEdges.placeBelow(0, 1, 50));
+        assertEquals(150, columnEdges.placeBelow(0, 2, 20));
+
+        assertEquals(170, columnEdges.getBottom(0));
+        assertEquals(170, columnEdges.getBottom(1));
+        assertEquals(100, columnEdges.getBottom(2));
+        assertEquals(100, columnEdges.getMinBottom());
+        assertEquals(170, columnEdges.getMaxBottom());
+        assertEquals(100, columnEdges.getTop(0));
+    }
+
+    @Test
+    public void placeAbove_usesHighestSpannedColumn()
+    {
+        assertEquals(70, columnEdges.placeAbove(2, 3, 30));
+        assertEquals(40, columnEdges.placeAbove(0, 3, 30));
+
+        assertEquals(40, columnEdges.getMinTop());
+        assertEquals(40, columnEdges.getMaxTop());
+        assertEquals(100, columnEdges.getMaxBottom());
+    }
+
+    @Test
+    public void offset_movesAllEdges()
+    {
+        columnEdges.placeBelow(1, 2, 10);
+        columnEdges.offset(-25);
+
+        assertEquals(75, columnEdges.getTop(1));
+        assertEquals(85, columnEdges.getBottom(1));
+        assertEquals(75, columnEdges.getMinBottom());
+    }
+
+    @Test
+    public void restore_undoesPlacementsAfterSave()
+    {
+        columnEdges.placeBelow(0, 1, 10);
+        columnEdges.save();
+        columnEdges.placeBelow(0, 3, 40);
+        columnEdges.placeAbove(0, 3, 40);
+        columnEdges.restore();
+
+        assertEquals(110, columnEdges.getBottom(0));
+        assertEquals(100, columnEdges.getBottom(1));
+        assertEquals(100, columnEdges.getMinTop());
+    }
+
+    @Test
+    public void minAndMax_followEdgesThatMoveInwards()
+    {
+        columnEdges.placeBelow(0, 1, 50);
+        columnEdges.placeBelow(1, 2, 30);
+        assertEquals(100, columnEdges.getMinBottom());
+        assertEquals(150, columnEdges.getMaxBottom());
+
+        columnEdges.setBottoms(0, 1, 120);
+        assertEquals(130, columnEdges.getMaxBottom());
+        columnEdges.placeBelow(2, 3, 40);
+        assertEquals(120, columnEdges.getMinBottom());
+        assertEquals(140, columnEdges.getMaxBottom());
+    }
+
+    @Test
+    public void offset_appliesToPlacementsAndRestore()
+    {
+        columnEdges.offset(-25);
+        columnEdges.save();
+        assertEquals(75, columnEdges.placeBelow(0, 2, 10));
+        columnEdges.setTops(2, 3, 60);
+        columnEdges.offset(5);
+
+        assertEquals(90, columnEdges.getMaxBottom());
+        assertEquals(65, columnEdges.getMinTop());
+
+        columnEdges.restore();
+        assertEquals(75, columnEdges.getMaxBottom());
+        assertEquals(75, columnEdges.getMinTop());
+    }
+}
@@ -0,0 +1,155 @@
+package mobi.inthepocket.customlayoutmanager.helpers;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class FeedLayoutEngineTest
+{
+    private static final int WIDTH = 100;
+    private static final int HEIGHT = 100;
+    private static final int ROW = FeedLayoutEngine.getRowHeight(WIDTH, 2);
+    private static final int DUO_COUNT = 20;
+
+    private FeedLayoutInfoLookup feed;
+    private TileArray tiles;
+    private FeedLayoutEngine engine;
+
+    @Before
+    public void setUp()
+    {
+        final String[] items = new String[2 * DUO_COUNT];
+        for (int i = 0; i < DUO_COUNT; i++)
+        {
+            items[2 * i] = "text left";
+            items[2 * i + 1] = "text right";
+        }
+        feed = new FeedLayoutInfoLookup(items);
+        tiles = new TileArray(WIDTH, HEIGHT);
+        engine = new FeedLayoutEngine(feed, tiles, 2);
+        engine.layout(feed.items.size());
+    }
+
+    @Test
+    public void layout_fillsTheScreen()
+    {
+        // Two rows of a duo fill the screen.
+        assertEquals(4, tiles.getTileCount());
+        assertEquals(4, tiles.getAddedTileCount());
+        for (int i = 0; i < 4; i++)
+        {
+            assertEquals(i, tiles.getTilePosition(i));
+            assertEquals(i % 2, tiles.getTileColumn(i));
+            assertEquals(i / 2 * ROW, tiles.getTileTop(i));
+        }
+        assertEquals(0, engine.getFirstPosition());
+    }
+
+    @Test
+    public void scrollBy_addsAndRecyclesTilesAtTheEdges()
+    {
+        assertEquals(ROW + 1, engine.scrollBy(feed.items.size(), ROW + 1));
+
+        // The first row is scrolled off, a fourth row is scrolled in.
+        assertEquals(2, engine.getFirstPosition());
+        assertEquals(6, tiles.getTileCount());
+        assertEquals(2, tiles.getTilePosition(0));
+        assertEquals(-1, tiles.getTileTop(0));
+        assertEquals(7, tiles.getTilePosition(5));
+        assertEquals(ROW + 1, engine.getScrollOffset());
+
+        assertEquals(-(ROW + 1), engine.scrollBy(feed.items.size(), -(ROW + 1)));
+        assertEquals(0, engine.getFirstPosition());
+        assertEquals(0, tiles.getTileTop(0));
+        assertEquals(0, engine.getScrollOffset());
+    }
+
+    @Test
+    public void scrollBy_stopsAtTheEdgesOfTheContent()
+    {
+        assertEquals(0, engine.scrollBy(feed.items.size(), -ROW));
+
+        engine.scrollToOffset(feed.items.size(), (DUO_COUNT - 2) * ROW);
+        assertEquals(0, engine.scrollBy(feed.items.size(), ROW));
+        assertEquals(2 * DUO_COUNT - 1, tiles.getTilePosition(tiles.getTileCount() - 1));
+        assertEquals(HEIGHT, tiles.getTileBottom(tiles.getTileCount() - 1));
+    }
+
+    @Test
+    public void scrollToOffset_onlyAddsTheTilesAtTheOffset()
+    {
+        final int addedTileCount = tiles.getAddedTileCount();
+
+        assertEquals(10 * ROW, engine.scrollToOffset(feed.items.size(), 10 * ROW));
+
+        assertEquals(20, engine.getFirstPosition());
+        assertEquals(20, tiles.getTilePosition(0));
+        assertEquals(0, tiles.getTileTop(0));
+        assertEquals(10 * ROW, engine.getScrollOffset());
+        assertEquals(4, tiles.getAddedTileCount() - addedTileCount);
+    }
+
+    @Test
+    public void onItemsAdded_beforeTheScreen_keepsTheTilesInPlace()
+    {
+        engine.scrollToOffset(feed.items.size(), 5 * ROW);
+
+        feed.items.add(0, "wide");
+        feed.items.add(0, "wide");
+        tiles.onItemsAdded(0, 2);
+        engine.onItemsAdded(0, 2);
+        engine.layout(feed.items.size());
+
+        assertEquals(12, engine.getFirstPosition());
+        assertEquals(12, tiles.getTilePosition(0));
+        assertEquals(0, tiles.getTileTop(0));
+    }
+
+    @Test
+    public void onItemsAdded_atTheAnchoredEnd_onlyAddsTheNewTiles()
+    {
+        tiles.clear();
+        engine.setStackFromEnd(true);
+        engine.layout(feed.items.size());
+        final int addedTileCount = tiles.getAddedTileCount();
+
+        feed.items.add("text left");
+        feed.items.add("text right");
+        engine.onItemsAdded(2 * DUO_COUNT, 2);
+        engine.layout(feed.items.size());
+
+        // The kept tiles moved up a row, only the new row was added below them.
+        final int last = tiles.getTileCount() - 1;
+        assertEquals(2, tiles.getAddedTileCount() - addedTileCount);
+        assertEquals(2 * DUO_COUNT + 1, tiles.getTilePosition(last));
+        assertEquals(HEIGHT, tiles.getTileBottom(last));
+        assertEquals(2 * DUO_COUNT - 2, tiles.getTilePosition(last - 3));
+        assertEquals(0, tiles.getTileTop(last - 3));
+        assertEquals(true, engine.isAtEnd());
+    }
+
+    @Test
+    public void onItemsRemoved_includingTheFirstPosition_continuesAtTheItemThatTookItsPlace()
+    {
+        engine.scrollToOffset(feed.items.size(), 5 * ROW);
+        assertEquals(10, engine.getFirstPosition());
+
+        // Removes two duos: one above the screen and the first one on it.
+        for (int i = 0; i < 4; i++)
+        {
+            feed.items.remove(8);
+        }
+        tiles.onItemsRemoved(8, 4);
+        engine.onItemsRemoved(8, 4);
+
+        // The first position does not move before the removed range.
+        assertEquals(8, engine.getFirstPosition());
+
+        engine.layout(feed.items.size());
+
+        assertEquals(8, engine.getFirstPosition());
+        assertEquals(8, tiles.getTilePosition(0));
+        assertEquals(false, tiles.isTileRemoved(0));
+    }
+}
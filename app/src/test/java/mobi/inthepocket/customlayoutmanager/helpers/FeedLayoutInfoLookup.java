@@ -0,0 +1,57 @@
+package mobi.inthepocket.customlayoutmanager.helpers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import mobi.inthepocket.customlayoutmanager.interfaces.LayoutInfoLookup;
+
+/**
+ * {@link LayoutInfoLookup} for tests, using the same item descriptions as the demo feed ("wide", "text left", "text tall right",...).
+ * Feeds with more columns can use "column 2" and "span 3" to place an item.
+ */
+public class FeedLayoutInfoLookup implements LayoutInfoLookup
+{
+    private static final Pattern COLUMN = Pattern.compile("column (\\d+)");
+    private static final Pattern SPAN = Pattern.compile("span (\\d+)");
+
+    public final List<String> items;
+
+    public FeedLayoutInfoLookup(final String... items)
+    {
+        this.items = new ArrayList<>(Arrays.asList(items));
+    }
+
+    @Override
+    public int getRowSpan(final int position)
+    {
+        return items.get(position).contains("tall") ? 2 : 1;
+    }
+
+    @Override
+    public int getColumnSpan(final int position)
+    {
+        return find(SPAN, items.get(position), items.get(position).contains("wide") ? 2 : 1);
+    }
+
+    @Override
+    public boolean useViewSize(final int position)
+    {
+        return items.get(position).contains("wide");
+    }
+
+    @Override
+    public int getColumn(final int position)
+    {
+        return items.get(position).contains("right") ? 1 : find(COLUMN, items.get(position), 0);
+    }
+
+    private static int find(final Pattern pattern, final String item, final int defaultValue)
+    {
+        final Matcher matcher = pattern.matcher(item);
+
+        return matcher.find() ? Integer.parseInt(matcher.group(1)) : defaultValue;
+    }
+}
@@ -0,0 +1,59 @@
+package mobi.inthepocket.customlayoutmanager.helpers;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class FenwickTreeTest
+{
+    private FenwickTree fenwickTree;
+
+    @Before
+    public void setUp()
+    {
+        fenwickTree = new FenwickTree();
+        fenwickTree.build(new int[]{30, 10, 20, 0, 30}, 5);
+    }
+
+    @Test
+    public void sum_addsUpFirstValues()
+    {
+        assertEquals(0, fenwickTree.sum(0));
+        assertEquals(30, fenwickTree.sum(1));
+        assertEquals(60, fenwickTree.sum(3));
+        assertEquals(90, fenwickTree.sum(5));
+    }
+
+    @Test
+    public void add_changesSumsAfterIndex()
+    {
+        fenwickTree.add(1, 15);
+
+        assertEquals(30, fenwickTree.sum(1));
+        assertEquals(55, fenwickTree.sum(2));
+        assertEquals(105, fenwickTree.sum(5));
+    }
+
+    @Test
+    public void findCount_returnsLargestCountWithinValue()
+    {
+        assertEquals(0, fenwickTree.findCount(-1));
+        assertEquals(0, fenwickTree.findCount(29));
+        assertEquals(1, fenwickTree.findCount(30));
+        assertEquals(2, fenwickTree.findCount(59));
+        // The empty value at index 3 is skipped.
+        assertEquals(4, fenwickTree.findCount(60));
+        assertEquals(5, fenwickTree.findCount(1000));
+    }
+
+    @Test
+    public void build_reusesTreeForNewValues()
+    {
+        fenwickTree.build(new int[]{5, 5}, 2);
+
+        assertEquals(2, fenwickTree.size());
+        assertEquals(10, fenwickTree.sum(2));
+        assertEquals(1, fenwickTree.findCount(7));
+    }
+}
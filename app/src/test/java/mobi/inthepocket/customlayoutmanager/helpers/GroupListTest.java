@@ -0,0 +1,118 @@
+package mobi.inthepocket.customlayoutmanager.helpers;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class GroupListTest
+{
+    private GroupList groups;
+
+    @Before
+    public void setUp()
+    {
+        groups = new GroupList();
+        groups.build(new int[]{1, 2, 3, 1}, new int[]{30, 10, 20, 30}, 4);
+    }
+
+    @Test
+    public void build_sumsStartsAndTops()
+    {
+        assertEquals(4, groups.size());
+        assertEquals(7, groups.getItemCount());
+        assertEquals(90, groups.getTotalHeight());
+        assertEquals(3, groups.getStart(2));
+        assertEquals(40, groups.getTop(2));
+        assertEquals(2, groups.findGroupAtPosition(5));
+        assertEquals(40, groups.getTopAtPosition(5));
+        assertEquals(1, groups.findGroupAtOffset(39));
+        assertEquals(2, groups.findGroupAtOffset(40));
+        assertEquals(3, groups.findGroupAtOffset(1000));
+    }
+
+    @Test
+    public void addHeight_movesGroupsBelow()
+    {
+        groups.addHeight(1, 5);
+
+        assertEquals(15, groups.getHeight(1));
+        assertEquals(45, groups.getTop(2));
+        assertEquals(95, groups.getTotalHeight());
+    }
+
+    @Test
+    public void replace_splicesGroups()
+    {
+        groups.replace(1, 2, new int[]{4}, new int[]{50}, 1);
+
+        assertEquals(3, groups.size());
+        assertEquals(6, groups.getItemCount());
+        assertEquals(4, groups.getSize(1));
+        assertEquals(5, groups.getStart(2));
+        assertEquals(80, groups.getTop(2));
+        assertEquals(110, groups.getTotalHeight());
+    }
+
+    @Test
+    public void replace_overManyPages_matchesList()
+    {
+        final Random random = new Random(13);
+        final List<int[]> expected = new ArrayList<>();
+        groups.clear();
+        for (int i = 0; i < 2000; i++)
+        {
+            final int first = random.nextInt(expected.size() + 1);
+            final int removeCount = random.nextInt(Math.min(3, expected.size() - first) + 1);
+            // Usually a few groups, sometimes more than a page at once.
+            final int insertCount = random.nextInt(20) == 0 ? random.nextInt(2 * GroupList.PAGE_SIZE) : random.nextInt(4);
+            final int[] sizes = new int[insertCount];
+            final int[] heights = new int[insertCount];
+            for (int g = 0; g < insertCount; g++)
+            {
+                sizes[g] = random.nextInt(3) + 1;
+                heights[g] = random.nextInt(50);
+            }
+
+            groups.replace(first, removeCount, sizes, heights, insertCount);
+            expected.subList(first, first + removeCount).clear();
+            for (int g = insertCount - 1; g >= 0; g--)
+            {
+                expected.add(first, new int[]{sizes[g], heights[g]});
+            }
+
+            if (i % 100 == 0)
+            {
+                assertMatches(expected);
+            }
+        }
+        assertMatches(expected);
+    }
+
+    private void assertMatches(final List<int[]> expected)
+    {
+        assertEquals(expected.size(), groups.size());
+        int start = 0;
+        int top = 0;
+        for (int g = 0; g < expected.size(); g++)
+        {
+            assertEquals(expected.get(g)[0], groups.getSize(g));
+            assertEquals(expected.get(g)[1], groups.getHeight(g));
+            assertEquals(start, groups.getStart(g));
+            assertEquals(top, groups.getTop(g));
+            assertEquals(g, groups.findGroupAtPosition(start));
+            if (expected.get(g)[1] > 0)
+            {
+                assertEquals(g, groups.findGroupAtOffset(top));
+            }
+            start += expected.get(g)[0];
+            top += expected.get(g)[1];
+        }
+        assertEquals(start, groups.getItemCount());
+        assertEquals(top, groups.getTotalHeight());
+    }
+}
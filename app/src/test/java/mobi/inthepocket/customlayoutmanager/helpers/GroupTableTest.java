@@ -0,0 +1,122 @@
+package mobi.inthepocket.customlayoutmanager.helpers;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class GroupTableTest
+{
+    private FeedLayoutInfoLookup layoutInfoLookup;
+    private LayoutDescriptorCache layoutDescriptors;
+    private GroupTable groupTable;
+
+    @Before
+    public void setUp()
+    {
+        layoutInfoLookup = new FeedLayoutInfoLookup(
+                "wide",
+                // trio right
+                "text left", "text tall right", "text left",
+                // trio right, directly after the previous one
+                "text left", "text tall right", "text left",
+                // duo
+                "text left", "text right",
+                "wide");
+        layoutDescriptors = new LayoutDescriptorCache(layoutInfoLookup);
+        groupTable = new GroupTable();
+        update();
+    }
+
+    @Test
+    public void update_findsGroupStarts()
+    {
+        assertEquals(0, groupTable.getGroupStart(0));
+        assertEquals(1, groupTable.getGroupStart(2));
+        assertEquals(1, groupTable.getGroupStart(3));
+        assertEquals(4, groupTable.getGroupStart(5));
+        assertEquals(7, groupTable.getGroupStart(8));
+        assertEquals(9, groupTable.getGroupStart(9));
+
+        assertTrue(groupTable.isGroupStart(4));
+        assertFalse(groupTable.isGroupStart(6));
+    }
+
+    @Test
+    public void onItemsAdded_recalculatesAffectedGroups()
+    {
+        // The wide item closes the first trio early, its last item now starts a new group.
+        layoutInfoLookup.items.add(3, "wide");
+        layoutDescriptors.onItemsAdded(3, 1);
+        groupTable.onItemsAdded(3, 1);
+        update();
+
+        assertMatchesFullRebuild();
+        assertEquals(1, groupTable.getGroupStart(3));
+        assertTrue(groupTable.isGroupStart(4));
+        assertEquals(4, groupTable.getGroupStart(6));
+    }
+
+    @Test
+    public void onItemsRemoved_recalculatesAffectedGroups()
+    {
+        // The right item of the duo is removed, the wide item after it now closes the group of the left item.
+        layoutInfoLookup.items.remove(8);
+        layoutDescriptors.onItemsRemoved(8, 1);
+        groupTable.onItemsRemoved(8, 1);
+        update();
+
+        assertMatchesFullRebuild();
+        assertEquals(7, groupTable.getGroupStart(8));
+    }
+
+    @Test
+    public void onItemsUpdated_recalculatesAffectedGroups()
+    {
+        layoutInfoLookup.items.set(2, "text right");
+        layoutDescriptors.onItemsUpdated(2, 1);
+        groupTable.onItemsUpdated(2, 1);
+        update();
+
+        assertMatchesFullRebuild();
+        assertTrue(groupTable.isGroupStart(3));
+    }
+
+    @Test
+    public void multipleChanges_recalculatedInOneUpdate()
+    {
+        layoutInfoLookup.items.add(0, "text left");
+        layoutDescriptors.onItemsAdded(0, 1);
+        groupTable.onItemsAdded(0, 1);
+
+        layoutInfoLookup.items.remove(6);
+        layoutDescriptors.onItemsRemoved(6, 1);
+        groupTable.onItemsRemoved(6, 1);
+
+        update();
+
+        assertMatchesFullRebuild();
+    }
+
+    private void update()
+    {
+        layoutDescriptors.setItemCount(layoutInfoLookup.items.size());
+        groupTable.update(layoutDescriptors, layoutInfoLookup.items.size());
+    }
+
+    private void assertMatchesFullRebuild()
+    {
+        final LayoutDescriptorCache freshDescriptors = new LayoutDescriptorCache(layoutInfoLookup);
+        freshDescriptors.setItemCount(layoutInfoLookup.items.size());
+        final GroupTable freshGroupTable = new GroupTable();
+        freshGroupTable.update(freshDescriptors, layoutInfoLookup.items.size());
+
+        assertEquals(freshGroupTable.getItemCount(), groupTable.getItemCount());
+        for (int position = 0; position < groupTable.getItemCount(); position++)
+        {
+            assertEquals("position " + position, freshGroupTable.getGroupStart(position), groupTable.getGroupStart(position));
+        }
+    }
+}
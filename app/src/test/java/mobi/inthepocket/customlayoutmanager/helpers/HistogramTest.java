@@ -0,0 +1,65 @@
+package mobi.inthepocket.customlayoutmanager.helpers;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class HistogramTest
+{
+    private Histogram histogram;
+
+    @Before
+    public void setUp()
+    {
+        histogram = new Histogram();
+    }
+
+    @Test
+    public void getBucket_doublesInSize()
+    {
+        assertEquals(0, Histogram.getBucket(0));
+        assertEquals(1, Histogram.getBucket(1));
+        assertEquals(2, Histogram.getBucket(3));
+        assertEquals(3, Histogram.getBucket(4));
+        assertEquals(Histogram.BUCKET_COUNT - 1, Histogram.getBucket(Long.MAX_VALUE));
+        assertEquals(7, Histogram.getUpperBound(3));
+    }
+
+    @Test
+    public void record_countsValuesInTheirBucket()
+    {
+        histogram.record(5);
+        histogram.record(6);
+        histogram.record(-3);
+
+        assertEquals(2, histogram.getCount(3));
+        assertEquals(1, histogram.getCount(0));
+        assertEquals(3, histogram.getTotalCount());
+        assertEquals(6, histogram.getMax());
+    }
+
+    @Test
+    public void getPercentile_returnsUpperBoundOfBucket()
+    {
+        for (int i = 0; i < 9; i++)
+        {
+            histogram.record(2);
+        }
+        histogram.record(100);
+
+        assertEquals(3, histogram.getPercentile(0.5));
+        assertEquals(3, histogram.getPercentile(0.9));
+        assertEquals(100, histogram.getPercentile(0.99));
+    }
+
+    @Test
+    public void clear_removesAllValues()
+    {
+        histogram.record(10);
+        histogram.clear();
+
+        assertEquals(0, histogram.getTotalCount());
+        assertEquals(0, histogram.getPercentile(0.5));
+    }
+}
@@ -0,0 +1,158 @@
+package mobi.inthepocket.customlayoutmanager.helpers;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import mobi.inthepocket.customlayoutmanager.interfaces.BulkLayoutInfoLookup;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LayoutDescriptorCacheTest
+{
+    private FeedLayoutInfoLookup layoutInfoLookup;
+    private LayoutDescriptorCache layoutDescriptors;
+
+    @Before
+    public void setUp()
+    {
+        layoutInfoLookup = new FeedLayoutInfoLookup("wide", "text left", "text right", "text right", "text tall left", "text right");
+        layoutDescriptors = new LayoutDescriptorCache(layoutInfoLookup);
+        layoutDescriptors.setItemCount(layoutInfoLookup.items.size());
+    }
+
+    @Test
+    public void get_packsLookupValues()
+    {
+        final int wide = layoutDescriptors.get(0);
+        assertEquals(2, LayoutDescriptor.getColumnSpan(wide));
+        assertEquals(1, LayoutDescriptor.getRowSpan(wide));
+        assertTrue(LayoutDescriptor.useViewSize(wide));
+
+        final int tall = layoutDescriptors.get(4);
+        assertEquals(1, LayoutDescriptor.getColumnSpan(tall));
+        assertEquals(2, LayoutDescriptor.getRowSpan(tall));
+        assertEquals(0, LayoutDescriptor.getColumn(tall));
+        assertFalse(LayoutDescriptor.useViewSize(tall));
+
+        assertEquals(1, LayoutDescriptor.getColumn(layoutDescriptors.get(5)));
+    }
+
+    @Test
+    public void get_returnsCachedValueUntilUpdated()
+    {
+        layoutDescriptors.get(1);
+
+        layoutInfoLookup.items.set(1, "wide");
+        assertEquals(1, LayoutDescriptor.getColumnSpan(layoutDescriptors.get(1)));
+
+        layoutDescriptors.onItemsUpdated(1, 1);
+        assertEquals(2, LayoutDescriptor.getColumnSpan(layoutDescriptors.get(1)));
+    }
+
+    @Test
+    public void onItemsAdded_shiftsCachedValues()
+    {
+        for (int i = 0; i < layoutInfoLookup.items.size(); i++)
+        {
+            layoutDescriptors.get(i);
+        }
+
+        layoutInfoLookup.items.add(1, "wide");
+        layoutDescriptors.onItemsAdded(1, 1);
+
+        assertEquals(7, layoutDescriptors.getItemCount());
+        assertEquals(2, LayoutDescriptor.getColumnSpan(layoutDescriptors.get(1)));
+        assertEquals(0, LayoutDescriptor.getColumn(layoutDescriptors.get(2)));
+        assertEquals(2, LayoutDescriptor.getRowSpan(layoutDescriptors.get(5)));
+    }
+
+    @Test
+    public void onItemsRemoved_shiftsCachedValues()
+    {
+        for (int i = 0; i < layoutInfoLookup.items.size(); i++)
+        {
+            layoutDescriptors.get(i);
+        }
+
+        layoutInfoLookup.items.remove(0);
+        layoutDescriptors.onItemsRemoved(0, 1);
+
+        assertEquals(5, layoutDescriptors.getItemCount());
+        assertEquals(1, LayoutDescriptor.getColumnSpan(layoutDescriptors.get(0)));
+        assertEquals(2, LayoutDescriptor.getRowSpan(layoutDescriptors.get(3)));
+    }
+
+    @Test
+    public void get_bulkLoadsTheAlignedBlockAroundThePosition()
+    {
+        final RecordingBulkLookup bulkLookup = new RecordingBulkLookup(150);
+        final LayoutDescriptorCache bulkDescriptors = new LayoutDescriptorCache(bulkLookup);
+        bulkDescriptors.setItemCount(150);
+
+        assertEquals(1, LayoutDescriptor.getColumn(bulkDescriptors.get(101)));
+        assertEquals(0, LayoutDescriptor.getColumn(bulkDescriptors.get(64)));
+        bulkDescriptors.get(127);
+        assertEquals(1, bulkLookup.ranges.size());
+
+        bulkDescriptors.get(130);
+        assertEquals(2, bulkLookup.ranges.size());
+        assertEquals(64, bulkLookup.ranges.get(0)[0]);
+        assertEquals(64, bulkLookup.ranges.get(0)[1]);
+        assertEquals(128, bulkLookup.ranges.get(1)[0]);
+        assertEquals(22, bulkLookup.ranges.get(1)[1]);
+    }
+
+    /**
+     * Places odd positions in the second column and records the ranges it was asked for.
+     */
+    private static class RecordingBulkLookup implements BulkLayoutInfoLookup
+    {
+        private final int itemCount;
+        private final List<int[]> ranges = new ArrayList<>();
+
+        RecordingBulkLookup(final int itemCount)
+        {
+            this.itemCount = itemCount;
+        }
+
+        @Override
+        public void getLayoutDescriptors(final int positionStart, final int itemCount, final int[] descriptors)
+        {
+            assertTrue(positionStart + itemCount <= this.itemCount);
+            ranges.add(new int[]{positionStart, itemCount});
+            for (int i = 0; i < itemCount; i++)
+            {
+                descriptors[i] = LayoutDescriptor.fromLookup(this, positionStart + i);
+            }
+        }
+
+        @Override
+        public int getRowSpan(final int position)
+        {
+            return 1;
+        }
+
+        @Override
+        public int getColumnSpan(final int position)
+        {
+            return 1;
+        }
+
+        @Override
+        public boolean useViewSize(final int position)
+        {
+            return false;
+        }
+
+        @Override
+        public int getColumn(final int position)
+        {
+            return position % 2;
+        }
+    }
+}
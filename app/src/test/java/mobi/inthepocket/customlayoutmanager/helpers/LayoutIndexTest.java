@@ -0,0 +1,252 @@
+package mobi.inthepocket.customlayoutmanager.helpers;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class LayoutIndexTest
+{
+    private static final int WIDE = 30;
+    private static final int ROW = 10;
+    private static final int TALL = 2 * ROW;
+
+    private LayoutIndex layoutIndex;
+
+    @Before
+    public void setUp()
+    {
+        layoutIndex = new LayoutIndex();
+        build(new FeedLayoutInfoLookup(
+                "wide",
+                // duo
+                "text left", "text right",
+                // trio left
+                "text right", "text tall left", "text right",
+                "wide"), 2);
+    }
+
+    @Test
+    public void build_placesItemsInTheirColumns()
+    {
+        assertEquals(0, layoutIndex.getColumn(0));
+        assertEquals(2, layoutIndex.getColumnSpan(0));
+        assertEquals(0, layoutIndex.getColumn(1));
+        assertEquals(1, layoutIndex.getColumn(2));
+        assertEquals(0, layoutIndex.getColumn(4));
+        assertEquals(1, layoutIndex.getColumnSpan(4));
+
+        assertEquals(0, layoutIndex.getTop(0));
+        assertEquals(30, layoutIndex.getTop(1));
+        assertEquals(30, layoutIndex.getTop(2));
+        assertEquals(40, layoutIndex.getTop(3));
+        assertEquals(40, layoutIndex.getTop(4));
+        assertEquals(50, layoutIndex.getTop(5));
+        assertEquals(60, layoutIndex.getTop(6));
+
+        assertEquals(TALL, layoutIndex.getHeight(4));
+        assertEquals(90, layoutIndex.getTotalHeight());
+    }
+
+    @Test
+    public void findPositionAtOffset_returnsLastItemStartingAtOrAboveOffset()
+    {
+        assertEquals(0, layoutIndex.findPositionAtOffset(0));
+        assertEquals(0, layoutIndex.findPositionAtOffset(29));
+        assertEquals(2, layoutIndex.findPositionAtOffset(30));
+        assertEquals(4, layoutIndex.findPositionAtOffset(45));
+        assertEquals(6, layoutIndex.findPositionAtOffset(1000));
+    }
+
+    @Test
+    public void setFullWidthHeight_movesItemsBelow()
+    {
+        layoutIndex.setFullWidthHeight(0, 50);
+
+        assertEquals(50, layoutIndex.getTop(1));
+        assertEquals(80, layoutIndex.getTop(6));
+        assertEquals(110, layoutIndex.getTotalHeight());
+        assertEquals(80, layoutIndex.getGroupTop(3));
+    }
+
+    @Test
+    public void build_splitsFeedInGroups()
+    {
+        assertEquals(4, layoutIndex.getGroupCount());
+
+        assertEquals(0, layoutIndex.getGroup(0));
+        assertEquals(1, layoutIndex.getGroup(2));
+        assertEquals(2, layoutIndex.getGroup(3));
+        assertEquals(2, layoutIndex.getGroup(5));
+
+        assertEquals(3, layoutIndex.getGroupStart(2));
+        assertEquals(40, layoutIndex.getGroupTop(2));
+        assertEquals(TALL, layoutIndex.getGroupHeight(2));
+        assertEquals(WIDE, layoutIndex.getGroupHeight(3));
+    }
+
+    @Test
+    public void findGroupAtOffset_returnsGroupCoveringOffset()
+    {
+        assertEquals(0, layoutIndex.findGroupAtOffset(0));
+        assertEquals(1, layoutIndex.findGroupAtOffset(35));
+        assertEquals(2, layoutIndex.findGroupAtOffset(59));
+        assertEquals(3, layoutIndex.findGroupAtOffset(60));
+    }
+
+    @Test
+    public void findPositionAtOffset_emptyFeed()
+    {
+        build(new FeedLayoutInfoLookup(), 2);
+
+        assertEquals(LayoutIndex.NO_POSITION, layoutIndex.findPositionAtOffset(0));
+        assertEquals(0, layoutIndex.getTotalHeight());
+    }
+
+    @Test
+    public void build_placesSpansBelowLowestColumn()
+    {
+        build(new FeedLayoutInfoLookup(
+                "text column 0", "text tall column 1", "text column 2",
+                // Spans columns 0 and 1, starts below the tall item.
+                "text column 0 span 2", "text column 2",
+                // Column 2 is clamped, the item does not fit there.
+                "text column 2 span 2",
+                "wide span 3"), 3);
+
+        assertEquals(2 * ROW, layoutIndex.getTop(3));
+        assertEquals(ROW, layoutIndex.getTop(4));
+
+        assertEquals(1, layoutIndex.getColumn(5));
+        assertEquals(2, layoutIndex.getColumnSpan(5));
+        assertEquals(3 * ROW, layoutIndex.getTop(5));
+
+        // Wide items span all columns and level them, closing the group.
+        assertEquals(3, layoutIndex.getColumnSpan(6));
+        assertEquals(4 * ROW, layoutIndex.getTop(6));
+        assertEquals(1, layoutIndex.getGroupCount());
+        assertEquals(4 * ROW + WIDE, layoutIndex.getTotalHeight());
+    }
+
+    @Test
+    public void update_afterInsert_onlyRecalculatesTheChangedGroups()
+    {
+        final FeedLayoutInfoLookup feed = new FeedLayoutInfoLookup();
+        for (int i = 0; i < 500; i++)
+        {
+            feed.items.add(i % 2 == 0 ? "text left" : "text right");
+        }
+        final LayoutDescriptorCache layoutDescriptors = new LayoutDescriptorCache(feed);
+        final GroupTable groupTable = new GroupTable();
+        groupTable.setColumnCount(2);
+        update(feed, layoutDescriptors, groupTable);
+
+        feed.items.add(100, "wide");
+        layoutDescriptors.onItemsAdded(100, 1);
+        groupTable.onItemsAdded(100, 1);
+        layoutIndex.onItemsAdded(100, 1);
+        update(feed, layoutDescriptors, groupTable);
+
+        assertEquals(100, layoutIndex.getUpdatedStart());
+        // The inserted item joined the DUO after it, which is recalculated along with it.
+        assertEquals(103, layoutIndex.getUpdatedEnd());
+        assertEquals(50 * ROW, layoutIndex.getTop(100));
+        assertEquals(50 * ROW + WIDE, layoutIndex.getTop(101));
+        assertEquals(250 * ROW + WIDE, layoutIndex.getTotalHeight());
+    }
+
+    @Test
+    public void update_afterEdits_matchesAFullBuild()
+    {
+        final String[] kinds = {"wide", "text left", "text right", "text tall left", "text tall right"};
+        final Random random = new Random(13);
+        final FeedLayoutInfoLookup feed = new FeedLayoutInfoLookup();
+        for (int i = 0; i < 200; i++)
+        {
+            feed.items.add(kinds[random.nextInt(kinds.length)]);
+        }
+        final LayoutDescriptorCache layoutDescriptors = new LayoutDescriptorCache(feed);
+        final GroupTable groupTable = new GroupTable();
+        groupTable.setColumnCount(2);
+        update(feed, layoutDescriptors, groupTable);
+
+        for (int i = 0; i < 300; i++)
+        {
+            final int position = random.nextInt(feed.items.size() + 1);
+            final int count = random.nextInt(3) + 1;
+            final int edit = random.nextInt(3);
+            if (edit == 0)
+            {
+                for (int c = 0; c < count; c++)
+                {
+                    feed.items.add(position, kinds[random.nextInt(kinds.length)]);
+                }
+                layoutDescriptors.onItemsAdded(position, count);
+                groupTable.onItemsAdded(position, count);
+                layoutIndex.onItemsAdded(position, count);
+            }
+            else if (edit == 1 && position + count <= feed.items.size())
+            {
+                feed.items.subList(position, position + count).clear();
+                layoutDescriptors.onItemsRemoved(position, count);
+                groupTable.onItemsRemoved(position, count);
+                layoutIndex.onItemsRemoved(position, count);
+            }
+            else if (position < feed.items.size())
+            {
+                feed.items.set(position, kinds[random.nextInt(kinds.length)]);
+                layoutDescriptors.onItemsUpdated(position, 1);
+                groupTable.onItemsUpdated(position, 1);
+                layoutIndex.onItemsUpdated(position, 1);
+            }
+
+            // Several edits are sometimes combined in one update, like a single layout pass.
+            if (random.nextBoolean())
+            {
+                update(feed, layoutDescriptors, groupTable);
+                assertMatchesBuild(feed);
+            }
+        }
+    }
+
+    private void update(final FeedLayoutInfoLookup layoutInfoLookup, final LayoutDescriptorCache layoutDescriptors, final GroupTable groupTable)
+    {
+        layoutDescriptors.setItemCount(layoutInfoLookup.items.size());
+        groupTable.update(layoutDescriptors, layoutInfoLookup.items.size());
+        layoutIndex.update(layoutDescriptors, groupTable, layoutInfoLookup.items.size(), 2, WIDE, ROW);
+    }
+
+    private void assertMatchesBuild(final FeedLayoutInfoLookup layoutInfoLookup)
+    {
+        final LayoutIndex updated = layoutIndex;
+        layoutIndex = new LayoutIndex();
+        build(layoutInfoLookup, 2);
+
+        assertEquals(layoutIndex.getItemCount(), updated.getItemCount());
+        assertEquals(layoutIndex.getGroupCount(), updated.getGroupCount());
+        assertEquals(layoutIndex.getTotalHeight(), updated.getTotalHeight());
+        for (int position = 0; position < layoutIndex.getItemCount(); position++)
+        {
+            assertEquals(layoutIndex.getGroup(position), updated.getGroup(position));
+            assertEquals(layoutIndex.getColumn(position), updated.getColumn(position));
+            assertEquals(layoutIndex.getColumnSpan(position), updated.getColumnSpan(position));
+            assertEquals(layoutIndex.getTop(position), updated.getTop(position));
+            assertEquals(layoutIndex.getHeight(position), updated.getHeight(position));
+        }
+
+        layoutIndex = updated;
+    }
+
+    private void build(final FeedLayoutInfoLookup layoutInfoLookup, final int columnCount)
+    {
+        final LayoutDescriptorCache layoutDescriptors = new LayoutDescriptorCache(layoutInfoLookup);
+        layoutDescriptors.setItemCount(layoutInfoLookup.items.size());
+        final GroupTable groupTable = new GroupTable();
+        groupTable.setColumnCount(columnCount);
+        groupTable.update(layoutDescriptors, layoutInfoLookup.items.size());
+
+        layoutIndex.build(layoutDescriptors, groupTable, layoutInfoLookup.items.size(), columnCount, WIDE, ROW);
+    }
+}
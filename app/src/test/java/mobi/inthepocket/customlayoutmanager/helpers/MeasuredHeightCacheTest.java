@@ -0,0 +1,60 @@
+package mobi.inthepocket.customlayoutmanager.helpers;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class MeasuredHeightCacheTest
+{
+    private static final int WIDTH = 1080;
+
+    private MeasuredHeightCache measuredHeights;
+
+    @Before
+    public void setUp()
+    {
+        measuredHeights = new MeasuredHeightCache();
+    }
+
+    @Test
+    public void get_returnsHeightForSameWidthOnly()
+    {
+        measuredHeights.put(7, WIDTH, 300);
+
+        assertEquals(300, measuredHeights.get(7, WIDTH));
+        assertEquals(MeasuredHeightCache.NO_HEIGHT, measuredHeights.get(7, 1920));
+        assertEquals(MeasuredHeightCache.NO_HEIGHT, measuredHeights.get(8, WIDTH));
+    }
+
+    @Test
+    public void put_replacesValueForOtherWidth()
+    {
+        measuredHeights.put(7, WIDTH, 300);
+        measuredHeights.put(7, 1920, 200);
+
+        assertEquals(1, measuredHeights.size());
+        assertEquals(200, measuredHeights.get(7, 1920));
+        assertEquals(MeasuredHeightCache.NO_HEIGHT, measuredHeights.get(7, WIDTH));
+    }
+
+    @Test
+    public void remove_keepsOtherEntriesReachable()
+    {
+        for (long id = 0; id < 1000; id++)
+        {
+            measuredHeights.put(id, WIDTH, (int) id);
+        }
+
+        for (long id = 0; id < 1000; id += 2)
+        {
+            measuredHeights.remove(id);
+        }
+
+        assertEquals(500, measuredHeights.size());
+        for (long id = 0; id < 1000; id++)
+        {
+            assertEquals(id % 2 == 0 ? MeasuredHeightCache.NO_HEIGHT : (int) id, measuredHeights.get(id, WIDTH));
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package mobi.inthepocket.customlayoutmanager.helpers;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class TieredIntArrayTest
+{
+    private TieredIntArray array;
+    private List<Integer> expected;
+
+    @Before
+    public void setUp()
+    {
+        array = new TieredIntArray();
+        expected = new ArrayList<>();
+    }
+
+    @Test
+    public void setSize_addsValuesAtTheEnd()
+    {
+        array.setSize(40, 7);
+        array.set(39, 3);
+        array.setSize(20, 0);
+        array.setSize(30, 5);
+
+        assertEquals(30, array.size());
+        assertEquals(7, array.get(19));
+        assertEquals(5, array.get(20));
+        assertEquals(5, array.get(29));
+    }
+
+    @Test
+    public void insertAndRemove_matchList()
+    {
+        final Random random = new Random(13);
+        for (int i = 0; i < 3000; i++)
+        {
+            final int index = random.nextInt(expected.size() + 1);
+            // Mostly single values, sometimes more than a block at once.
+            final int count = random.nextInt(10) == 0 ? random.nextInt(40) + 1 : 1;
+            if (random.nextInt(3) == 0 && index < expected.size())
+            {
+                final int removeCount = Math.min(count, expected.size() - index);
+                array.remove(index, removeCount);
+                expected.subList(index, index + removeCount).clear();
+            }
+            else
+            {
+                array.insert(index, count, i);
+                for (int c = 0; c < count; c++)
+                {
+                    expected.add(index, i);
+                }
+            }
+
+            if (i % 100 == 0)
+            {
+                assertMatches();
+            }
+        }
+        assertMatches();
+    }
+
+    @Test
+    public void insert_keepsValuesWhenTheBlocksGrow()
+    {
+        for (int i = 0; i < 5000; i++)
+        {
+            array.insert(i / 2, 1, i);
+            expected.add(i / 2, i);
+        }
+
+        assertMatches();
+    }
+
+    private void assertMatches()
+    {
+        assertEquals(expected.size(), array.size());
+        for (int i = 0; i < expected.size(); i++)
+        {
+            assertEquals((int) expected.get(i), array.get(i));
+        }
+    }
+}
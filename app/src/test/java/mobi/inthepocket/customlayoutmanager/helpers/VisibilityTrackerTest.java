@@ -0,0 +1,195 @@
+package mobi.inthepocket.customlayoutmanager.helpers;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import mobi.inthepocket.customlayoutmanager.interfaces.VisibilityListener;
+
+import static org.junit.Assert.assertEquals;
+
+public class VisibilityTrackerTest
+{
+    // More Views than the tests make visible, so the window is not limited unless a test says so.
+    private static final int VIEW_COUNT = 64;
+
+    private final List<String> events = new ArrayList<>();
+    private VisibilityTracker tracker;
+
+    @Before
+    public void setUp()
+    {
+        tracker = new VisibilityTracker(new VisibilityListener()
+        {
+            @Override
+            public void onVisibilityChanged(final int position, final int event, final int visiblePercent, final long durationMillis)
+            {
+                events.add(position + ":" + event + ":" + visiblePercent + ":" + durationMillis);
+            }
+        }, 50);
+    }
+
+    @Test
+    public void getVisiblePercent_clipsToScreen()
+    {
+        assertEquals(100, VisibilityTracker.getVisiblePercent(0, 100, 0, 1000));
+        assertEquals(25, VisibilityTracker.getVisiblePercent(-75, 25, 0, 1000));
+        assertEquals(40, VisibilityTracker.getVisiblePercent(960, 1060, 0, 1000));
+        assertEquals(0, VisibilityTracker.getVisiblePercent(1000, 1100, 0, 1000));
+        assertEquals(0, VisibilityTracker.getVisiblePercent(10, 10, 0, 1000));
+    }
+
+    @Test
+    public void setVisiblePercent_reportsEnterThresholdAndExit()
+    {
+        tracker.moveWindow(0, 1, 0);
+        tracker.setVisiblePercent(0, 30, 100, VIEW_COUNT);
+        tracker.setVisiblePercent(0, 80, 250, VIEW_COUNT);
+        tracker.setVisiblePercent(0, 80, 300, VIEW_COUNT);
+        tracker.setVisiblePercent(0, 0, 1250, VIEW_COUNT);
+
+        assertEquals(4, events.size());
+        assertEquals("0:" + VisibilityTracker.EVENT_ENTER + ":30:0", events.get(0));
+        assertEquals("0:" + VisibilityTracker.EVENT_THRESHOLD_REACHED + ":80:150", events.get(1));
+        assertEquals("0:" + VisibilityTracker.EVENT_THRESHOLD_LOST + ":0:1000", events.get(2));
+        assertEquals("0:" + VisibilityTracker.EVENT_EXIT + ":0:1150", events.get(3));
+    }
+
+    @Test
+    public void moveWindow_keepsStateOfOverlapAndExitsTheRest()
+    {
+        tracker.moveWindow(0, 3, 0);
+        tracker.setVisiblePercent(0, 20, 0, VIEW_COUNT);
+        tracker.setVisiblePercent(2, 100, 0, VIEW_COUNT);
+        events.clear();
+
+        tracker.moveWindow(2, 5, 500);
+
+        assertEquals(1, events.size());
+        assertEquals("0:" + VisibilityTracker.EVENT_EXIT + ":0:500", events.get(0));
+        assertEquals(100, tracker.getVisiblePercent(2));
+        assertEquals(0, tracker.getVisiblePercent(3));
+    }
+
+    @Test
+    public void itemsInserted_shiftStateOfLaterPositions()
+    {
+        tracker.moveWindow(4, 6, 0);
+        tracker.setVisiblePercent(5, 60, 0, VIEW_COUNT);
+        tracker.setVisiblePercent(6, 100, 0, VIEW_COUNT);
+        events.clear();
+
+        tracker.onItemsInserted(0, 2, 0);
+        tracker.onItemsInserted(8, 1, 0);
+
+        assertEquals(0, events.size());
+        assertEquals(60, tracker.getVisiblePercent(7));
+        assertEquals(0, tracker.getVisiblePercent(8));
+        assertEquals(100, tracker.getVisiblePercent(9));
+    }
+
+    @Test
+    public void itemsRemoved_exitAndShiftLaterPositions()
+    {
+        tracker.moveWindow(4, 6, 0);
+        tracker.setVisiblePercent(4, 60, 0, VIEW_COUNT);
+        tracker.setVisiblePercent(5, 100, 0, VIEW_COUNT);
+        events.clear();
+
+        tracker.onItemsRemoved(3, 2, 100);
+
+        assertEquals(2, events.size());
+        assertEquals("4:" + VisibilityTracker.EVENT_THRESHOLD_LOST + ":0:100", events.get(0));
+        assertEquals("4:" + VisibilityTracker.EVENT_EXIT + ":0:100", events.get(1));
+        assertEquals(100, tracker.getVisiblePercent(3));
+    }
+
+    @Test
+    public void setVisiblePercent_outsideWindow_movesWindowAndDropsInvisibleEdges()
+    {
+        tracker.setVisiblePercent(0, 100, 0, VIEW_COUNT);
+        tracker.setVisiblePercent(1, 100, 0, VIEW_COUNT);
+        tracker.setVisiblePercent(0, 0, 100, VIEW_COUNT);
+        events.clear();
+
+        tracker.setVisiblePercent(5, 40, 200, VIEW_COUNT);
+        tracker.setVisiblePercent(9, 0, 200, VIEW_COUNT);
+
+        assertEquals(1, events.size());
+        assertEquals("5:" + VisibilityTracker.EVENT_ENTER + ":40:0", events.get(0));
+        assertEquals(0, tracker.getVisiblePercent(0));
+        assertEquals(100, tracker.getVisiblePercent(1));
+        assertEquals(40, tracker.getVisiblePercent(5));
+    }
+
+    @Test
+    public void setVisiblePercent_farJump_exitsOldWindowInsteadOfSpanningTheGap()
+    {
+        for (int position = 0; position < 10; position++)
+        {
+            tracker.setVisiblePercent(position, 100, 0, 10);
+        }
+        events.clear();
+
+        // The Views of the old positions are still scrapped while the first ones are added at the target.
+        tracker.setVisiblePercent(900000, 100, 100, 11);
+        tracker.setVisiblePercent(900001, 100, 100, 12);
+
+        assertEquals(0, tracker.getVisiblePercent(0));
+        assertEquals(0, tracker.getVisiblePercent(9));
+        assertEquals(100, tracker.getVisiblePercent(900000));
+        assertEquals(100, tracker.getVisiblePercent(900001));
+        // Each old position loses the threshold and exits, each new one enters and reaches it.
+        assertEquals(10 * 2 + 2 * 2, events.size());
+        assertEquals("0:" + VisibilityTracker.EVENT_EXIT + ":0:100", events.get(1));
+    }
+
+    @Test
+    public void setVisiblePercent_outsideWindow_keepsVisiblePositionsWithinViewCount()
+    {
+        tracker.setVisiblePercent(4, 100, 0, VIEW_COUNT);
+        tracker.setVisiblePercent(5, 100, 0, VIEW_COUNT);
+        events.clear();
+
+        tracker.setVisiblePercent(7, 100, 100, 4);
+
+        assertEquals(2, events.size());
+        assertEquals(100, tracker.getVisiblePercent(4));
+        assertEquals(100, tracker.getVisiblePercent(5));
+    }
+
+    @Test
+    public void itemsInserted_moreThanTheWindow_exitLaterPositions()
+    {
+        tracker.moveWindow(4, 6, 0);
+        tracker.setVisiblePercent(4, 100, 0, VIEW_COUNT);
+        tracker.setVisiblePercent(6, 100, 0, VIEW_COUNT);
+        events.clear();
+
+        tracker.onItemsInserted(5, 1000000, 100);
+
+        assertEquals(2, events.size());
+        assertEquals("1000006:" + VisibilityTracker.EVENT_THRESHOLD_LOST + ":0:100", events.get(0));
+        assertEquals("1000006:" + VisibilityTracker.EVENT_EXIT + ":0:100", events.get(1));
+        assertEquals(100, tracker.getVisiblePercent(4));
+        assertEquals(0, tracker.getVisiblePercent(1000006));
+    }
+
+    @Test
+    public void clear_exitsAllVisiblePositions()
+    {
+        tracker.moveWindow(0, 20, 0);
+        for (int position = 0; position <= 20; position++)
+        {
+            tracker.setVisiblePercent(position, 10, 0, VIEW_COUNT);
+        }
+        events.clear();
+
+        tracker.clear(10);
+
+        assertEquals(21, events.size());
+        assertEquals(0, tracker.getVisiblePercent(20));
+    }
+}
@@ -0,0 +1,82 @@
+package mobi.inthepocket.customlayoutmanager.layoutmanagers;
+
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import mobi.inthepocket.customlayoutmanager.BuildConfig;
+import mobi.inthepocket.customlayoutmanager.helpers.FeedLayoutInfoLookup;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class AdLayoutManagerExtraLayoutSpaceTest
+{
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 1920;
+    private static final int EXTRA = 600;
+
+    private RecyclerView recyclerView;
+    private CountingAdapter adapter;
+    private AdLayoutManager layoutManager;
+
+    @Before
+    public void setUp()
+    {
+        final FeedLayoutInfoLookup layoutInfoLookup = new FeedLayoutInfoLookup();
+        for (int i = 0; i < 50; i++)
+        {
+            layoutInfoLookup.items.add("text left");
+            layoutInfoLookup.items.add("text right");
+        }
+
+        adapter = new CountingAdapter(layoutInfoLookup.items.size());
+        layoutManager = new AdLayoutManager(layoutInfoLookup);
+        layoutManager.setExtraLayoutSpace(EXTRA);
+
+        recyclerView = new RecyclerView(RuntimeEnvironment.application);
+        recyclerView.setLayoutManager(layoutManager);
+        recyclerView.setAdapter(adapter);
+
+        layout();
+    }
+
+    @Test
+    public void layout_laysOutViewsBelowScreen()
+    {
+        final View last = layoutManager.getChildAt(layoutManager.getChildCount() - 1);
+
+        assertTrue(last.getBottom() >= HEIGHT + EXTRA);
+        assertEquals(2, layoutManager.getExtraLayoutViewCount());
+    }
+
+    @Test
+    public void scroll_showsViewsLaidOutAhead()
+    {
+        layoutManager.resetExtraLayoutSpaceCounts();
+
+        for (int i = 0; i < 20; i++)
+        {
+            recyclerView.scrollBy(0, 100);
+        }
+
+        assertTrue(layoutManager.getAvoidedFrameCreationCount() > 0);
+        // The extra layout space is kept filled while scrolling.
+        final View last = layoutManager.getChildAt(layoutManager.getChildCount() - 1);
+        assertTrue(last.getBottom() >= HEIGHT + EXTRA);
+    }
+
+    private void layout()
+    {
+        recyclerView.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY), View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        recyclerView.layout(0, 0, WIDTH, HEIGHT);
+    }
+}
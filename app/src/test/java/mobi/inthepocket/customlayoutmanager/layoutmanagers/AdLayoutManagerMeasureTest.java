@@ -0,0 +1,149 @@
+package mobi.inthepocket.customlayoutmanager.layoutmanagers;
+
+import android.app.Activity;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import mobi.inthepocket.customlayoutmanager.BuildConfig;
+import mobi.inthepocket.customlayoutmanager.helpers.FeedLayoutInfoLookup;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class AdLayoutManagerMeasureTest
+{
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 1920;
+
+    private RecyclerView recyclerView;
+    private CountingAdapter adapter;
+    private AdLayoutManager layoutManager;
+
+    @Before
+    public void setUp()
+    {
+        final FeedLayoutInfoLookup layoutInfoLookup = new FeedLayoutInfoLookup(
+                "wide",
+                "text left", "text right",
+                "text right", "text tall left", "text right",
+                "text left", "text right",
+                "text left", "text tall right", "text left",
+                "wide");
+
+        adapter = new CountingAdapter(layoutInfoLookup.items.size());
+        layoutManager = new AdLayoutManager(layoutInfoLookup);
+
+        recyclerView = new RecyclerView(RuntimeEnvironment.application);
+        recyclerView.setLayoutManager(layoutManager);
+        recyclerView.setAdapter(adapter);
+
+        layout();
+    }
+
+    @Test
+    public void relayout_doesNotMeasureUnchangedChildren()
+    {
+        assertTrue(layoutManager.getChildCount() > 0);
+        adapter.resetCounts();
+
+        recyclerView.requestLayout();
+        layout();
+
+        assertEquals(0, adapter.measureCount);
+    }
+
+    @Test
+    public void relayout_measuresChildThatRequestedLayout()
+    {
+        adapter.resetCounts();
+
+        layoutManager.getChildAt(1).requestLayout();
+        layout();
+
+        assertEquals(1, adapter.measureCount);
+    }
+
+    @Test
+    public void notAttachedToWindow_doesNotRememberMeasuredHeights()
+    {
+        setAdapterWithStableIds();
+        layout();
+
+        assertEquals(0, layoutManager.getMeasuredHeightCount());
+    }
+
+    @Test
+    public void attachedToWindow_remembersMeasuredHeightsOfSelfSizedItems()
+    {
+        setAdapterWithStableIds();
+        // The RecyclerView calls onAttachedToWindow of its LayoutManager, which then looks up the stable ids of its children.
+        final Activity activity = Robolectric.setupActivity(Activity.class);
+        activity.setContentView(recyclerView);
+        layout();
+
+        // Only the wide item at the top is on the screen.
+        assertEquals(1, layoutManager.getMeasuredHeightCount());
+        assertEquals(CountingAdapter.SELF_SIZED_HEIGHT, layoutManager.getChildAt(0).getHeight());
+
+        recyclerView.scrollToPosition(11);
+        layout();
+        assertEquals(2, layoutManager.getMeasuredHeightCount());
+
+        // Heights are remembered by id, laying out the same items again does not add any.
+        recyclerView.scrollToPosition(0);
+        layout();
+        assertEquals(2, layoutManager.getMeasuredHeightCount());
+    }
+
+    @Test
+    public void measureChildWithMarginsAndDesiredHeight_doesNotAllocate()
+    {
+        assumeTrue(AllocationCounter.isSupported());
+
+        final View child = layoutManager.getChildAt(1);
+        final int iterations = 10000;
+
+        // Warm up, so the first measurement and class loading are not counted.
+        for (int i = 0; i < iterations; i++)
+        {
+            layoutManager.measureChildWithMarginsAndDesiredHeight(child, 500, WIDTH / 2);
+        }
+
+        final long before = AllocationCounter.getAllocatedBytes();
+        for (int i = 0; i < iterations; i++)
+        {
+            layoutManager.measureChildWithMarginsAndDesiredHeight(child, 500, WIDTH / 2);
+        }
+        final long allocated = AllocationCounter.getAllocatedBytes() - before;
+
+        // Allows for the allocation counter's own bookkeeping, but not for a single object per call.
+        assertTrue("Allocated " + allocated + " bytes", allocated < iterations);
+    }
+
+    /**
+     * Replaces the adapter by one with stable ids. An adapter can not get stable ids once it has observers.
+     */
+    private void setAdapterWithStableIds()
+    {
+        adapter = new CountingAdapter(adapter.getItemCount());
+        adapter.setHasStableIds(true);
+        recyclerView.setAdapter(adapter);
+    }
+
+    private void layout()
+    {
+        recyclerView.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY), View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        recyclerView.layout(0, 0, WIDTH, HEIGHT);
+    }
+}
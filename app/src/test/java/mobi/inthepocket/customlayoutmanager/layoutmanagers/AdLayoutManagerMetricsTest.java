@@ -0,0 +1,157 @@
+package mobi.inthepocket.customlayoutmanager.layoutmanagers;
+
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import mobi.inthepocket.customlayoutmanager.BuildConfig;
+import mobi.inthepocket.customlayoutmanager.helpers.FeedLayoutInfoLookup;
+import mobi.inthepocket.customlayoutmanager.helpers.LayoutMetrics;
+import mobi.inthepocket.customlayoutmanager.helpers.LayoutMetricsRecorder;
+import mobi.inthepocket.customlayoutmanager.interfaces.LayoutMetricsListener;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class AdLayoutManagerMetricsTest
+{
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 1920;
+    private static final int ROW = WIDTH / 2;
+
+    private FeedLayoutInfoLookup layoutInfoLookup;
+    private RecyclerView recyclerView;
+    private CountingAdapter adapter;
+    private AdLayoutManager layoutManager;
+    private LastMetrics lastMetrics;
+
+    @Before
+    public void setUp()
+    {
+        layoutInfoLookup = new FeedLayoutInfoLookup();
+        adapter = new CountingAdapter(0);
+        layoutManager = new AdLayoutManager(layoutInfoLookup);
+        lastMetrics = new LastMetrics();
+        layoutManager.setLayoutMetricsListener(lastMetrics);
+
+        recyclerView = new RecyclerView(RuntimeEnvironment.application);
+        recyclerView.setItemAnimator(null);
+        recyclerView.setLayoutManager(layoutManager);
+        recyclerView.setAdapter(adapter);
+
+        // Rows of two items, 540 pixels high. Four rows are attached.
+        for (int i = 0; i < 20; i++)
+        {
+            layoutInfoLookup.items.add("text left");
+            layoutInfoLookup.items.add("text right");
+        }
+        adapter.setItemCount(layoutInfoLookup.items.size());
+    }
+
+    @Test
+    public void initialLayout_reportsAddedViews()
+    {
+        layout();
+
+        assertEquals(LayoutMetrics.PASS_LAYOUT, lastMetrics.pass);
+        assertEquals(8, lastMetrics.viewsAdded);
+        assertEquals(8, lastMetrics.viewsBound);
+        assertEquals(8, lastMetrics.viewsMeasured);
+        assertEquals(0, lastMetrics.viewsRecycled);
+        assertEquals(0, lastMetrics.startSlack);
+        assertEquals(4 * ROW - HEIGHT, lastMetrics.endSlack);
+    }
+
+    @Test
+    public void scroll_reportsAddedAndRecycledViews()
+    {
+        layout();
+        recyclerView.scrollBy(0, ROW + 10);
+
+        assertEquals(LayoutMetrics.PASS_SCROLL, lastMetrics.pass);
+        assertEquals(ROW + 10, lastMetrics.scrolled);
+        assertEquals(2, lastMetrics.viewsAdded);
+        assertEquals(2, lastMetrics.viewsBound);
+        assertEquals(2, lastMetrics.viewsRecycled);
+        assertEquals(5 * ROW - (ROW + 10) - HEIGHT, lastMetrics.endSlack);
+    }
+
+    @Test
+    public void itemUpdated_reportsOnlyChangedViewAsBound()
+    {
+        layout();
+        adapter.notifyItemChanged(4);
+        layout();
+
+        assertEquals(4, lastMetrics.viewsAdded);
+        assertEquals(1, lastMetrics.viewsBound);
+    }
+
+    @Test
+    public void recorder_collectsLayoutAndScrollPasses()
+    {
+        final LayoutMetricsRecorder recorder = new LayoutMetricsRecorder();
+        layoutManager.setLayoutMetricsListener(recorder);
+
+        layout();
+        recyclerView.scrollBy(0, ROW);
+        recyclerView.scrollBy(0, ROW);
+
+        assertEquals(1, recorder.getLayoutMicros().getTotalCount());
+        assertEquals(2, recorder.getScrollMicros().getTotalCount());
+        assertEquals(3, recorder.getViewsAdded().getTotalCount());
+    }
+
+    @Test
+    public void withoutListener_nothingIsReported()
+    {
+        layoutManager.setLayoutMetricsListener(null);
+        layout();
+        recyclerView.scrollBy(0, ROW);
+
+        assertEquals(0, lastMetrics.callCount);
+    }
+
+    private void layout()
+    {
+        recyclerView.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY), View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        recyclerView.layout(0, 0, WIDTH, HEIGHT);
+    }
+
+    /**
+     * Copies the metrics of the last pass, since the reported instance is reused.
+     */
+    private static class LastMetrics implements LayoutMetricsListener
+    {
+        int callCount;
+        int pass;
+        int scrolled;
+        int viewsAdded;
+        int viewsRecycled;
+        int viewsMeasured;
+        int viewsBound;
+        int startSlack;
+        int endSlack;
+
+        @Override
+        public void onLayoutMetrics(final LayoutMetrics metrics)
+        {
+            callCount++;
+            pass = metrics.getPass();
+            scrolled = metrics.getScrolled();
+            viewsAdded = metrics.getViewsAdded();
+            viewsRecycled = metrics.getViewsRecycled();
+            viewsMeasured = metrics.getViewsMeasured();
+            viewsBound = metrics.getViewsBound();
+            startSlack = metrics.getStartSlack();
+            endSlack = metrics.getEndSlack();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package mobi.inthepocket.customlayoutmanager.layoutmanagers;
+
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import mobi.inthepocket.customlayoutmanager.BuildConfig;
+import mobi.inthepocket.customlayoutmanager.helpers.FeedLayoutInfoLookup;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class AdLayoutManagerOrientationTest
+{
+    private static final int WIDTH = 1920;
+    private static final int HEIGHT = 1080;
+
+    private RecyclerView recyclerView;
+    private AdLayoutManager layoutManager;
+
+    @Before
+    public void setUp()
+    {
+        final FeedLayoutInfoLookup layoutInfoLookup = new FeedLayoutInfoLookup(
+                "text left", "text right",
+                "text right", "text tall left", "text right",
+                "text left", "text right",
+                "text left", "text tall right", "text left",
+                "text left", "text right");
+
+        layoutManager = new AdLayoutManager(layoutInfoLookup, 2, AdLayoutManager.HORIZONTAL);
+
+        recyclerView = new RecyclerView(RuntimeEnvironment.application);
+        recyclerView.setLayoutManager(layoutManager);
+        recyclerView.setAdapter(new CountingAdapter(layoutInfoLookup.items.size()));
+
+        layout();
+    }
+
+    @Test
+    public void horizontal_scrollsAlongWidth()
+    {
+        assertTrue(layoutManager.canScrollHorizontally());
+        assertFalse(layoutManager.canScrollVertically());
+    }
+
+    @Test
+    public void horizontal_placesColumnsFromTopToBottom()
+    {
+        final int rowSize = HEIGHT / 2;
+
+        final View first = layoutManager.getChildAt(0);
+        assertEquals(0, first.getLeft());
+        assertEquals(0, first.getTop());
+        assertEquals(rowSize, first.getRight());
+        assertEquals(rowSize, first.getBottom());
+
+        final View second = layoutManager.getChildAt(1);
+        assertEquals(0, second.getLeft());
+        assertEquals(rowSize, second.getTop());
+
+        // The tall item of the trio is twice as wide.
+        final View tall = layoutManager.getChildAt(3);
+        assertEquals(rowSize, tall.getLeft());
+        assertEquals(3 * rowSize, tall.getRight());
+    }
+
+    @Test
+    public void horizontal_scrollByMovesChildrenAndOffset()
+    {
+        recyclerView.scrollBy(100, 0);
+
+        assertEquals(-100, layoutManager.getChildAt(0).getLeft());
+        assertEquals(100, recyclerView.computeHorizontalScrollOffset());
+        assertEquals(0, recyclerView.computeVerticalScrollOffset());
+    }
+
+    private void layout()
+    {
+        recyclerView.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY), View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        recyclerView.layout(0, 0, WIDTH, HEIGHT);
+    }
+}
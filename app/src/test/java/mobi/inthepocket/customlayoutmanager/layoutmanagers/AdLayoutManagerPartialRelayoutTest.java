@@ -0,0 +1,122 @@
+package mobi.inthepocket.customlayoutmanager.layoutmanagers;
+
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import mobi.inthepocket.customlayoutmanager.BuildConfig;
+import mobi.inthepocket.customlayoutmanager.helpers.FeedLayoutInfoLookup;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class AdLayoutManagerPartialRelayoutTest
+{
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 1920;
+    private static final int ROW = WIDTH / 2;
+
+    private FeedLayoutInfoLookup layoutInfoLookup;
+    private RecyclerView recyclerView;
+    private CountingAdapter adapter;
+    private AdLayoutManager layoutManager;
+
+    @Before
+    public void setUp()
+    {
+        layoutInfoLookup = new FeedLayoutInfoLookup();
+        adapter = new CountingAdapter(0);
+        layoutManager = new AdLayoutManager(layoutInfoLookup);
+
+        recyclerView = new RecyclerView(RuntimeEnvironment.application);
+        recyclerView.setItemAnimator(null);
+        recyclerView.setLayoutManager(layoutManager);
+        recyclerView.setAdapter(adapter);
+
+        // Rows of two items, 540 pixels high. Four rows are attached.
+        addDuos(20);
+        layout();
+        adapter.resetCounts();
+    }
+
+    @Test
+    public void itemUpdated_onlyLaysOutFromItsGroup()
+    {
+        final View kept = layoutManager.getChildAt(3);
+
+        adapter.notifyItemChanged(4);
+        layout();
+
+        assertSame(kept, layoutManager.getChildAt(3));
+        assertEquals(4, adapter.layoutCount);
+        assertEquals(1, adapter.bindCount);
+        assertEquals(8, layoutManager.getChildCount());
+        assertEquals(2 * ROW, layoutManager.getChildAt(4).getTop());
+        assertEquals(2 * ROW, layoutManager.getChildAt(5).getTop());
+    }
+
+    @Test
+    public void itemMoved_onlyLaysOutFromFirstMovedGroup()
+    {
+        adapter.notifyItemMoved(7, 2);
+        layout();
+
+        assertEquals(6, adapter.layoutCount);
+        assertEquals(ROW, layoutManager.getChildAt(2).getTop());
+        assertEquals(3 * ROW, layoutManager.getChildAt(7).getTop());
+    }
+
+    @Test
+    public void childRequestingLayout_onlyLaysOutFromItsGroup()
+    {
+        layoutManager.getChildAt(6).requestLayout();
+        layout();
+
+        assertEquals(2, adapter.layoutCount);
+        assertEquals(3 * ROW, layoutManager.getChildAt(6).getTop());
+    }
+
+    @Test
+    public void itemsAddedBelowScreen_doNotLayOutAttachedViews()
+    {
+        addDuos(1);
+        adapter.notifyItemRangeInserted(40, 2);
+        layout();
+
+        assertEquals(0, adapter.layoutCount);
+        assertEquals(8, layoutManager.getChildCount());
+    }
+
+    @Test
+    public void firstItemUpdated_laysOutAllViews()
+    {
+        adapter.notifyItemChanged(0);
+        layout();
+
+        assertEquals(8, adapter.layoutCount);
+    }
+
+    private void addDuos(final int count)
+    {
+        for (int i = 0; i < count; i++)
+        {
+            layoutInfoLookup.items.add("text left");
+            layoutInfoLookup.items.add("text right");
+        }
+        adapter.setItemCount(layoutInfoLookup.items.size());
+    }
+
+    private void layout()
+    {
+        recyclerView.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY), View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        recyclerView.layout(0, 0, WIDTH, HEIGHT);
+    }
+}
@@ -0,0 +1,219 @@
+package mobi.inthepocket.customlayoutmanager.layoutmanagers;
+
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import mobi.inthepocket.customlayoutmanager.BuildConfig;
+import mobi.inthepocket.customlayoutmanager.models.FeedItem;
+
+import static mobi.inthepocket.customlayoutmanager.enums.LayoutGravity.LEFT;
+import static mobi.inthepocket.customlayoutmanager.enums.LayoutGravity.RIGHT;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Scrolls through a large feed of the app's adapter and checks how much work that takes per scrolled pixel.
+ * <p>
+ * The smallest tiles in the feed are a 300 pixel wide item and a row of two 540 pixel items, so scrolling can never
+ * need more than one new View per 270 pixels. Measuring Views that did not change, or binding Views that are still
+ * on screen, breaks these limits.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class AdLayoutManagerScrollPerformanceTest
+{
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 1920;
+    // Blocks of an uno, a duo and two trios, 9 items and 3000 pixels each.
+    private static final int BLOCK_COUNT = 2000;
+
+    private static final float MAX_BINDS_PER_PIXEL = 1f / 250;
+    private static final float MAX_MEASURES_PER_PIXEL = 1f / 250;
+    // Once the pool holds enough Views of each type, scrolling should stop creating them.
+    private static final float MAX_CREATES_PER_PIXEL = 1f / 2000;
+    // A jump lays out a single screen, plus the items of the group at the top that are above the screen.
+    private static final int MAX_BINDS_PER_JUMP = 24;
+    // Scrolling without adding Views should only offset them. Allows for small objects in the RecyclerView itself.
+    private static final int MAX_BYTES_PER_SCROLL_STEP = 256;
+
+    private RecyclerView recyclerView;
+    private CountingBasicAdapter adapter;
+    private AdLayoutManager layoutManager;
+
+    @Before
+    public void setUp()
+    {
+        adapter = new CountingBasicAdapter(RuntimeEnvironment.application);
+        adapter.setItems(createFeed());
+        layoutManager = new AdLayoutManager(adapter.getLayoutInfoLookup());
+
+        recyclerView = new RecyclerView(RuntimeEnvironment.application);
+        recyclerView.setLayoutManager(layoutManager);
+        recyclerView.setAdapter(adapter);
+
+        layout();
+    }
+
+    @Test
+    public void flings_stayWithinWorkPerPixel()
+    {
+        // Fill the pool first, like any feed that has been scrolled for a while.
+        fling(1, 400);
+        adapter.resetCounts();
+        final int measuredBefore = layoutManager.getMeasuredChildCount();
+
+        int scrolled = 0;
+        for (int i = 0; i < 6; i++)
+        {
+            scrolled += fling(1, 400);
+        }
+        for (int i = 0; i < 3; i++)
+        {
+            scrolled += fling(-1, 400);
+        }
+
+        final int measured = layoutManager.getMeasuredChildCount() - measuredBefore;
+        assertTrue("Scrolled " + scrolled + " pixels", scrolled > 50000);
+        assertPerPixel("binds", adapter.bindCount, scrolled, MAX_BINDS_PER_PIXEL);
+        assertPerPixel("measures", measured, scrolled, MAX_MEASURES_PER_PIXEL);
+        assertPerPixel("creates", adapter.createCount, scrolled, MAX_CREATES_PER_PIXEL);
+    }
+
+    @Test
+    public void slowDrag_stayWithinWorkPerPixel()
+    {
+        fling(1, 400);
+        adapter.resetCounts();
+        final int measuredBefore = layoutManager.getMeasuredChildCount();
+
+        final int offset = recyclerView.computeVerticalScrollOffset();
+        for (int i = 0; i < 5000; i++)
+        {
+            recyclerView.scrollBy(0, 3);
+        }
+        final int scrolled = recyclerView.computeVerticalScrollOffset() - offset;
+
+        assertPerPixel("binds", adapter.bindCount, scrolled, MAX_BINDS_PER_PIXEL);
+        assertPerPixel("measures", layoutManager.getMeasuredChildCount() - measuredBefore, scrolled, MAX_MEASURES_PER_PIXEL);
+    }
+
+    @Test
+    public void jumps_onlyBindDestination()
+    {
+        final Random random = new Random(42);
+        final int itemCount = adapter.getItemCount();
+
+        for (int i = 0; i < 20; i++)
+        {
+            adapter.resetCounts();
+            recyclerView.scrollToPosition(random.nextInt(itemCount));
+            layout();
+
+            assertTrue("Bound " + adapter.bindCount + " Views", adapter.bindCount <= MAX_BINDS_PER_JUMP);
+        }
+
+        // A scroll of many screens at once jumps as well, without binding the Views in between.
+        adapter.resetCounts();
+        recyclerView.scrollToPosition(0);
+        layout();
+        recyclerView.scrollBy(0, 50 * HEIGHT);
+
+        assertTrue("Bound " + adapter.bindCount + " Views", adapter.bindCount <= 2 * MAX_BINDS_PER_JUMP);
+    }
+
+    @Test
+    public void scrollStepsWithoutNewViews_doNotAllocate()
+    {
+        assumeTrue(AllocationCounter.isSupported());
+
+        recyclerView.scrollBy(0, HEIGHT / 2);
+        final int steps = 2000;
+
+        // Warm up, so class loading and lazily created objects are not counted.
+        scrollBackAndForth(steps);
+
+        adapter.resetCounts();
+        final long before = AllocationCounter.getAllocatedBytes();
+        scrollBackAndForth(steps);
+        final long allocated = AllocationCounter.getAllocatedBytes() - before;
+
+        assertTrue("Bound " + adapter.bindCount + " Views", adapter.bindCount == 0);
+        assertTrue("Allocated " + allocated + " bytes", allocated < steps * MAX_BYTES_PER_SCROLL_STEP);
+    }
+
+    /**
+     * Scrolls like a fling: a scroll step per frame, slowing down until it stops.
+     *
+     * @param direction     1 to scroll down, -1 to scroll up.
+     * @param startVelocity The distance of the first frame.
+     * @return The distance that was scrolled.
+     */
+    private int fling(final int direction, final int startVelocity)
+    {
+        final int offset = recyclerView.computeVerticalScrollOffset();
+
+        for (float velocity = startVelocity; velocity >= 1; velocity *= 0.96f)
+        {
+            recyclerView.scrollBy(0, direction * (int) velocity);
+        }
+
+        return Math.abs(recyclerView.computeVerticalScrollOffset() - offset);
+    }
+
+    /**
+     * Scrolls a pixel down and back up again, which never adds or removes a View.
+     */
+    private void scrollBackAndForth(final int steps)
+    {
+        for (int i = 0; i < steps; i++)
+        {
+            recyclerView.scrollBy(0, i % 2 == 0 ? 1 : -1);
+        }
+    }
+
+    private static void assertPerPixel(final String name, final int count, final int scrolled, final float maxPerPixel)
+    {
+        assertTrue(count + " " + name + " for " + scrolled + " pixels", count <= maxPerPixel * scrolled);
+    }
+
+    private static List<FeedItem> createFeed()
+    {
+        final List<FeedItem> items = new ArrayList<>();
+        long id = 0;
+
+        for (int i = 0; i < BLOCK_COUNT; i++)
+        {
+            items.add(new FeedItem(id++, FeedItem.Type.WIDE, LEFT, "Wide"));
+
+            items.add(new FeedItem(id++, FeedItem.Type.PICTURE, LEFT, "Picture"));
+            items.add(new FeedItem(id++, FeedItem.Type.TEXT, RIGHT, "Text"));
+
+            items.add(new FeedItem(id++, FeedItem.Type.TEXT_TALL, LEFT, "Tall"));
+            items.add(new FeedItem(id++, FeedItem.Type.PICTURE, RIGHT, "Picture"));
+            items.add(new FeedItem(id++, FeedItem.Type.TEXT, RIGHT, "Text"));
+
+            items.add(new FeedItem(id++, FeedItem.Type.TEXT, LEFT, "Text"));
+            items.add(new FeedItem(id++, FeedItem.Type.TEXT_TALL, RIGHT, "Tall"));
+            items.add(new FeedItem(id++, FeedItem.Type.PICTURE, LEFT, "Picture"));
+        }
+
+        return items;
+    }
+
+    private void layout()
+    {
+        recyclerView.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY), View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        recyclerView.layout(0, 0, WIDTH, HEIGHT);
+    }
+}
@@ -0,0 +1,101 @@
+package mobi.inthepocket.customlayoutmanager.layoutmanagers;
+
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import mobi.inthepocket.customlayoutmanager.BuildConfig;
+import mobi.inthepocket.customlayoutmanager.helpers.FeedLayoutInfoLookup;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class AdLayoutManagerStackFromEndTest
+{
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 1920;
+
+    private FeedLayoutInfoLookup layoutInfoLookup;
+    private RecyclerView recyclerView;
+    private CountingAdapter adapter;
+    private AdLayoutManager layoutManager;
+
+    @Before
+    public void setUp()
+    {
+        layoutInfoLookup = new FeedLayoutInfoLookup();
+        adapter = new CountingAdapter(0);
+        layoutManager = new AdLayoutManager(layoutInfoLookup);
+        layoutManager.setStackFromEnd(true);
+
+        recyclerView = new RecyclerView(RuntimeEnvironment.application);
+        recyclerView.setLayoutManager(layoutManager);
+        recyclerView.setAdapter(adapter);
+    }
+
+    @Test
+    public void initialLayout_showsEndOfContent()
+    {
+        addDuos(20);
+        layout();
+
+        final View last = layoutManager.getChildAt(layoutManager.getChildCount() - 1);
+        assertEquals(39, layoutManager.getPosition(last));
+        assertEquals(HEIGHT, last.getBottom());
+    }
+
+    @Test
+    public void shortContent_isPlacedAgainstBottom()
+    {
+        addDuos(1);
+        layout();
+
+        assertEquals(2, layoutManager.getChildCount());
+        assertEquals(HEIGHT, layoutManager.getChildAt(0).getBottom());
+        assertEquals(HEIGHT - WIDTH / 2, layoutManager.getChildAt(0).getTop());
+    }
+
+    @Test
+    public void appendAtEnd_onlyBindsNewItems()
+    {
+        addDuos(20);
+        layout();
+        adapter.resetCounts();
+
+        addDuos(1);
+        adapter.notifyItemRangeInserted(40, 2);
+        layout();
+
+        final View last = layoutManager.getChildAt(layoutManager.getChildCount() - 1);
+        assertEquals(41, layoutManager.getPosition(last));
+        assertEquals(HEIGHT, last.getBottom());
+        assertEquals(2, adapter.bindCount);
+        // The attached Views are moved up, only the new ones are measured and laid out.
+        assertEquals(2, adapter.measureCount);
+        assertEquals(2, adapter.layoutCount);
+        assertEquals(HEIGHT - 2 * WIDTH, layoutManager.getChildAt(0).getTop());
+    }
+
+    private void addDuos(final int count)
+    {
+        for (int i = 0; i < count; i++)
+        {
+            layoutInfoLookup.items.add("text left");
+            layoutInfoLookup.items.add("text right");
+        }
+        adapter.setItemCount(layoutInfoLookup.items.size());
+    }
+
+    private void layout()
+    {
+        recyclerView.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY), View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        recyclerView.layout(0, 0, WIDTH, HEIGHT);
+    }
+}
@@ -0,0 +1,158 @@
+package mobi.inthepocket.customlayoutmanager.layoutmanagers;
+
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import mobi.inthepocket.customlayoutmanager.BuildConfig;
+import mobi.inthepocket.customlayoutmanager.helpers.FeedLayoutInfoLookup;
+import mobi.inthepocket.customlayoutmanager.helpers.VisibilityTracker;
+import mobi.inthepocket.customlayoutmanager.interfaces.VisibilityListener;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class AdLayoutManagerVisibilityTest
+{
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 1920;
+    private static final int ROW = WIDTH / 2;
+
+    private FeedLayoutInfoLookup layoutInfoLookup;
+    private RecyclerView recyclerView;
+    private CountingAdapter adapter;
+    private AdLayoutManager layoutManager;
+    private final List<String> events = new ArrayList<>();
+
+    @Before
+    public void setUp()
+    {
+        layoutInfoLookup = new FeedLayoutInfoLookup();
+        adapter = new CountingAdapter(0);
+        layoutManager = new AdLayoutManager(layoutInfoLookup);
+        layoutManager.setVisibilityListener(new VisibilityListener()
+        {
+            @Override
+            public void onVisibilityChanged(final int position, final int event, final int visiblePercent, final long durationMillis)
+            {
+                events.add(position + ":" + event + ":" + visiblePercent);
+            }
+        }, 50);
+
+        recyclerView = new RecyclerView(RuntimeEnvironment.application);
+        recyclerView.setItemAnimator(null);
+        recyclerView.setLayoutManager(layoutManager);
+        recyclerView.setAdapter(adapter);
+
+        // Rows of two items, 540 pixels high. The fourth row is 60% visible.
+        for (int i = 0; i < 20; i++)
+        {
+            layoutInfoLookup.items.add("text left");
+            layoutInfoLookup.items.add("text right");
+        }
+        adapter.setItemCount(layoutInfoLookup.items.size());
+        layout();
+    }
+
+    @Test
+    public void layout_reportsVisibleItems()
+    {
+        assertEquals(100, layoutManager.getVisiblePercent(0));
+        assertEquals((HEIGHT - 3 * ROW) * 100 / ROW, layoutManager.getVisiblePercent(6));
+        assertTrue(events.contains("6:" + VisibilityTracker.EVENT_ENTER + ":" + layoutManager.getVisiblePercent(6)));
+        assertTrue(events.contains("7:" + VisibilityTracker.EVENT_THRESHOLD_REACHED + ":" + layoutManager.getVisiblePercent(7)));
+    }
+
+    @Test
+    public void scroll_reportsThresholdAndExit()
+    {
+        events.clear();
+        recyclerView.scrollBy(0, ROW / 2 + 10);
+
+        assertTrue(events.contains("0:" + VisibilityTracker.EVENT_THRESHOLD_LOST + ":" + layoutManager.getVisiblePercent(0)));
+        assertTrue(events.contains("8:" + VisibilityTracker.EVENT_ENTER + ":" + layoutManager.getVisiblePercent(8)));
+
+        events.clear();
+        recyclerView.scrollBy(0, ROW);
+
+        assertTrue(events.contains("0:" + VisibilityTracker.EVENT_EXIT + ":0"));
+        assertTrue(events.contains("1:" + VisibilityTracker.EVENT_EXIT + ":0"));
+        assertEquals(0, layoutManager.getVisiblePercent(0));
+    }
+
+    @Test
+    public void scroll_updatesTheItemsAtBothEdges()
+    {
+        events.clear();
+        recyclerView.scrollBy(0, 10);
+
+        assertEquals((ROW - 10) * 100 / ROW, layoutManager.getVisiblePercent(1));
+        assertEquals(100, layoutManager.getVisiblePercent(2));
+        assertEquals(100, layoutManager.getVisiblePercent(5));
+        assertEquals((HEIGHT - 3 * ROW + 10) * 100 / ROW, layoutManager.getVisiblePercent(6));
+        assertEquals(0, events.size());
+    }
+
+    @Test
+    public void farJump_exitsTheItemsOfTheOldScreen()
+    {
+        events.clear();
+        layoutManager.scrollToPosition(32);
+        layout();
+
+        assertTrue(events.contains("0:" + VisibilityTracker.EVENT_EXIT + ":0"));
+        assertTrue(events.contains("32:" + VisibilityTracker.EVENT_ENTER + ":100"));
+        assertEquals(0, layoutManager.getVisiblePercent(0));
+        assertEquals(100, layoutManager.getVisiblePercent(32));
+    }
+
+    @Test
+    public void padding_isNotPartOfTheVisibleArea()
+    {
+        recyclerView.setPadding(0, ROW / 2, 0, 0);
+        layout();
+        assertEquals(100, layoutManager.getVisiblePercent(0));
+
+        recyclerView.scrollBy(0, ROW / 2);
+
+        assertEquals(50, layoutManager.getVisiblePercent(0));
+        assertEquals(50, layoutManager.getVisiblePercent(1));
+    }
+
+    @Test
+    public void itemInsertedAbove_keepsVisibilityOfShiftedItems()
+    {
+        recyclerView.scrollBy(0, 2 * ROW);
+        events.clear();
+
+        layoutInfoLookup.items.add(0, "text right");
+        layoutInfoLookup.items.add(0, "text left");
+        adapter.setItemCount(layoutInfoLookup.items.size());
+        adapter.notifyItemRangeInserted(0, 2);
+        layout();
+
+        // The content stays in place, so the items that moved down two positions do not enter again.
+        assertEquals(100, layoutManager.getVisiblePercent(6));
+        for (final String event : events)
+        {
+            assertTrue(event, !event.endsWith(":" + VisibilityTracker.EVENT_ENTER + ":100"));
+        }
+    }
+
+    private void layout()
+    {
+        recyclerView.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY), View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        recyclerView.layout(0, 0, WIDTH, HEIGHT);
+    }
+}
@@ -0,0 +1,134 @@
+package mobi.inthepocket.customlayoutmanager.layoutmanagers;
+
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import mobi.inthepocket.customlayoutmanager.BuildConfig;
+import mobi.inthepocket.customlayoutmanager.helpers.FeedLayoutInfoLookup;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 23)
+public class AdLayoutManagerVisiblePositionsTest
+{
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 1920;
+    private static final int ROW = WIDTH / 2;
+
+    private FeedLayoutInfoLookup layoutInfoLookup;
+    private RecyclerView recyclerView;
+    private CountingAdapter adapter;
+    private AdLayoutManager layoutManager;
+
+    @Before
+    public void setUp()
+    {
+        layoutInfoLookup = new FeedLayoutInfoLookup();
+        adapter = new CountingAdapter(0);
+        layoutManager = new AdLayoutManager(layoutInfoLookup);
+
+        recyclerView = new RecyclerView(RuntimeEnvironment.application);
+        recyclerView.setLayoutManager(layoutManager);
+        recyclerView.setAdapter(adapter);
+    }
+
+    @Test
+    public void emptyAdapter_returnsNoPosition()
+    {
+        layout();
+
+        assertEquals(RecyclerView.NO_POSITION, layoutManager.findFirstVisibleItemPosition());
+        assertEquals(RecyclerView.NO_POSITION, layoutManager.findFirstCompletelyVisibleItemPosition());
+        assertEquals(RecyclerView.NO_POSITION, layoutManager.findLastVisibleItemPosition());
+        assertEquals(RecyclerView.NO_POSITION, layoutManager.findLastCompletelyVisibleItemPosition());
+    }
+
+    @Test
+    public void initialLayout_findsRowsOnScreen()
+    {
+        addDuos(20);
+        layout();
+
+        // Rows of 540 pixels: the fourth row is cut off by the bottom of the screen.
+        assertEquals(0, layoutManager.findFirstVisibleItemPosition());
+        assertEquals(0, layoutManager.findFirstCompletelyVisibleItemPosition());
+        assertEquals(7, layoutManager.findLastVisibleItemPosition());
+        assertEquals(5, layoutManager.findLastCompletelyVisibleItemPosition());
+    }
+
+    @Test
+    public void scroll_updatesPositions()
+    {
+        addDuos(20);
+        layout();
+        layoutManager.findFirstVisibleItemPosition();
+
+        recyclerView.scrollBy(0, ROW / 2);
+
+        assertEquals(0, layoutManager.findFirstVisibleItemPosition());
+        assertEquals(2, layoutManager.findFirstCompletelyVisibleItemPosition());
+        assertEquals(9, layoutManager.findLastVisibleItemPosition());
+        assertEquals(7, layoutManager.findLastCompletelyVisibleItemPosition());
+    }
+
+    @Test
+    public void tallItem_isOnlyVisibleWhileOnScreen()
+    {
+        layoutInfoLookup.items.add("wide");
+        layoutInfoLookup.items.add("text left tall");
+        layoutInfoLookup.items.add("text right");
+        layoutInfoLookup.items.add("text right");
+        addDuos(10);
+        layout();
+
+        recyclerView.scrollBy(0, HEIGHT);
+
+        // The wide item scrolled off, the tall item and the item next to it still reach into the screen.
+        assertEquals(1, layoutManager.findFirstVisibleItemPosition());
+        assertEquals(3, layoutManager.findFirstCompletelyVisibleItemPosition());
+    }
+
+    @Test
+    public void rightColumnNextToTallItem_isFoundOutOfChildOrder()
+    {
+        // The right column items start above the tall item before them: the child tops are not in order.
+        layoutInfoLookup.items.add("text left");
+        layoutInfoLookup.items.add("text left tall");
+        layoutInfoLookup.items.add("text right");
+        layoutInfoLookup.items.add("text right");
+        layoutInfoLookup.items.add("text right");
+        addDuos(10);
+        layout();
+
+        recyclerView.scrollBy(0, ROW + ROW / 2);
+
+        assertEquals(1, layoutManager.findFirstVisibleItemPosition());
+        assertEquals(4, layoutManager.findFirstCompletelyVisibleItemPosition());
+        assertEquals(10, layoutManager.findLastVisibleItemPosition());
+        assertEquals(8, layoutManager.findLastCompletelyVisibleItemPosition());
+    }
+
+    private void addDuos(final int count)
+    {
+        for (int i = 0; i < count; i++)
+        {
+            layoutInfoLookup.items.add("text left");
+            layoutInfoLookup.items.add("text right");
+        }
+        adapter.setItemCount(layoutInfoLookup.items.size());
+    }
+
+    private void layout()
+    {
+        recyclerView.measure(View.MeasureSpec.makeMeasureSpec(WIDTH, View.MeasureSpec.EXACTLY), View.MeasureSpec.makeMeasureSpec(HEIGHT, View.MeasureSpec.EXACTLY));
+        recyclerView.layout(0, 0, WIDTH, HEIGHT);
+    }
+}
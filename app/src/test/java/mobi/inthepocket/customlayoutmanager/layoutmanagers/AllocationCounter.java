@@ -0,0 +1,33 @@
+package mobi.inthepocket.customlayoutmanager.layoutmanagers;
+
+import java.lang.management.ManagementFactory;
+
+import com.sun.management.ThreadMXBean;
+
+/**
+ * Reads the number of bytes allocated by the current thread, to guard code paths that should not allocate.
+ */
+final class AllocationCounter
+{
+    private static final ThreadMXBean THREAD_MX_BEAN = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private AllocationCounter()
+    {
+    }
+
+    /**
+     * @return true if the JVM can count allocations per thread.
+     */
+    static boolean isSupported()
+    {
+        return THREAD_MX_BEAN.isThreadAllocatedMemorySupported() && THREAD_MX_BEAN.isThreadAllocatedMemoryEnabled();
+    }
+
+    /**
+     * @return The total number of bytes allocated by the current thread so far.
+     */
+    static long getAllocatedBytes()
+    {
+        return THREAD_MX_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
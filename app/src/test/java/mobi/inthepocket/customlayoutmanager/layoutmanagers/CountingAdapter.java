@@ -0,0 +1,101 @@
+package mobi.inthepocket.customlayoutmanager.layoutmanagers;
+
+import android.content.Context;
+import android.support.v7.widget.RecyclerView;
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * Adapter with plain Views that counts how often ViewHolders are created and bound and how often their Views are measured and laid out.
+ */
+class CountingAdapter extends RecyclerView.Adapter<CountingAdapter.CountingViewHolder>
+{
+    // Height self sized Views give themselves when they are not given an exact height.
+    static final int SELF_SIZED_HEIGHT = 300;
+
+    private int itemCount;
+
+    int createCount;
+    int bindCount;
+    int measureCount;
+    int layoutCount;
+
+    CountingAdapter(final int itemCount)
+    {
+        this.itemCount = itemCount;
+    }
+
+    void setItemCount(final int itemCount)
+    {
+        this.itemCount = itemCount;
+    }
+
+    void resetCounts()
+    {
+        createCount = 0;
+        bindCount = 0;
+        measureCount = 0;
+        layoutCount = 0;
+    }
+
+    @Override
+    public CountingViewHolder onCreateViewHolder(final ViewGroup parent, final int viewType)
+    {
+        createCount++;
+        return new CountingViewHolder(new CountingView(parent.getContext()));
+    }
+
+    @Override
+    public void onBindViewHolder(final CountingViewHolder holder, final int position)
+    {
+        bindCount++;
+    }
+
+    @Override
+    public int getItemCount()
+    {
+        return itemCount;
+    }
+
+    /**
+     * Only used after setHasStableIds(true), the items of these tests never move.
+     */
+    @Override
+    public long getItemId(final int position)
+    {
+        return position;
+    }
+
+    static class CountingViewHolder extends RecyclerView.ViewHolder
+    {
+        CountingViewHolder(final View itemView)
+        {
+            super(itemView);
+        }
+    }
+
+    private class CountingView extends View
+    {
+        CountingView(final Context context)
+        {
+            super(context);
+        }
+
+        @Override
+        protected void onMeasure(final int widthMeasureSpec, final int heightMeasureSpec)
+        {
+            measureCount++;
+
+            final int height = MeasureSpec.getMode(heightMeasureSpec) == MeasureSpec.EXACTLY ? MeasureSpec.getSize(heightMeasureSpec) : SELF_SIZED_HEIGHT;
+            setMeasuredDimension(MeasureSpec.getSize(widthMeasureSpec), height);
+        }
+
+        @Override
+        public void layout(final int l, final int t, final int r, final int b)
+        {
+            layoutCount++;
+
+            super.layout(l, t, r, b);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package mobi.inthepocket.customlayoutmanager.layoutmanagers;
+
+import android.content.Context;
+import android.support.v7.widget.RecyclerView;
+import android.view.ViewGroup;
+
+import mobi.inthepocket.customlayoutmanager.adapters.BasicAdapter;
+
+/**
+ * The adapter of the app, counting how often ViewHolders are created and bound.
+ */
+class CountingBasicAdapter extends BasicAdapter
+{
+    int createCount;
+    int bindCount;
+
+    CountingBasicAdapter(final Context context)
+    {
+        super(context, null);
+    }
+
+    void resetCounts()
+    {
+        createCount = 0;
+        bindCount = 0;
+    }
+
+    @Override
+    public RecyclerView.ViewHolder onCreateViewHolder(final ViewGroup parent, final int viewType)
+    {
+        createCount++;
+        return super.onCreateViewHolder(parent, viewType);
+    }
+
+    @Override
+    public void onBindViewHolder(final RecyclerView.ViewHolder holder, final int position)
+    {
+        bindCount++;
+        super.onBindViewHolder(holder, position);
+    }
+}
@@ -0,0 +1,255 @@
+package mobi.inthepocket.customlayoutmanager.helpers;
+
+import java.util.Arrays;
+
+import mobi.inthepocket.customlayoutmanager.interfaces.TileContainer;
+
+/**
+ * {@link TileContainer} that keeps the position, column and edges of each tile in primitive arrays instead of Views,
+ * so a {@link FeedLayoutEngine} can run on the JVM. Used by the benchmarks and the tests of the engine.
+ * <p>
+ * Self sized items are not measured, they keep the height of a fixed size full width tile.
+ */
+public class TileArray implements TileContainer
+{
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final int width;
+    private final int height;
+
+    private int tileCount;
+    private int[] positions = new int[INITIAL_CAPACITY];
+    private int[] tops = new int[INITIAL_CAPACITY];
+    private int[] bottoms = new int[INITIAL_CAPACITY];
+    private int[] columns = new int[INITIAL_CAPACITY];
+    private int[] columnSpans = new int[INITIAL_CAPACITY];
+    private boolean[] removed = new boolean[INITIAL_CAPACITY];
+
+    // Number of tiles added, each of which would have been a View that was bound and laid out.
+    private int addedTileCount;
+
+    /**
+     * @param width  Width of the simulated RecyclerView.
+     * @param height Height of the simulated RecyclerView.
+     */
+    public TileArray(final int width, final int height)
+    {
+        this.width = width;
+        this.height = height;
+    }
+
+    /**
+     * Removes all tiles, like setting a new adapter.
+     */
+    public void clear()
+    {
+        tileCount = 0;
+    }
+
+    /**
+     * Shifts the positions of the tiles after the added items, like the RecyclerView does for its ViewHolders.
+     */
+    public void onItemsAdded(final int positionStart, final int itemCount)
+    {
+        for (int i = 0; i < tileCount; i++)
+        {
+            if (positions[i] >= positionStart)
+            {
+                positions[i] += itemCount;
+            }
+        }
+    }
+
+    /**
+     * Marks the tiles of removed items and shifts the positions of the tiles after them.
+     */
+    public void onItemsRemoved(final int positionStart, final int itemCount)
+    {
+        for (int i = 0; i < tileCount; i++)
+        {
+            if (positions[i] >= positionStart + itemCount)
+            {
+                positions[i] -= itemCount;
+            }
+            else if (positions[i] >= positionStart)
+            {
+                removed[i] = true;
+            }
+        }
+    }
+
+    public int getAddedTileCount()
+    {
+        return addedTileCount;
+    }
+
+    @Override
+    public int getTileCount()
+    {
+        return tileCount;
+    }
+
+    @Override
+    public int getTilePosition(final int index)
+    {
+        return positions[index];
+    }
+
+    @Override
+    public int getTileTop(final int index)
+    {
+        return tops[index];
+    }
+
+    @Override
+    public int getTileBottom(final int index)
+    {
+        return bottoms[index];
+    }
+
+    @Override
+    public int getTileColumn(final int index)
+    {
+        return columns[index];
+    }
+
+    @Override
+    public int getTileColumnSpan(final int index)
+    {
+        return columnSpans[index];
+    }
+
+    @Override
+    public boolean isTileRemoved(final int index)
+    {
+        return removed[index];
+    }
+
+    @Override
+    public boolean isTileChanged(final int index)
+    {
+        return false;
+    }
+
+    @Override
+    public boolean canRecycleTile(final int index)
+    {
+        return true;
+    }
+
+    @Override
+    public int convertPreLayoutPosition(final int position)
+    {
+        return position;
+    }
+
+    @Override
+    public int obtainTile(final int position, final int descriptor)
+    {
+        return descriptor;
+    }
+
+    @Override
+    public int measureTile(final boolean atEnd)
+    {
+        return FeedLayoutEngine.getWideTileHeight(width);
+    }
+
+    @Override
+    public void addTile(final int position, final boolean atEnd, final int column, final int columnEnd, final int top, final int bottom)
+    {
+        final int index = atEnd ? tileCount : 0;
+        ensureCapacity(tileCount + 1);
+        if (index < tileCount)
+        {
+            shiftTiles(index, index + 1, tileCount - index);
+        }
+        positions[index] = position;
+        tops[index] = top;
+        bottoms[index] = bottom;
+        columns[index] = column;
+        columnSpans[index] = columnEnd - column;
+        removed[index] = false;
+        tileCount++;
+        addedTileCount++;
+    }
+
+    @Override
+    public void removeTile(final int index)
+    {
+        shiftTiles(index + 1, index, tileCount - index - 1);
+        tileCount--;
+    }
+
+    @Override
+    public void scrapTiles(final int fromIndex)
+    {
+        tileCount = Math.min(tileCount, fromIndex);
+    }
+
+    @Override
+    public void offsetTiles(final int offset)
+    {
+        for (int i = 0; i < tileCount; i++)
+        {
+            tops[i] += offset;
+            bottoms[i] += offset;
+        }
+    }
+
+    @Override
+    public int getMeasuredSize(final int position)
+    {
+        return FeedLayoutEngine.NO_SIZE;
+    }
+
+    @Override
+    public int getStartAfterPadding()
+    {
+        return 0;
+    }
+
+    @Override
+    public int getEndAfterPadding()
+    {
+        return height;
+    }
+
+    @Override
+    public int getScrollAxisSize()
+    {
+        return height;
+    }
+
+    @Override
+    public int getCrossAxisSize()
+    {
+        return width;
+    }
+
+    private void shiftTiles(final int from, final int to, final int count)
+    {
+        System.arraycopy(positions, from, positions, to, count);
+        System.arraycopy(tops, from, tops, to, count);
+        System.arraycopy(bottoms, from, bottoms, to, count);
+        System.arraycopy(columns, from, columns, to, count);
+        System.arraycopy(columnSpans, from, columnSpans, to, count);
+        System.arraycopy(removed, from, removed, to, count);
+    }
+
+    private void ensureCapacity(final int capacity)
+    {
+        if (tops.length >= capacity)
+        {
+            return;
+        }
+
+        final int newCapacity = Math.max(capacity, tops.length * 2);
+        positions = Arrays.copyOf(positions, newCapacity);
+        tops = Arrays.copyOf(tops, newCapacity);
+        bottoms = Arrays.copyOf(bottoms, newCapacity);
+        columns = Arrays.copyOf(columns, newCapacity);
+        columnSpans = Arrays.copyOf(columnSpans, newCapacity);
+        removed = Arrays.copyOf(removed, newCapacity);
+    }
+}
@@ -0,0 +1,55 @@
+package mobi.inthepocket.customlayoutmanager.benchmark;
+
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import mobi.inthepocket.customlayoutmanager.helpers.FeedLayoutEngine;
+import mobi.inthepocket.customlayoutmanager.helpers.TileArray;
+
+/**
+ * Feed and laid out layout engine shared by the benchmarks, for every combination of feed pattern and feed size.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public abstract class FeedBenchmark
+{
+    // A 1080p phone in portrait.
+    static final int WIDTH = 1080;
+    static final int HEIGHT = 1920;
+    static final int COLUMN_COUNT = 2;
+
+    @Param({"UNO", "DUO", "TRIO", "MIXED"})
+    public String pattern;
+
+    @Param({"100", "10000", "1000000"})
+    public int itemCount;
+
+    SyntheticFeed feed;
+    TileArray tiles;
+    FeedLayoutEngine engine;
+
+    @Setup(Level.Trial)
+    public void setUpFeed()
+    {
+        feed = new SyntheticFeed(SyntheticFeed.Pattern.valueOf(pattern), itemCount);
+        // The same engine the AdLayoutManager runs, placing tiles in arrays instead of Views.
+        tiles = new TileArray(WIDTH, HEIGHT);
+        engine = new FeedLayoutEngine(feed, tiles, COLUMN_COUNT);
+        engine.layout(feed.getItemCount());
+    }
+}
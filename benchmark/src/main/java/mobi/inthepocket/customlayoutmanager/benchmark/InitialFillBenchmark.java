@@ -0,0 +1,19 @@
+package mobi.inthepocket.customlayoutmanager.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+
+/**
+ * The first layout after setting an adapter: loading the layout info of all items, building the index and filling the screen.
+ */
+public class InitialFillBenchmark extends FeedBenchmark
+{
+    @Benchmark
+    public int initialFill()
+    {
+        tiles.clear();
+        engine.clear();
+        engine.layout(feed.getItemCount());
+
+        return tiles.getTileCount();
+    }
+}
@@ -0,0 +1,63 @@
+package mobi.inthepocket.customlayoutmanager.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.Setup;
+
+import java.util.Random;
+
+/**
+ * A storm of adapter changes: full width items are inserted and removed again, each change followed by a layout pass.
+ * Half of the changes are close to the screen, the other half anywhere in the feed.
+ */
+public class InsertRemoveBenchmark extends FeedBenchmark
+{
+    private static final int STORM_SIZE = 32;
+    // Changes close to the screen are at most this many positions away from the first laid out item.
+    private static final int NEARBY_DISTANCE = 20;
+
+    private final int[] positions = new int[STORM_SIZE];
+
+    @Setup(Level.Trial)
+    public void setUpPositions()
+    {
+        // Scroll into the feed, so there are items above the screen as well.
+        engine.updateLayoutIndex(feed.getItemCount());
+        engine.scrollToOffset(feed.getItemCount(), engine.getLayoutIndex().getTotalHeight() / 2);
+
+        final Random random = new Random(42);
+        final int firstPosition = engine.getFirstPosition();
+        for (int i = 0; i < STORM_SIZE; i++)
+        {
+            final int position = i % 2 == 0
+                    ? firstPosition - NEARBY_DISTANCE + random.nextInt(2 * NEARBY_DISTANCE)
+                    : random.nextInt(itemCount);
+            positions[i] = Math.max(0, Math.min(position, itemCount));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(2 * STORM_SIZE)
+    public int storm()
+    {
+        for (int i = 0; i < STORM_SIZE; i++)
+        {
+            feed.insert(positions[i], SyntheticFeed.WIDE);
+            tiles.onItemsAdded(positions[i], 1);
+            engine.onItemsAdded(positions[i], 1);
+            engine.layout(feed.getItemCount());
+        }
+
+        // Remove in reverse order, so every item is removed from the position it was inserted at.
+        for (int i = STORM_SIZE - 1; i >= 0; i--)
+        {
+            feed.remove(positions[i]);
+            tiles.onItemsRemoved(positions[i], 1);
+            engine.onItemsRemoved(positions[i], 1);
+            engine.layout(feed.getItemCount());
+        }
+
+        return tiles.getTileCount();
+    }
+}
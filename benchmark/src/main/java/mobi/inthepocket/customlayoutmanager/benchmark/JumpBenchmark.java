@@ -0,0 +1,41 @@
+package mobi.inthepocket.customlayoutmanager.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Setup;
+
+import java.util.Random;
+
+/**
+ * Jumps to offsets anywhere in the feed, as done by scrollToPosition or by dragging a fast scroll thumb.
+ */
+public class JumpBenchmark extends FeedBenchmark
+{
+    // Power of two, so the next offset is picked with a mask.
+    private static final int OFFSET_COUNT = 1024;
+
+    private final int[] offsets = new int[OFFSET_COUNT];
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUpOffsets()
+    {
+        // Fixed seed, every run jumps to the same offsets.
+        final Random random = new Random(42);
+        engine.updateLayoutIndex(feed.getItemCount());
+        final int totalHeight = engine.getLayoutIndex().getTotalHeight();
+        for (int i = 0; i < OFFSET_COUNT; i++)
+        {
+            offsets[i] = totalHeight > 0 ? random.nextInt(totalHeight) : 0;
+        }
+    }
+
+    @Benchmark
+    public int jump()
+    {
+        final int jumped = engine.scrollToOffset(feed.getItemCount(), offsets[next]);
+        next = (next + 1) & (OFFSET_COUNT - 1);
+
+        return jumped;
+    }
+}
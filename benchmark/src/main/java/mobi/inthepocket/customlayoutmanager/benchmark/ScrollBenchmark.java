@@ -0,0 +1,28 @@
+package mobi.inthepocket.customlayoutmanager.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * A single scroll step, as done for every frame of a drag or fling. The direction turns around at the ends of the feed.
+ */
+public class ScrollBenchmark extends FeedBenchmark
+{
+    // From a slow drag to a fast fling, the last one is close to a screen per frame.
+    @Param({"4", "48", "480", "1800"})
+    public int dy;
+
+    private int direction = 1;
+
+    @Benchmark
+    public int scroll()
+    {
+        final int scrolled = engine.scrollBy(feed.getItemCount(), direction * dy);
+        if (scrolled != direction * dy)
+        {
+            direction = -direction;
+        }
+
+        return scrolled;
+    }
+}
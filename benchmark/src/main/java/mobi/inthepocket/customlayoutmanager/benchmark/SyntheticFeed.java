@@ -0,0 +1,126 @@
+package mobi.inthepocket.customlayoutmanager.benchmark;
+
+import java.util.Arrays;
+
+import mobi.inthepocket.customlayoutmanager.helpers.LayoutDescriptor;
+import mobi.inthepocket.customlayoutmanager.interfaces.BulkLayoutInfoLookup;
+
+/**
+ * Generated two column feed, built from the same blocks as the feed in the app:
+ * an uno is a single full width item, a duo two items next to each other and a trio a tall item next to two small ones.
+ * <p>
+ * Items can be inserted and removed, like in an adapter, so the lookup keeps matching the positions the layout engine uses.
+ */
+public class SyntheticFeed implements BulkLayoutInfoLookup
+{
+    public enum Pattern
+    {
+        UNO,
+        DUO,
+        TRIO,
+        // Uno, duo, trio with the tall item left, duo, trio with the tall item right.
+        MIXED
+    }
+
+    static final int WIDE = LayoutDescriptor.pack(1, LayoutDescriptor.MAX_SPAN, 0, false);
+    private static final int LEFT = LayoutDescriptor.pack(1, 1, 0, false);
+    private static final int RIGHT = LayoutDescriptor.pack(1, 1, 1, false);
+    private static final int TALL_LEFT = LayoutDescriptor.pack(2, 1, 0, false);
+    private static final int TALL_RIGHT = LayoutDescriptor.pack(2, 1, 1, false);
+
+    private int[] descriptors;
+    private int itemCount;
+
+    /**
+     * @param pattern   The blocks to repeat.
+     * @param itemCount The number of items. The last block is cut off if it does not fit.
+     */
+    public SyntheticFeed(final Pattern pattern, final int itemCount)
+    {
+        final int[] block = getBlock(pattern);
+
+        descriptors = new int[itemCount];
+        for (int position = 0; position < itemCount; position++)
+        {
+            descriptors[position] = block[position % block.length];
+        }
+        this.itemCount = itemCount;
+    }
+
+    public int getItemCount()
+    {
+        return itemCount;
+    }
+
+    /**
+     * Inserts a single item.
+     *
+     * @param position   The position of the new item.
+     * @param descriptor The packed {@link LayoutDescriptor} of the new item.
+     */
+    public void insert(final int position, final int descriptor)
+    {
+        if (itemCount == descriptors.length)
+        {
+            descriptors = Arrays.copyOf(descriptors, itemCount + (itemCount >> 1) + 1);
+        }
+
+        System.arraycopy(descriptors, position, descriptors, position + 1, itemCount - position);
+        descriptors[position] = descriptor;
+        itemCount++;
+    }
+
+    /**
+     * Removes a single item.
+     */
+    public void remove(final int position)
+    {
+        System.arraycopy(descriptors, position + 1, descriptors, position, itemCount - position - 1);
+        itemCount--;
+    }
+
+    @Override
+    public void getLayoutDescriptors(final int positionStart, final int itemCount, final int[] descriptors)
+    {
+        System.arraycopy(this.descriptors, positionStart, descriptors, 0, itemCount);
+    }
+
+    @Override
+    public int getRowSpan(final int position)
+    {
+        return LayoutDescriptor.getRowSpan(descriptors[position]);
+    }
+
+    @Override
+    public int getColumnSpan(final int position)
+    {
+        return LayoutDescriptor.getColumnSpan(descriptors[position]);
+    }
+
+    @Override
+    public boolean useViewSize(final int position)
+    {
+        return LayoutDescriptor.useViewSize(descriptors[position]);
+    }
+
+    @Override
+    public int getColumn(final int position)
+    {
+        return LayoutDescriptor.getColumn(descriptors[position]);
+    }
+
+    private static int[] getBlock(final Pattern pattern)
+    {
+        switch (pattern)
+        {
+            case UNO:
+                return new int[]{WIDE};
+            case DUO:
+                return new int[]{LEFT, RIGHT};
+            case TRIO:
+                return new int[]{TALL_LEFT, RIGHT, RIGHT, LEFT, TALL_RIGHT, LEFT};
+            default:
+                return new int[]{WIDE, LEFT, RIGHT, TALL_LEFT, RIGHT, RIGHT, LEFT, RIGHT, LEFT, TALL_RIGHT, LEFT};
+        }
+    }
+}